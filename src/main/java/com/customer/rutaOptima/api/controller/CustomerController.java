@@ -16,8 +16,10 @@ import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
 import com.customer.rutaOptima.api.dto.CustomerDTO;
+import com.customer.rutaOptima.api.dto.CustomerImportResponse;
 import com.customer.rutaOptima.domain.Customer;
 import com.customer.rutaOptima.service.CustomerService;
+import com.customer.rutaOptima.service.importer.CustomerImportService;
 
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
@@ -31,6 +33,7 @@ import lombok.RequiredArgsConstructor;
 public class CustomerController {
 
     private final CustomerService customerService;
+    private final CustomerImportService customerImportService;
 
     @GetMapping
     public ResponseEntity<List<CustomerDTO>> getAllCustomers(@RequestParam(required = false) Boolean activo) {
@@ -58,6 +61,16 @@ public class CustomerController {
         return ResponseEntity.status(HttpStatus.CREATED).body(toDTO(created));
     }
 
+    /**
+     * Importación masiva de clientes con upsert por codigoExterno y detección de duplicados cercanos.
+     *
+     * POST /api/customers/bulk
+     */
+    @PostMapping("/bulk")
+    public ResponseEntity<CustomerImportResponse> importCustomers(@RequestBody List<CustomerDTO> customers) {
+        return ResponseEntity.ok(customerImportService.importCustomers(customers));
+    }
+
     @PutMapping("/{id}")
     public ResponseEntity<CustomerDTO> updateCustomer(@PathVariable Long id, 
                                                        @Valid @RequestBody CustomerDTO dto) {
@@ -76,6 +89,7 @@ public class CustomerController {
     private CustomerDTO toDTO(Customer customer) {
         return CustomerDTO.builder()
                 .id(customer.getId())
+                .codigoExterno(customer.getCodigoExterno())
                 .nombre(customer.getNombre())
                 .direccion(customer.getDireccion())
                 .latitud(customer.getLatitud())
@@ -91,6 +105,7 @@ public class CustomerController {
 
     private Customer toEntity(CustomerDTO dto) {
         return Customer.builder()
+                .codigoExterno(dto.getCodigoExterno())
                 .nombre(dto.getNombre())
                 .direccion(dto.getDireccion())
                 .latitud(dto.getLatitud())
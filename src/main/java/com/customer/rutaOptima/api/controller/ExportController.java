@@ -0,0 +1,95 @@
+package com.customer.rutaOptima.api.controller;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import com.customer.rutaOptima.config.exception.BusinessException;
+import com.customer.rutaOptima.service.export.ExportFormat;
+import com.customer.rutaOptima.service.export.ExportService;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Exportaciones para conciliación de back-office, en NDJSON o CSV.
+ * Las filas se escriben a medida que se leen de la base (ver ExportService).
+ */
+@RestController
+@RequestMapping("/api/exports")
+@RequiredArgsConstructor
+@Slf4j
+public class ExportController {
+
+    private final ExportService exportService;
+
+    /**
+     * Pedidos con fecha de entrega entre desde y hasta (inclusive).
+     * 
+     * GET /api/exports/orders?desde=2025-11-01&hasta=2025-11-30&format=csv
+     */
+    @GetMapping("/orders")
+    public ResponseEntity<StreamingResponseBody> exportOrders(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate desde,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate hasta,
+            @RequestParam(required = false) String format) {
+
+        log.info("GET /api/exports/orders - Desde: {}, Hasta: {}, Formato: {}", desde, hasta, format);
+
+        ExportFormat exportFormat = ExportFormat.parse(format);
+        Instant start = startOf(desde);
+        Instant end = endOf(desde, hasta);
+        return stream("orders", desde, hasta, exportFormat,
+            out -> exportService.exportOrders(start, end, exportFormat, out));
+    }
+
+    /**
+     * Paradas de los planes con fecha entre desde y hasta (inclusive).
+     * 
+     * GET /api/exports/route-stops?desde=2025-11-01&hasta=2025-11-30&format=ndjson
+     */
+    @GetMapping("/route-stops")
+    public ResponseEntity<StreamingResponseBody> exportRouteStops(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate desde,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate hasta,
+            @RequestParam(required = false) String format) {
+
+        log.info("GET /api/exports/route-stops - Desde: {}, Hasta: {}, Formato: {}", desde, hasta, format);
+
+        ExportFormat exportFormat = ExportFormat.parse(format);
+        Instant start = startOf(desde);
+        Instant end = endOf(desde, hasta);
+        return stream("route-stops", desde, hasta, exportFormat,
+            out -> exportService.exportRouteStops(start, end, exportFormat, out));
+    }
+
+    private static ResponseEntity<StreamingResponseBody> stream(String name, LocalDate desde, LocalDate hasta,
+                                                                ExportFormat format, StreamingResponseBody body) {
+        String filename = name + "_" + desde + "_" + hasta + "." + format.getExtension();
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(format.getContentType()))
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + filename + "\"")
+                .body(body);
+    }
+
+    private static Instant startOf(LocalDate desde) {
+        return desde.atStartOfDay(ZoneId.systemDefault()).toInstant();
+    }
+
+    private static Instant endOf(LocalDate desde, LocalDate hasta) {
+        if (hasta.isBefore(desde)) {
+            throw new BusinessException("La fecha hasta no puede ser anterior a desde");
+        }
+        return hasta.plusDays(1).atStartOfDay(ZoneId.systemDefault()).toInstant();
+    }
+}
@@ -1,21 +1,29 @@
 package com.customer.rutaOptima.api.controller;
 
 import com.customer.rutaOptima.api.dto.OrderDTO;
+import com.customer.rutaOptima.api.dto.OrderImportResponse;
+import com.customer.rutaOptima.api.pagination.KeysetCursor;
+import com.customer.rutaOptima.api.pagination.PageLimits;
 import com.customer.rutaOptima.domain.Customer;
 import com.customer.rutaOptima.domain.Order;
 import com.customer.rutaOptima.service.CustomerService;
 import com.customer.rutaOptima.service.OrderService;
+import com.customer.rutaOptima.service.importer.OrderImportService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.time.*;
 import java.time.format.DateTimeParseException;
 import java.time.temporal.ChronoUnit;
 import java.util.List;
+import java.util.Locale;
 import java.util.stream.Collectors;
 
 /**
@@ -29,58 +37,72 @@ public class OrderController {
 
     private final OrderService orderService;
     private final CustomerService customerService;
+    private final PageLimits pageLimits;
+    private final OrderImportService orderImportService;
 
+    /**
+     * Lista pedidos paginados por keyset, con filtros opcionales de fecha y estado.
+     * La página siguiente se pide con el cursor devuelto en el header X-Next-Cursor
+     * (ausente en la última página).
+     *
+     * GET /api/orders?fecha=2025-12-09&estado=PENDIENTE&limit=100&cursor=...
+     */
     @GetMapping
     public ResponseEntity<List<OrderDTO>> getOrders(
             @RequestParam(required = false) String fecha,
-            @RequestParam(required = false) String estado) {
-
-        if (fecha == null || fecha.isBlank()) {
-            return ResponseEntity.ok(orderService.findAll().stream()
-                    .map(this::toDTO)
-                    .collect(Collectors.toList()));
-        }
-
-        ZoneId zone = ZoneId.systemDefault();
-
-        Instant startInstant;
-        Instant endInstant;
-
-        if (fecha.matches("^\\d{4}-\\d{2}-\\d{2}$")) {
-            LocalDate ld = LocalDate.parse(fecha);
-            startInstant = ld.atStartOfDay(zone).toInstant();
-            endInstant = ld.plusDays(1).atStartOfDay(zone).toInstant();
-        } else {
-            Instant parsedInstant;
-            try {
-                parsedInstant = Instant.parse(fecha); // e.g. 2025-11-12T10:15:30Z
-            } catch (DateTimeParseException ex1) {
+            @RequestParam(required = false) String estado,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit) {
+
+        int pageSize = pageLimits.resolve(limit);
+        KeysetCursor after = KeysetCursor.decode(cursor);
+        String estadoFilter = estado != null && !estado.isBlank() ? estado.trim().toUpperCase(Locale.ROOT) : null;
+
+        Instant startInstant = null;
+        Instant endInstant = null;
+
+        if (fecha != null && !fecha.isBlank()) {
+            ZoneId zone = ZoneId.systemDefault();
+
+            if (fecha.matches("^\\d{4}-\\d{2}-\\d{2}$")) {
+                LocalDate ld = LocalDate.parse(fecha);
+                startInstant = ld.atStartOfDay(zone).toInstant();
+                endInstant = ld.plusDays(1).atStartOfDay(zone).toInstant();
+            } else {
+                Instant parsedInstant;
                 try {
-                    parsedInstant = OffsetDateTime.parse(fecha).toInstant(); // con offset
-                } catch (DateTimeParseException ex2) {
-                    // sin offset -> LocalDateTime
-                    LocalDateTime ldt = LocalDateTime.parse(fecha);
-                    parsedInstant = ldt.atZone(zone).toInstant();
+                    parsedInstant = Instant.parse(fecha); // e.g. 2025-11-12T10:15:30Z
+                } catch (DateTimeParseException ex1) {
+                    try {
+                        parsedInstant = OffsetDateTime.parse(fecha).toInstant(); // con offset
+                    } catch (DateTimeParseException ex2) {
+                        // sin offset -> LocalDateTime
+                        LocalDateTime ldt = LocalDateTime.parse(fecha);
+                        parsedInstant = ldt.atZone(zone).toInstant();
+                    }
                 }
+                // Para "con hora" tomar la hora (rango de 1 hora)
+                startInstant = parsedInstant.truncatedTo(ChronoUnit.HOURS);
+                endInstant = startInstant.plus(1, ChronoUnit.HOURS);
             }
-            // Para "con hora" tomar la hora (rango de 1 hora)
-            startInstant = parsedInstant.truncatedTo(ChronoUnit.HOURS);
-            endInstant = startInstant.plus(1, ChronoUnit.HOURS);
         }
 
-        List<Order> orders = orderService.findByFechaRange(startInstant, endInstant);
+        // Una fila de más para saber si hay página siguiente
+        List<Order> orders = orderService.findPage(startInstant, endInstant, estadoFilter,
+                after != null ? after.fecha() : null, after != null ? after.id() : null, pageSize + 1);
 
-        if (estado != null && !estado.isBlank()) {
-            orders = orders.stream()
-                    .filter(o -> estado.equalsIgnoreCase(o.getEstado()))
-                    .collect(Collectors.toList());
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (orders.size() > pageSize) {
+            orders = orders.subList(0, pageSize);
+            Order last = orders.get(pageSize - 1);
+            response.header(KeysetCursor.NEXT_CURSOR_HEADER, new KeysetCursor(last.getFechaEntrega(), last.getId()).encode());
         }
 
         List<OrderDTO> dtos = orders.stream()
                 .map(this::toDTO)
                 .collect(Collectors.toList());
 
-        return ResponseEntity.ok(dtos);
+        return response.body(dtos);
     }
 
     @GetMapping("/{id}")
@@ -99,6 +121,27 @@ public class OrderController {
         return ResponseEntity.status(HttpStatus.CREATED).body(toDTO(created));
     }
 
+    /**
+     * Importación masiva de pedidos como array JSON. Inserta las filas válidas e informa
+     * los errores por fila.
+     *
+     * POST /api/orders/bulk (Content-Type: application/json)
+     */
+    @PostMapping(value = "/bulk", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<OrderImportResponse> importOrdersJson(@RequestBody List<OrderDTO> orders) {
+        return ResponseEntity.ok(orderImportService.importJson(orders));
+    }
+
+    /**
+     * Importación masiva de pedidos como CSV con encabezado (ver OrderCsvReader), leído a medida que llega.
+     *
+     * POST /api/orders/bulk (Content-Type: text/csv)
+     */
+    @PostMapping(value = "/bulk", consumes = "text/csv")
+    public ResponseEntity<OrderImportResponse> importOrdersCsv(InputStream body) throws IOException {
+        return ResponseEntity.ok(orderImportService.importCsv(body));
+    }
+
     @DeleteMapping("/{id}")
     public ResponseEntity<Void> deleteOrder(@PathVariable Long id) {
         orderService.deleteOrder(id);
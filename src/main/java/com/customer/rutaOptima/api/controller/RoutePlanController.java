@@ -6,6 +6,7 @@ import java.time.ZoneId;
 import java.util.List;
 import java.util.stream.Collectors;
 
+import org.springframework.data.domain.Limit;
 import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
@@ -19,11 +20,21 @@ import org.springframework.web.bind.annotation.RestController;
 
 import com.customer.rutaOptima.api.dto.OptimizeRouteRequest;
 import com.customer.rutaOptima.api.dto.OptimizeRouteResponse;
+import com.customer.rutaOptima.api.dto.ReoptimizeRouteRequest;
+import com.customer.rutaOptima.api.dto.RouteRepairRequest;
+import com.customer.rutaOptima.api.dto.UrgentInsertionResponse;
+import com.customer.rutaOptima.api.pagination.KeysetCursor;
+import com.customer.rutaOptima.api.pagination.PageLimits;
 import com.customer.rutaOptima.config.exception.ResourceNotFoundException;
 import com.customer.rutaOptima.domain.RoutePlan;
-import com.customer.rutaOptima.domain.RouteStop;
 import com.customer.rutaOptima.persistence.RoutePlanRepository;
+import com.customer.rutaOptima.persistence.RouteStopRepository;
+import com.customer.rutaOptima.persistence.projection.RoutePlanSummary;
+import com.customer.rutaOptima.persistence.projection.RouteStopDetail;
+import com.customer.rutaOptima.service.LiveSolveService;
 import com.customer.rutaOptima.service.RouteOptimizationService;
+import com.customer.rutaOptima.service.RouteRepairService;
+import com.customer.rutaOptima.service.UrgentInsertionService;
 
 import jakarta.validation.Valid;
 import lombok.Data;
@@ -38,6 +49,11 @@ public class RoutePlanController {
 
     private final RouteOptimizationService optimizationService;
     private final RoutePlanRepository routePlanRepository;
+    private final RouteStopRepository routeStopRepository;
+    private final LiveSolveService liveSolveService;
+    private final UrgentInsertionService urgentInsertionService;
+    private final RouteRepairService routeRepairService;
+    private final PageLimits pageLimits;
 
     /**
      * Optimiza rutas para una fecha específica con DISTANCIAS REALES (OSRM).
@@ -57,6 +73,93 @@ public class RoutePlanController {
         return ResponseEntity.ok(response);
     }
 
+    /**
+     * Re-optimiza un plan existente partiendo de su asignación actual.
+     * Las paradas de los vehículos despachados quedan fijas; solo se resuelven los cambios.
+     * 
+     * POST /api/route-plans/{id}/reoptimize
+     */
+    @PostMapping("/{id}/reoptimize")
+    public ResponseEntity<OptimizeRouteResponse> reoptimizeRoutePlan(
+            @PathVariable Long id,
+            @RequestBody(required = false) ReoptimizeRouteRequest request) {
+
+        log.info("POST /api/route-plans/{}/reoptimize - Despachados: {}", id,
+                request != null ? request.getDispatchedVehicleIds() : null);
+
+        OptimizeRouteResponse response = optimizationService
+            .reoptimizeRoutePlan(id, request != null ? request : new ReoptimizeRouteRequest());
+
+        return ResponseEntity.ok(response);
+    }
+
+    /**
+     * Repara localmente un plan ante un vehículo fuera de servicio o pedidos cancelados,
+     * re-optimizando solo las rutas afectadas y las de los vehículos cercanos.
+     * 
+     * POST /api/route-plans/{id}/repair
+     */
+    @PostMapping("/{id}/repair")
+    public ResponseEntity<RoutePlanDTO> repairRoutePlan(
+            @PathVariable Long id,
+            @Valid @RequestBody RouteRepairRequest request) {
+
+        log.info("POST /api/route-plans/{}/repair - Vehículo removido: {}, Cancelados: {}",
+                id, request.getRemovedVehicleId(), request.getCancelledOrderIds());
+
+        routeRepairService.repair(id, request);
+
+        return ResponseEntity.ok(loadDetail(id));
+    }
+
+    /**
+     * Inserta un pedido urgente en la posición más barata de un plan ya optimizado,
+     * sin correr el solver.
+     * 
+     * POST /api/route-plans/{id}/urgent-orders/{orderId}
+     */
+    @PostMapping("/{id}/urgent-orders/{orderId}")
+    public ResponseEntity<UrgentInsertionResponse> insertUrgentOrder(@PathVariable Long id, @PathVariable Long orderId) {
+        log.info("POST /api/route-plans/{}/urgent-orders/{}", id, orderId);
+        return ResponseEntity.ok(urgentInsertionService.insertUrgentOrder(id, orderId));
+    }
+
+    /**
+     * Agrega un pedido a la optimización en curso del plan, sin reiniciarla.
+     * 
+     * POST /api/route-plans/{id}/live/orders/{orderId}
+     */
+    @PostMapping("/{id}/live/orders/{orderId}")
+    public ResponseEntity<Void> addOrderToLiveSolve(@PathVariable Long id, @PathVariable Long orderId) {
+        log.info("POST /api/route-plans/{}/live/orders/{}", id, orderId);
+        liveSolveService.addOrder(id, orderId);
+        return ResponseEntity.accepted().build();
+    }
+
+    /**
+     * Quita un pedido de la optimización en curso del plan.
+     * 
+     * DELETE /api/route-plans/{id}/live/orders/{orderId}
+     */
+    @DeleteMapping("/{id}/live/orders/{orderId}")
+    public ResponseEntity<Void> removeOrderFromLiveSolve(@PathVariable Long id, @PathVariable Long orderId) {
+        log.info("DELETE /api/route-plans/{}/live/orders/{}", id, orderId);
+        liveSolveService.removeOrder(id, orderId);
+        return ResponseEntity.accepted().build();
+    }
+
+    /**
+     * Saca un vehículo de servicio en la optimización en curso del plan.
+     * 
+     * DELETE /api/route-plans/{id}/live/vehicles/{vehicleId}
+     */
+    @DeleteMapping("/{id}/live/vehicles/{vehicleId}")
+    public ResponseEntity<Void> removeVehicleFromLiveSolve(@PathVariable Long id, @PathVariable Long vehicleId) {
+        log.info("DELETE /api/route-plans/{}/live/vehicles/{}", id, vehicleId);
+        liveSolveService.removeVehicle(id, vehicleId);
+        return ResponseEntity.accepted().build();
+    }
+
     /**
      * Obtiene un plan de rutas con todas sus paradas.
      * 
@@ -66,27 +169,31 @@ public class RoutePlanController {
     public ResponseEntity<RoutePlanDTO> getRoutePlanById(@PathVariable Long id) {
         log.info("GET /api/route-plans/{}", id);
         
-        RoutePlan routePlan = routePlanRepository.findByIdWithStops(id)
-                .orElseThrow(() -> new ResourceNotFoundException("Plan de rutas no encontrado: " + id));
-        
-        RoutePlanDTO dto = toDTO(routePlan);
-        
-        return ResponseEntity.ok(dto);
+        return ResponseEntity.ok(loadDetail(id));
     }
 
     /**
-     * Lista planes de rutas con filtros opcionales.
+     * Lista planes de rutas con filtros opcionales, paginados por keyset (más nuevos primero).
+     * La página siguiente se pide con el cursor devuelto en el header X-Next-Cursor.
      * 
-     * GET /api/route-plans?fecha=2025-06-15&estado=OPTIMIZED
+     * GET /api/route-plans?fecha=2025-06-15&estado=OPTIMIZED&limit=50&cursor=...
      */
     @GetMapping
     public ResponseEntity<List<RoutePlanDTO>> listRoutePlans(
             @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate fecha,
-            @RequestParam(required = false) RoutePlan.Estado estado) {
+            @RequestParam(required = false) RoutePlan.Estado estado,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit) {
 
         log.info("GET /api/route-plans - Fecha: {}, Estado: {}", fecha, estado);
 
-        List<RoutePlan> plans;
+        int pageSize = pageLimits.resolve(limit);
+        KeysetCursor after = KeysetCursor.decode(cursor);
+        long beforeId = after != null ? after.id() : Long.MAX_VALUE;
+        // Una fila de más para saber si hay página siguiente
+        Limit pageLimit = Limit.of(pageSize + 1);
+
+        List<RoutePlanSummary> plans;
 
         if (fecha != null) {
             ZoneId zone = ZoneId.systemDefault();
@@ -94,21 +201,28 @@ public class RoutePlanController {
             Instant startNextDay = fecha.plusDays(1).atStartOfDay(zone).toInstant();
 
             if (estado != null) {
-                plans = routePlanRepository.findByFechaBetweenAndEstado(startOfDay, startNextDay, estado);
+                plans = routePlanRepository.findPageByFechaBetweenAndEstadoBeforeId(
+                    startOfDay, startNextDay, estado, beforeId, pageLimit);
             } else {
-                plans = routePlanRepository.findByFechaBetween(startOfDay, startNextDay);
+                plans = routePlanRepository.findPageByFechaBetweenBeforeId(startOfDay, startNextDay, beforeId, pageLimit);
             }
         } else if (estado != null) {
-            plans = routePlanRepository.findByEstado(estado);
+            plans = routePlanRepository.findPageByEstadoBeforeId(estado, beforeId, pageLimit);
         } else {
-            plans = routePlanRepository.findAll();
+            plans = routePlanRepository.findPageBeforeId(beforeId, pageLimit);
+        }
+
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (plans.size() > pageSize) {
+            plans = plans.subList(0, pageSize);
+            response.header(KeysetCursor.NEXT_CURSOR_HEADER, KeysetCursor.ofId(plans.get(pageSize - 1).id()).encode());
         }
 
         List<RoutePlanDTO> dtos = plans.stream()
                 .map(this::toDTO)
                 .collect(Collectors.toList());
 
-        return ResponseEntity.ok(dtos);
+        return response.body(dtos);
     }
 
     /**
@@ -120,67 +234,71 @@ public class RoutePlanController {
     public ResponseEntity<Void> deleteRoutePlan(@PathVariable Long id) {
         log.info("DELETE /api/route-plans/{}", id);
         
-        RoutePlan routePlan = routePlanRepository.findById(id)
-                .orElseThrow(() -> new ResourceNotFoundException("Plan de rutas no encontrado: " + id));
-        
-        // En lugar de eliminar, cambiar estado
-        routePlan.setEstado(RoutePlan.Estado.FAILED); // Reutilizamos FAILED como cancelado
-        routePlanRepository.save(routePlan);
-        
+        // En lugar de eliminar, cambiar estado (y liberar sus pedidos)
+        optimizationService.cancelRoutePlan(id);
+
         return ResponseEntity.noContent().build();
     }
 
     /**
-     * Convierte RoutePlan a DTO.
+     * Detalle de un plan con sus paradas en dos consultas fijas: el resumen del plan y las
+     * paradas con pedido, cliente y vehículo, sin importar la cantidad de paradas.
      */
-    private RoutePlanDTO toDTO(RoutePlan plan) {
+    private RoutePlanDTO loadDetail(Long id) {
+        RoutePlanSummary routePlan = routePlanRepository.findSummaryById(id)
+                .orElseThrow(() -> new ResourceNotFoundException("Plan de rutas no encontrado: " + id));
+
+        RoutePlanDTO dto = toDTO(routePlan);
+        dto.setStops(routeStopRepository.findDetailsByRoutePlanId(id).stream()
+                .map(this::toStopDTO)
+                .collect(Collectors.toList()));
+        return dto;
+    }
+
+    /**
+     * Convierte el resumen de un plan a DTO (sin paradas).
+     */
+    private RoutePlanDTO toDTO(RoutePlanSummary plan) {
         RoutePlanDTO dto = new RoutePlanDTO();
-        dto.setId(plan.getId());
-        dto.setFecha(plan.getFecha());
-        dto.setObjetivo(plan.getObjetivo());
-        dto.setEstado(plan.getEstado());
-        dto.setScore(plan.getScore());
-        dto.setTotalKm(plan.getKmsTotales().doubleValue());
-        dto.setTotalTimeMin(plan.getTiempoEstimadoMin());
-        dto.setTotalCost(plan.getCostoTotal().doubleValue());
-        dto.setVehiculosUtilizados(plan.getVehiculosUtilizados());
-        dto.setPedidosAsignados(plan.getPedidosAsignados());
-        dto.setMaxOptimizationTimeSeconds(plan.getMaxOptimizationTimeSeconds());
-        dto.setCreatedAt(plan.getCreatedAt());
-        dto.setUpdatedAt(plan.getUpdatedAt());
-        
-        if (plan.getStops() != null) {
-            List<RouteStopDTO> stops = plan.getStops().stream()
-                    .map(this::toStopDTO)
-                    .collect(Collectors.toList());
-            dto.setStops(stops);
-        }
-        
+        dto.setId(plan.id());
+        dto.setFecha(plan.fecha());
+        dto.setObjetivo(plan.objetivo());
+        dto.setEstado(plan.estado());
+        dto.setScore(plan.score());
+        dto.setTotalKm(plan.kmsTotales() != null ? plan.kmsTotales().doubleValue() : null);
+        dto.setTotalTimeMin(plan.tiempoEstimadoMin());
+        dto.setTotalCost(plan.costoTotal() != null ? plan.costoTotal().doubleValue() : null);
+        dto.setVehiculosUtilizados(plan.vehiculosUtilizados());
+        dto.setPedidosAsignados(plan.pedidosAsignados());
+        dto.setPedidosNoAsignados(plan.pedidosNoAsignados());
+        dto.setMaxOptimizationTimeSeconds(plan.maxOptimizationTimeSeconds());
+        dto.setCreatedAt(plan.createdAt());
+        dto.setUpdatedAt(plan.updatedAt());
         return dto;
     }
 
     /**
-     * Convierte RouteStop a DTO.
+     * Convierte una parada (proyección con pedido, cliente y vehículo) a DTO.
      */
-    private RouteStopDTO toStopDTO(RouteStop stop) {
+    private RouteStopDTO toStopDTO(RouteStopDetail stop) {
         RouteStopDTO dto = new RouteStopDTO();
-        dto.setId(stop.getId());
-        dto.setOrderId(stop.getOrder().getId());
-        dto.setVehicleId(stop.getVehicle().getId());
-        dto.setVehiclePatente(stop.getVehicle().getPatente());
-        dto.setCustomerName(stop.getOrder().getCustomer().getNombre());
-        dto.setCustomerAddress(stop.getOrder().getCustomer().getDireccion());
-        dto.setLatitud(stop.getOrder().getCustomer().getLatitud().doubleValue());
-        dto.setLongitud(stop.getOrder().getCustomer().getLongitud().doubleValue());
-        dto.setSecuencia(stop.getSecuencia());
-        dto.setEta(stop.getEta());
-        dto.setEtd(stop.getEtd());
-        dto.setCargaAcumuladaCantidad(stop.getCargaAcumuladaCantidad().doubleValue());
-        dto.setCargaAcumuladaVolumen(stop.getCargaAcumuladaVolumen().doubleValue());
-        dto.setCargaAcumuladaPeso(stop.getCargaAcumuladaPeso().doubleValue());
-        dto.setCantidad(stop.getOrder().getCantidad().doubleValue());
-        dto.setVolumen(stop.getOrder().getVolumen().doubleValue());
-        dto.setPeso(stop.getOrder().getPeso().doubleValue());
+        dto.setId(stop.id());
+        dto.setOrderId(stop.orderId());
+        dto.setVehicleId(stop.vehicleId());
+        dto.setVehiclePatente(stop.vehiclePatente());
+        dto.setCustomerName(stop.customerName());
+        dto.setCustomerAddress(stop.customerAddress());
+        dto.setLatitud(stop.latitud().doubleValue());
+        dto.setLongitud(stop.longitud().doubleValue());
+        dto.setSecuencia(stop.secuencia());
+        dto.setEta(stop.eta());
+        dto.setEtd(stop.etd());
+        dto.setCargaAcumuladaCantidad(stop.cargaAcumuladaCantidad().doubleValue());
+        dto.setCargaAcumuladaVolumen(stop.cargaAcumuladaVolumen().doubleValue());
+        dto.setCargaAcumuladaPeso(stop.cargaAcumuladaPeso().doubleValue());
+        dto.setCantidad(stop.cantidad().doubleValue());
+        dto.setVolumen(stop.volumen().doubleValue());
+        dto.setPeso(stop.peso().doubleValue());
         return dto;
     }
 
@@ -198,6 +316,7 @@ public class RoutePlanController {
         private Double totalCost;
         private Integer vehiculosUtilizados;
         private Integer pedidosAsignados;
+        private Integer pedidosNoAsignados;
         private Integer maxOptimizationTimeSeconds;
         private Instant createdAt;
         private Instant updatedAt;
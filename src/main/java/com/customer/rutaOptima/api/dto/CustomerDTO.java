@@ -8,6 +8,7 @@ import jakarta.validation.constraints.DecimalMin;
 import jakarta.validation.constraints.Email;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -24,6 +25,9 @@ public class CustomerDTO {
 
     private Long id;
 
+    @Size(max = 100, message = "El código externo no puede superar 100 caracteres")
+    private String codigoExterno;
+
     @NotBlank(message = "El nombre es obligatorio")
     private String nombre;
 
@@ -0,0 +1,25 @@
+package com.customer.rutaOptima.api.dto;
+
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * DTO de respuesta de la importación masiva de clientes (upsert por código externo)
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class CustomerImportResponse {
+    private Integer total;
+    private Integer insertados;
+    private Integer actualizados;
+    private Integer sinCambios;
+    private Integer rechazados;
+    private List<ImportRowError> errores;
+    private Long elapsedMs;
+}
@@ -0,0 +1,16 @@
+package com.customer.rutaOptima.api.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Fila rechazada de una importación masiva (fila 1 = primer elemento del lote)
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ImportRowError {
+    private Integer fila;
+    private String mensaje;
+}
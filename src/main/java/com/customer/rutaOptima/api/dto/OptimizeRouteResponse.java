@@ -23,6 +23,8 @@ public class OptimizeRouteResponse {
     private String score;
     private Integer tiempoOptimizacionSeg;
     private List<StopDTO> stops;
+    private List<Long> unassignedOrderIds;  // Pedidos sin vehículo cuando la demanda supera a la flota
+    private TimingsDTO timings;  // Duración de cada etapa del pipeline
 
     @Data
     @NoArgsConstructor
@@ -97,4 +99,16 @@ public class OptimizeRouteResponse {
         private Long vehicleId;
         private String vehiclePatente;
     }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @Builder
+    public static class TimingsDTO {
+        private Long loadMs;  // Snapshot de solo lectura y alta del plan
+        private Long solveMs;  // OptaPlanner
+        private Long extractMs;  // Secuencia por vehículo y distancias OSRM
+        private Long writeMs;  // Transacción final: stops y plan
+        private Long totalMs;
+    }
 }
@@ -29,12 +29,15 @@ public class OrderDTO {
 
     @NotNull(message = "La cantidad es obligatoria")
     @DecimalMin(value = "0.01", message = "La cantidad debe ser mayor que 0")
+    @Digits(integer = 8, fraction = 2, message = "La cantidad admite hasta 8 enteros y 2 decimales")
     private BigDecimal cantidad;
 
     @DecimalMin(value = "0.0")
+    @Digits(integer = 8, fraction = 2, message = "El volumen admite hasta 8 enteros y 2 decimales")
     private BigDecimal volumen;
 
     @DecimalMin(value = "0.0")
+    @Digits(integer = 8, fraction = 2, message = "El peso admite hasta 8 enteros y 2 decimales")
     private BigDecimal peso;
 
     @Builder.Default
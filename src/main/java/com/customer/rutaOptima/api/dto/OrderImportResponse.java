@@ -0,0 +1,24 @@
+package com.customer.rutaOptima.api.dto;
+
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * DTO de respuesta de la importación masiva de pedidos: las filas válidas se insertan
+ * y las rechazadas se informan con su número de fila (1 = primer pedido del lote).
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class OrderImportResponse {
+    private Integer total;
+    private Integer importados;
+    private Integer rechazados;
+    private List<ImportRowError> errores;
+    private Long elapsedMs;
+}
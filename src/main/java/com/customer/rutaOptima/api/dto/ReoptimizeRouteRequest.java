@@ -0,0 +1,27 @@
+package com.customer.rutaOptima.api.dto;
+
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * DTO para re-optimizar un plan de rutas existente partiendo de su asignación actual
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ReoptimizeRouteRequest {
+
+    // Vehículos que ya salieron: sus paradas quedan fijas y no reciben pedidos nuevos
+    private List<Long> dispatchedVehicleIds;
+
+    // Opcional: vehículos adicionales a los que ya tiene el plan
+    private List<Long> vehicleIds;
+
+    // Opcional: pedidos nuevos a incorporar. Si null/vacío, usa todos los pendientes de la fecha que no estén en el plan
+    private List<Long> orderIds;
+}
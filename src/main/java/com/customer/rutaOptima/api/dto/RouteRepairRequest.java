@@ -0,0 +1,29 @@
+package com.customer.rutaOptima.api.dto;
+
+import java.util.List;
+
+import jakarta.validation.constraints.DecimalMin;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * DTO para reparar localmente un plan ante una disrupción
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class RouteRepairRequest {
+
+    // Vehículo que sale de servicio (por ejemplo, por avería); sus paradas se reubican
+    private Long removedVehicleId;
+
+    // Pedidos cancelados que se quitan del plan
+    private List<Long> cancelledOrderIds;
+
+    // Radio alrededor de las paradas afectadas para incluir vehículos vecinos. Si null, usa el configurado
+    @DecimalMin(value = "0.0", message = "El radio no puede ser negativo")
+    private Double radiusKm;
+}
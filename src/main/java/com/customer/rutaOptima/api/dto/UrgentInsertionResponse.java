@@ -0,0 +1,29 @@
+package com.customer.rutaOptima.api.dto;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * DTO de respuesta de la inserción de un pedido urgente en un plan existente
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class UrgentInsertionResponse {
+    private Long routePlanId;
+    private Long orderId;
+    private Long vehicleId;
+    private String vehiclePatente;
+    private Integer secuencia;
+    private Instant eta;
+    private Instant etd;
+    private BigDecimal deltaKm;
+    private Integer deltaTimeMin;
+    private Long elapsedMs;
+}
@@ -0,0 +1,46 @@
+package com.customer.rutaOptima.api.pagination;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+import com.customer.rutaOptima.config.exception.BusinessException;
+
+/**
+ * Posición de una página en la paginación por keyset: la última fila devuelta, identificada
+ * por (fecha, id) o solo por id. Viaja al cliente como texto opaco en el header X-Next-Cursor
+ * y vuelve en el parámetro cursor de la página siguiente.
+ */
+public record KeysetCursor(Instant fecha, long id) {
+
+    public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
+    private static final String SEPARATOR = "|";
+
+    public static KeysetCursor ofId(long id) {
+        return new KeysetCursor(null, id);
+    }
+
+    public String encode() {
+        String raw = (fecha != null ? fecha.toString() : "") + SEPARATOR + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Decodifica el cursor recibido; null o vacío es la primera página.
+     */
+    public static KeysetCursor decode(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return null;
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = raw.indexOf(SEPARATOR);
+            String fecha = raw.substring(0, separator);
+            return new KeysetCursor(fecha.isEmpty() ? null : Instant.parse(fecha), Long.parseLong(raw.substring(separator + 1)));
+        } catch (IllegalArgumentException | IndexOutOfBoundsException | DateTimeParseException e) {
+            throw new BusinessException("Cursor de paginación inválido");
+        }
+    }
+}
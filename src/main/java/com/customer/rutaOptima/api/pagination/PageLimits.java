@@ -0,0 +1,24 @@
+package com.customer.rutaOptima.api.pagination;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Tamaño de página de los listados: el pedido por el cliente (limit), acotado por app.pagination.
+ */
+@Component
+public class PageLimits {
+
+    @Value("${app.pagination.default-page-size:100}")
+    private int defaultPageSize;
+
+    @Value("${app.pagination.max-page-size:500}")
+    private int maxPageSize;
+
+    public int resolve(Integer requested) {
+        if (requested == null || requested <= 0) {
+            return Math.min(defaultPageSize, maxPageSize);
+        }
+        return Math.min(requested, maxPageSize);
+    }
+}
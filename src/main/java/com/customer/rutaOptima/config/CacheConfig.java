@@ -0,0 +1,24 @@
+package com.customer.rutaOptima.config;
+
+import org.hibernate.cache.jcache.ConfigSettings;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Cache de segundo nivel de Hibernate sobre el mismo CacheManager JCache que Spring Cache
+ * (configurado en ehcache.xml), así todas las regiones quedan acotadas y con estadísticas.
+ * Vehicle y Customer se cachean como entidades (READ_WRITE); las consultas de datos de
+ * referencia usan las regiones de consultas de abajo (ver VehicleRepository y CustomerRepository).
+ */
+@Configuration
+public class CacheConfig {
+
+    public static final String VEHICLE_QUERIES = "vehicle-queries";
+    public static final String CUSTOMER_QUERIES = "customer-queries";
+
+    @Bean
+    public HibernatePropertiesCustomizer secondLevelCacheManagerCustomizer(javax.cache.CacheManager cacheManager) {
+        return properties -> properties.put(ConfigSettings.CACHE_MANAGER, cacheManager);
+    }
+}
@@ -1,48 +1,291 @@
 package com.customer.rutaOptima.config;
 
 import java.time.Duration;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
 
 import org.optaplanner.core.api.solver.SolverFactory;
 import org.optaplanner.core.api.solver.SolverManager;
+import org.optaplanner.core.config.solver.SolverManagerConfig;
 import org.optaplanner.core.config.constructionheuristic.ConstructionHeuristicPhaseConfig;
 import org.optaplanner.core.config.constructionheuristic.ConstructionHeuristicType;
+import org.optaplanner.core.config.exhaustivesearch.ExhaustiveSearchPhaseConfig;
+import org.optaplanner.core.config.exhaustivesearch.ExhaustiveSearchType;
+import org.optaplanner.core.config.heuristic.selector.common.nearby.NearbySelectionConfig;
+import org.optaplanner.core.config.heuristic.selector.entity.EntitySelectorConfig;
+import org.optaplanner.core.config.heuristic.selector.move.MoveSelectorConfig;
+import org.optaplanner.core.config.heuristic.selector.move.composite.UnionMoveSelectorConfig;
+import org.optaplanner.core.config.heuristic.selector.move.factory.MoveIteratorFactoryConfig;
+import org.optaplanner.core.config.heuristic.selector.move.generic.ChangeMoveSelectorConfig;
+import org.optaplanner.core.config.heuristic.selector.move.generic.SwapMoveSelectorConfig;
+import org.optaplanner.core.config.heuristic.selector.value.ValueSelectorConfig;
 import org.optaplanner.core.config.localsearch.LocalSearchPhaseConfig;
+import org.optaplanner.core.config.localsearch.decider.acceptor.LocalSearchAcceptorConfig;
+import org.optaplanner.core.config.localsearch.decider.forager.LocalSearchForagerConfig;
+import org.optaplanner.core.config.partitionedsearch.PartitionedSearchPhaseConfig;
+import org.optaplanner.core.config.phase.custom.CustomPhaseConfig;
+import org.optaplanner.core.config.score.director.ScoreDirectorFactoryConfig;
+import org.optaplanner.core.config.solver.EnvironmentMode;
 import org.optaplanner.core.config.solver.SolverConfig;
 import org.optaplanner.core.config.solver.termination.TerminationConfig;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
 import com.customer.rutaOptima.optimization.domain.VehicleRoutingSolution;
+import com.customer.rutaOptima.optimization.solver.ClarkeWrightSavingsPhaseCommand;
+import com.customer.rutaOptima.optimization.solver.GeographicSolutionPartitioner;
+import com.customer.rutaOptima.optimization.solver.RuinAndRecreateMoveIteratorFactory;
 import com.customer.rutaOptima.optimization.solver.VehicleRoutingConstraintProvider;
+import com.customer.rutaOptima.optimization.solver.VehicleRoutingIncrementalScoreCalculator;
+import com.customer.rutaOptima.optimization.solver.VisitNearbyDistanceMeter;
+import com.customer.rutaOptima.optimization.solver.VisitVehicleNearbyDistanceMeter;
+
+import lombok.extern.slf4j.Slf4j;
 
 /**
  * Configuración de OptaPlanner para optimización de rutas.
  * Integra OSRM para distancias reales a través de shadow variables.
  */
 @Configuration
+@Slf4j
 public class OptaPlannerConfig {
 
+    /**
+     * Motores de cálculo de score disponibles
+     */
+    public enum ScoreEngine {
+        CONSTRAINT_STREAMS,   // VehicleRoutingConstraintProvider
+        INCREMENTAL           // VehicleRoutingIncrementalScoreCalculator
+    }
+
+    /**
+     * Perfiles de solver según el tamaño del problema (ver SolverProfiles)
+     */
+    public enum SolverProfile {
+        SMALL,    // branch and bound
+        MEDIUM,   // Clarke-Wright + construction heuristic + late acceptance
+        LARGE     // partitioned search geográfico con nearby selection
+    }
+
+    private static final int LATE_ACCEPTANCE_SIZE = 400;
+
+    @Value("${app.optimization.score-engine:CONSTRAINT_STREAMS}")
+    private ScoreEngine scoreEngine;
+
+    // Si está activo, cada score se verifica contra el otro motor (FAST_ASSERT, solo para diagnóstico)
+    @Value("${app.optimization.assert-score:false}")
+    private boolean assertScore;
+
+    // Hilos de movimiento por solve: NONE, AUTO o un número fijo
+    @Value("${app.optimization.move-thread-count:NONE}")
+    private String moveThreadCount;
+
+    // Cantidad de solves que el SolverManager ejecuta en paralelo
+    @Value("${app.optimization.parallel-solver-count:1}")
+    private int parallelSolverCount;
+
+    // Movimientos ruin and recreate junto a los change/swap genéricos
+    @Value("${app.optimization.ruin-recreate.enabled:true}")
+    private boolean ruinRecreateEnabled;
+
+    @Value("${app.optimization.ruin-recreate.min-size:3}")
+    private int ruinRecreateMinSize;
+
+    @Value("${app.optimization.ruin-recreate.max-size:15}")
+    private int ruinRecreateMaxSize;
+
+    // Peso relativo frente a change/swap (cada uno pesa 1.0)
+    @Value("${app.optimization.ruin-recreate.probability-weight:0.2}")
+    private double ruinRecreateWeight;
+
+    // Umbrales de los perfiles de solver
+    @Value("${app.optimization.profiles.small.max-visits:8}")
+    private int smallMaxVisits;
+
+    @Value("${app.optimization.profiles.small.max-vehicles:3}")
+    private int smallMaxVehicles;
+
+    @Value("${app.optimization.profiles.large.min-visits:1000}")
+    private int largeMinVisits;
+
+    // Con visitas en varias zonas, LARGE desde este promedio de visitas por zona
+    @Value("${app.optimization.profiles.large.min-visits-per-zone:300}")
+    private int largeMinVisitsPerZone;
+
+    // Visitas por partición del perfil LARGE (la cantidad de particiones también se limita por núcleos y vehículos)
+    @Value("${app.optimization.profiles.large.max-part-size:300}")
+    private int maxPartSize;
+
+    // Local search global al final del perfil LARGE
+    @Value("${app.optimization.profiles.large.polish-seconds:5}")
+    private long polishSeconds;
+
+    // Candidatos más cercanos considerados por la nearby selection (perfil LARGE)
+    @Value("${app.optimization.profiles.large.nearby-size:40}")
+    private int nearbySize;
+
+    // Corta el solve si el mejor score no mejora en este tiempo (el local search no tiene otro corte antes del límite total)
+    @Value("${app.optimization.unimproved-seconds-limit:10}")
+    private long unimprovedSecondsLimit;
+
     @Bean
     public SolverConfig solverConfig() {
-        // Fase 1: Construction Heuristic
-        // ALLOCATE_ENTITY_FROM_QUEUE inicializa todas las variables de planificación
-        ConstructionHeuristicPhaseConfig constructionHeuristicConfig = new ConstructionHeuristicPhaseConfig()
-            .withConstructionHeuristicType(ConstructionHeuristicType.ALLOCATE_ENTITY_FROM_QUEUE);
-        
-        // Fase 2: Local Search (mejorar la solución inicial)
-        LocalSearchPhaseConfig localSearchConfig = new LocalSearchPhaseConfig()
-            .withTerminationConfig(new TerminationConfig()
-                .withSecondsSpentLimit(25L)); // 25 segundos para Local Search
-        
+        // Perfil MEDIUM: Clarke-Wright -> Construction Heuristic -> Local Search (late acceptance)
         return new SolverConfig()
             .withSolutionClass(VehicleRoutingSolution.class)
             .withEntityClasses(com.customer.rutaOptima.optimization.domain.Visit.class)
-            .withConstraintProviderClass(VehicleRoutingConstraintProvider.class)
-            .withPhases(constructionHeuristicConfig, localSearchConfig)
+            .withScoreDirectorFactory(scoreDirectorFactoryConfig())
+            .withPhases(savingsPhase(), constructionHeuristicPhase(), localSearchPhase(false))
+            // Sin límite de score: 0hard/0medium/*soft cortaría el solve apenas Clarke-Wright o la construction
+            // heuristic dan un plan factible, y el local search no correría nunca. Un día chico converge
+            // rápido y termina por el límite sin mejora
             .withTerminationConfig(new TerminationConfig()
                 .withSpentLimit(Duration.ofSeconds(30)) // 30 segundos máximo total
-                .withBestScoreLimit("0hard/*soft")) // para si encuentra solución perfecta
-            .withEnvironmentMode(org.optaplanner.core.config.solver.EnvironmentMode.REPRODUCIBLE);
+                .withUnimprovedSpentLimit(Duration.ofSeconds(unimprovedSecondsLimit)))
+            .withEnvironmentMode(assertScore ? EnvironmentMode.FAST_ASSERT : EnvironmentMode.REPRODUCIBLE)
+            .withMoveThreadCount(resolveMoveThreadCount());
+    }
+
+    /**
+     * Perfil SMALL: branch and bound sobre todas las asignaciones posibles. Encuentra el óptimo
+     * del modelo en problemas chicos; solo se corta por tiempo (el límite de score pararía en la
+     * primera solución factible).
+     */
+    private SolverConfig smallSolverConfig(SolverConfig base) {
+        return base.copyConfig()
+            .withMoveThreadCount(SolverConfig.MOVE_THREAD_COUNT_NONE)
+            .withPhases(new ExhaustiveSearchPhaseConfig()
+                .withExhaustiveSearchType(ExhaustiveSearchType.BRANCH_AND_BOUND))
+            .withTerminationConfig(new TerminationConfig()
+                .withSpentLimit(Duration.ofSeconds(30)));
+    }
+
+    /**
+     * Perfil LARGE: partitioned search geográfico (zona y barrido angular); cada partición corre
+     * en su propio hilo las mismas fases que MEDIUM, con nearby selection en el local search.
+     * Después, un local search corto sobre la solución completa pule los bordes entre particiones.
+     * Las particiones usan a lo sumo los núcleos de un lugar de solve (núcleos / parallelSolverCount),
+     * que también acota la cantidad de particiones (GeographicSolutionPartitioner).
+     * Sin límite de score: cada partición y el solve terminarían al ser factibles, sin local search ni pulido.
+     */
+    private SolverConfig largeSolverConfig(SolverConfig base) {
+        PartitionedSearchPhaseConfig partitionedSearch = new PartitionedSearchPhaseConfig()
+            .withSolutionPartitionerClass(GeographicSolutionPartitioner.class)
+            .withSolutionPartitionerCustomProperties(Map.of("maxPartSize", String.valueOf(maxPartSize)))
+            .withRunnablePartThreadLimit(String.valueOf(coresPerSolve()))
+            .withPhaseConfigs(savingsPhase(), constructionHeuristicPhase(), localSearchPhase(true))
+            .withTerminationConfig(new TerminationConfig()
+                .withSecondsSpentLimit(30L - polishSeconds));
+        LocalSearchPhaseConfig polish = localSearchPhase(true)
+            .withTerminationConfig(new TerminationConfig()
+                .withSecondsSpentLimit(polishSeconds));
+        return base.copyConfig()
+            .withMoveThreadCount(SolverConfig.MOVE_THREAD_COUNT_NONE) // el paralelismo lo dan las particiones
+            .withPhases(partitionedSearch, polish)
+            .withTerminationConfig(new TerminationConfig()
+                .withSpentLimit(Duration.ofSeconds(30)));
+    }
+
+    // Fase 0: Clarke-Wright (ahorros) como solución inicial agrupada geográficamente
+    private CustomPhaseConfig savingsPhase() {
+        return new CustomPhaseConfig()
+            .withCustomPhaseCommandClassList(List.of(ClarkeWrightSavingsPhaseCommand.class));
+    }
+
+    // Fase 1: Construction Heuristic
+    // Inicializa las visitas que Clarke-Wright no pudo ubicar: first fit decreasing sobre las
+    // visitas (VisitDifficultyWeightFactory), probando primero los vehículos con más capacidad
+    // restante (VehicleStrengthWeightFactory)
+    private ConstructionHeuristicPhaseConfig constructionHeuristicPhase() {
+        return new ConstructionHeuristicPhaseConfig()
+            .withConstructionHeuristicType(ConstructionHeuristicType.STRONGEST_FIT_DECREASING);
+    }
+
+    // Fase 2: Local Search (mejorar la solución inicial)
+    private LocalSearchPhaseConfig localSearchPhase(boolean nearby) {
+        return new LocalSearchPhaseConfig()
+            .withMoveSelectorConfig(localSearchMoveSelector(nearby))
+            .withAcceptorConfig(new LocalSearchAcceptorConfig().withLateAcceptanceSize(LATE_ACCEPTANCE_SIZE))
+            .withForagerConfig(new LocalSearchForagerConfig().withAcceptedCountLimit(1))
+            .withTerminationConfig(new TerminationConfig()
+                .withSecondsSpentLimit(25L)); // 25 segundos para Local Search
+    }
+
+    /**
+     * Change y swap sobre Visit.vehicle, más ruin and recreate si está habilitado.
+     * Con nearby, los change prueban primero vehículos con depot cercano y los swap
+     * intercambian visitas cercanas entre sí.
+     */
+    private MoveSelectorConfig<?> localSearchMoveSelector(boolean nearby) {
+        ChangeMoveSelectorConfig change = new ChangeMoveSelectorConfig().withFixedProbabilityWeight(1.0);
+        SwapMoveSelectorConfig swap = new SwapMoveSelectorConfig().withFixedProbabilityWeight(1.0);
+        if (nearby) {
+            change.withEntitySelectorConfig(new EntitySelectorConfig().withId("changeOrigin"))
+                .withValueSelectorConfig(new ValueSelectorConfig()
+                    .withNearbySelectionConfig(new NearbySelectionConfig()
+                        .withOriginEntitySelectorConfig(EntitySelectorConfig.newMimicSelectorConfig("changeOrigin"))
+                        .withNearbyDistanceMeterClass(VisitVehicleNearbyDistanceMeter.class)
+                        .withParabolicDistributionSizeMaximum(nearbySize)));
+            swap.withEntitySelectorConfig(new EntitySelectorConfig().withId("swapOrigin"))
+                .withSecondaryEntitySelectorConfig(new EntitySelectorConfig()
+                    .withNearbySelectionConfig(new NearbySelectionConfig()
+                        .withOriginEntitySelectorConfig(EntitySelectorConfig.newMimicSelectorConfig("swapOrigin"))
+                        .withNearbyDistanceMeterClass(VisitNearbyDistanceMeter.class)
+                        .withParabolicDistributionSizeMaximum(nearbySize)));
+        }
+        if (!ruinRecreateEnabled) {
+            return new UnionMoveSelectorConfig().withMoveSelectorList(List.of(change, swap));
+        }
+        MoveIteratorFactoryConfig ruinRecreate = new MoveIteratorFactoryConfig()
+            .withMoveIteratorFactoryClass(RuinAndRecreateMoveIteratorFactory.class)
+            .withMoveIteratorFactoryCustomProperties(Map.of(
+                "minRuinSize", String.valueOf(ruinRecreateMinSize),
+                "maxRuinSize", String.valueOf(ruinRecreateMaxSize)))
+            .withFixedProbabilityWeight(ruinRecreateWeight);
+        return new UnionMoveSelectorConfig().withMoveSelectorList(List.of(change, swap, ruinRecreate));
+    }
+
+    /**
+     * Resuelve AUTO repartiendo los núcleos entre los solves concurrentes del SolverManager,
+     * para que (solves en paralelo x hilos por solve) no supere los núcleos disponibles.
+     * Cada solve reserva un núcleo para su hilo principal; con menos de 2 hilos de movimiento
+     * el overhead de coordinación no compensa y se usa NONE.
+     */
+    String resolveMoveThreadCount() {
+        if (!"AUTO".equalsIgnoreCase(moveThreadCount)) {
+            return moveThreadCount;
+        }
+        int moveThreads = coresPerSolve() - 1;
+        String resolved = moveThreads >= 2 ? String.valueOf(moveThreads) : SolverConfig.MOVE_THREAD_COUNT_NONE;
+        log.info("moveThreadCount AUTO -> {} ({} núcleos, {} solves en paralelo)",
+            resolved, Runtime.getRuntime().availableProcessors(), parallelSolverCount);
+        return resolved;
+    }
+
+    /**
+     * Núcleos que le tocan a cada uno de los parallelSolverCount solves concurrentes (al menos uno).
+     */
+    private int coresPerSolve() {
+        return Math.max(1, Runtime.getRuntime().availableProcessors() / Math.max(1, parallelSolverCount));
+    }
+
+    /**
+     * Configura el motor de score seleccionado y, en modo assert, el otro motor como referencia.
+     */
+    private ScoreDirectorFactoryConfig scoreDirectorFactoryConfig() {
+        ScoreDirectorFactoryConfig constraintStreams = new ScoreDirectorFactoryConfig()
+            .withConstraintProviderClass(VehicleRoutingConstraintProvider.class);
+        ScoreDirectorFactoryConfig incremental = new ScoreDirectorFactoryConfig()
+            .withIncrementalScoreCalculatorClass(VehicleRoutingIncrementalScoreCalculator.class);
+
+        ScoreDirectorFactoryConfig selected = scoreEngine == ScoreEngine.INCREMENTAL ? incremental : constraintStreams;
+        if (assertScore) {
+            selected.setAssertionScoreDirectorFactory(
+                scoreEngine == ScoreEngine.INCREMENTAL ? constraintStreams : incremental);
+        }
+        return selected;
     }
 
     @Bean
@@ -53,6 +296,29 @@ public class OptaPlannerConfig {
     @Bean
     public SolverManager<VehicleRoutingSolution, Long> solverManager(
             SolverFactory<VehicleRoutingSolution> solverFactory) {
-        return SolverManager.create(solverFactory);
+        return SolverManager.create(solverFactory, solverManagerConfig());
+    }
+
+    /**
+     * Un SolverManager por perfil; MEDIUM es el SolverManager principal. Los solves de todos
+     * los perfiles comparten el límite de parallelSolverCount (ver SolverProfiles), y
+     * SolverProfiles cierra SMALL y LARGE al cerrar el contexto.
+     */
+    @Bean(destroyMethod = "close")
+    public SolverProfiles solverProfiles(SolverConfig solverConfig,
+                                         SolverManager<VehicleRoutingSolution, Long> solverManager) {
+        Map<SolverProfile, SolverManager<VehicleRoutingSolution, Long>> solverManagers = new EnumMap<>(SolverProfile.class);
+        solverManagers.put(SolverProfile.SMALL,
+            SolverManager.create(SolverFactory.create(smallSolverConfig(solverConfig)), solverManagerConfig()));
+        solverManagers.put(SolverProfile.MEDIUM, solverManager);
+        solverManagers.put(SolverProfile.LARGE,
+            SolverManager.create(SolverFactory.create(largeSolverConfig(solverConfig)), solverManagerConfig()));
+        return new SolverProfiles(solverManagers, SolverProfile.MEDIUM, parallelSolverCount,
+            smallMaxVisits, smallMaxVehicles, largeMinVisits, largeMinVisitsPerZone);
+    }
+
+    private SolverManagerConfig solverManagerConfig() {
+        return new SolverManagerConfig()
+            .withParallelSolverCount(String.valueOf(parallelSolverCount));
     }
 }
@@ -0,0 +1,125 @@
+package com.customer.rutaOptima.config;
+
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Semaphore;
+
+import org.optaplanner.core.api.solver.SolverManager;
+import org.optaplanner.core.api.solver.SolverStatus;
+
+import com.customer.rutaOptima.config.OptaPlannerConfig.SolverProfile;
+import com.customer.rutaOptima.optimization.domain.VehicleRoutingSolution;
+import com.customer.rutaOptima.optimization.domain.Visit;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * SolverManager de cada perfil de solver y la regla para elegir uno según el tamaño del problema.
+ * Los umbrales se configuran en app.optimization.profiles (ver OptaPlannerConfig).
+ *
+ * Todos los perfiles (y el portfolio) comparten un único límite de parallel-solver-count solves
+ * en curso, el mismo con el que se reparten los núcleos entre hilos de movimiento y particiones,
+ * así tener varios SolverManager no multiplica los solves concurrentes. Al cerrar el contexto se
+ * cierran los SolverManager propios de los perfiles (MEDIUM es un bean aparte).
+ */
+@Slf4j
+public class SolverProfiles implements AutoCloseable {
+
+    private final Map<SolverProfile, SolverManager<VehicleRoutingSolution, Long>> solverManagers;
+    private final SolverManager<VehicleRoutingSolution, Long> sharedSolverManager;
+    private final Semaphore solveSlots;
+    private final int smallMaxVisits;
+    private final int smallMaxVehicles;
+    private final int largeMinVisits;
+    private final int largeMinVisitsPerZone;
+
+    public SolverProfiles(Map<SolverProfile, SolverManager<VehicleRoutingSolution, Long>> solverManagers,
+                          SolverProfile sharedProfile, int parallelSolverCount,
+                          int smallMaxVisits, int smallMaxVehicles, int largeMinVisits, int largeMinVisitsPerZone) {
+        this.solverManagers = solverManagers;
+        this.sharedSolverManager = solverManagers.get(sharedProfile);
+        this.solveSlots = new Semaphore(Math.max(1, parallelSolverCount), true);
+        this.smallMaxVisits = smallMaxVisits;
+        this.smallMaxVehicles = smallMaxVehicles;
+        this.largeMinVisits = largeMinVisits;
+        this.largeMinVisitsPerZone = largeMinVisitsPerZone;
+    }
+
+    /**
+     * SMALL: pocas visitas y vehículos (búsqueda exhaustiva).
+     * LARGE: muchas visitas, o visitas repartidas en varias zonas con al menos
+     * largeMinVisitsPerZone por zona en promedio (el partitioned search parte primero por zona,
+     * así cada zona ya es una partición de tamaño útil).
+     * MEDIUM: el resto.
+     */
+    public SolverProfile select(VehicleRoutingSolution problem) {
+        int visitCount = problem.getVisits().size();
+        int vehicleCount = problem.getVehicles().size();
+        Set<String> zones = new HashSet<>();
+        for (Visit visit : problem.getVisits()) {
+            if (visit.getLocation() != null && visit.getLocation().getZona() != null) {
+                zones.add(visit.getLocation().getZona().toUpperCase(Locale.ROOT));
+            }
+        }
+
+        SolverProfile profile;
+        if (visitCount <= smallMaxVisits && vehicleCount <= smallMaxVehicles) {
+            profile = SolverProfile.SMALL;
+        } else if (visitCount >= largeMinVisits
+                || (zones.size() > 1 && visitCount >= (long) zones.size() * largeMinVisitsPerZone)) {
+            profile = SolverProfile.LARGE;
+        } else {
+            profile = SolverProfile.MEDIUM;
+        }
+        log.info("Perfil de solver {} ({} visitas, {} vehículos, {} zonas)",
+            profile, visitCount, vehicleCount, zones.size());
+        return profile;
+    }
+
+    /**
+     * Resuelve el problema con el SolverManager del perfil, esperando un lugar de solve libre.
+     */
+    public VehicleRoutingSolution solve(SolverProfile profile, Long problemId, VehicleRoutingSolution problem)
+            throws InterruptedException, ExecutionException {
+        acquireSolveSlot();
+        try {
+            return solverManagers.get(profile).solve(problemId, problem).getFinalBestSolution();
+        } finally {
+            releaseSolveSlot();
+        }
+    }
+
+    /**
+     * Reserva uno de los parallel-solver-count lugares de solve (también lo usa el portfolio).
+     */
+    public void acquireSolveSlot() throws InterruptedException {
+        if (!solveSlots.tryAcquire()) {
+            log.info("Todos los lugares de solve están ocupados, esperando uno libre");
+            solveSlots.acquire();
+        }
+    }
+
+    public void releaseSolveSlot() {
+        solveSlots.release();
+    }
+
+    /**
+     * SolverManager que está resolviendo el problema indicado, si hay alguno.
+     */
+    public Optional<SolverManager<VehicleRoutingSolution, Long>> findSolving(Long problemId) {
+        return solverManagers.values().stream()
+            .filter(solverManager -> solverManager.getSolverStatus(problemId) != SolverStatus.NOT_SOLVING)
+            .findFirst();
+    }
+
+    @Override
+    public void close() {
+        solverManagers.values().stream()
+            .filter(solverManager -> solverManager != sharedSolverManager)
+            .forEach(SolverManager::close);
+    }
+}
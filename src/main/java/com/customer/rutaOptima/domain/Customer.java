@@ -3,6 +3,8 @@ package com.customer.rutaOptima.domain;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.*;
 import lombok.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 import java.math.BigDecimal;
 import java.time.Instant;
@@ -13,10 +15,13 @@ import java.util.List;
  * Entidad que representa un cliente que recibe entregas
  */
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "customer")
 @Table(name = "customer", indexes = {
         @Index(name = "idx_customer_es_nuevo", columnList = "es_nuevo"),
         @Index(name = "idx_customer_activo", columnList = "activo"),
-        @Index(name = "idx_customer_latitud_longitud", columnList = "latitud, longitud")
+        @Index(name = "idx_customer_latitud_longitud", columnList = "latitud, longitud"),
+        @Index(name = "idx_customer_codigo_externo", columnList = "codigo_externo", unique = true)
 })
 @Getter
 @Setter
@@ -29,6 +34,12 @@ public class Customer {
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
 
+    /**
+     * Código del cliente en el sistema de origen (ERP), clave de la importación masiva
+     */
+    @Column(name = "codigo_externo", length = 100)
+    private String codigoExterno;
+
     @NotBlank(message = "El nombre del cliente es obligatorio")
     @Column(nullable = false, length = 255)
     private String nombre;
@@ -39,9 +39,10 @@ import lombok.Setter;
 @Entity
 @Table(name = "orders", indexes = {
         @Index(name = "idx_orders_customer_id", columnList = "customer_id"),
-        @Index(name = "idx_orders_fecha_entrega", columnList = "fecha_entrega"),
-        @Index(name = "idx_orders_estado", columnList = "estado"),
-        @Index(name = "idx_orders_fecha_customer", columnList = "fecha_entrega, customer_id")
+        @Index(name = "idx_orders_fecha_customer", columnList = "fecha_entrega, customer_id"),
+        @Index(name = "idx_orders_fecha_id", columnList = "fecha_entrega, id"),
+        @Index(name = "idx_orders_estado_fecha_id", columnList = "estado, fecha_entrega, id"),
+        @Index(name = "idx_orders_estado_id", columnList = "estado, id")
 })
 @Getter
 @Setter
@@ -77,6 +78,8 @@ public class Order {
     @Column(precision = 10, scale = 2)
     private BigDecimal peso;
 
+    // PENDIENTE: entra en la próxima optimización de su fecha
+    // PLANIFICADO: incluido en un plan OPTIMIZED (vuelve a PENDIENTE si el plan se cancela)
     @NotBlank(message = "El estado es obligatorio")
     @Column(nullable = false, length = 50)
     @Builder.Default
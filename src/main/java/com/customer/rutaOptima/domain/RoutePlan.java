@@ -16,7 +16,7 @@ import java.util.Objects;
 @Entity
 @Table(name = "route_plan", indexes = {
         @Index(name = "idx_route_plan_fecha", columnList = "fecha"),
-        @Index(name = "idx_route_plan_estado", columnList = "estado"),
+        @Index(name = "idx_route_plan_estado_id", columnList = "estado, id"),
         @Index(name = "idx_route_plan_fecha_estado", columnList = "fecha, estado")
 })
 @Getter
@@ -33,7 +33,8 @@ public class RoutePlan {
         CREATED,      // Recién creado
         OPTIMIZING,   // En proceso de optimización
         OPTIMIZED,    // Optimización completada exitosamente
-        FAILED        // Falló la optimización
+        FAILED,       // Falló la optimización
+        CANCELLED     // Cancelado por el usuario (sus pedidos vuelven a PENDIENTE)
     }
 
     @Id
@@ -127,6 +128,13 @@ public class RoutePlan {
         this.estado = Estado.FAILED;
     }
 
+    /**
+     * Marca el plan como cancelado
+     */
+    public void markAsCancelled() {
+        this.estado = Estado.CANCELLED;
+    }
+
     /**
      * Marca el plan como en proceso de optimización
      */
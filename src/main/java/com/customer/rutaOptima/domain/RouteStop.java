@@ -28,7 +28,8 @@ import java.time.Instant;
 public class RouteStop {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "route_stop_id_seq")
+    @SequenceGenerator(name = "route_stop_id_seq", sequenceName = "route_stop_id_seq", allocationSize = 50)
     private Long id;
 
     @ManyToOne(fetch = FetchType.LAZY)
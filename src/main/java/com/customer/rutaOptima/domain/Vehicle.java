@@ -3,6 +3,8 @@ package com.customer.rutaOptima.domain;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.*;
 import lombok.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 import java.math.BigDecimal;
 import java.time.Instant;
@@ -14,6 +16,8 @@ import java.time.ZoneId;
  * Entidad que representa un vehículo de la flota
  */
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "vehicle")
 @Table(name = "vehicle", indexes = {
         @Index(name = "idx_vehicle_activo", columnList = "activo"),
         @Index(name = "idx_vehicle_depot", columnList = "depot_latitud, depot_longitud")
@@ -0,0 +1,38 @@
+package com.customer.rutaOptima.optimization.change;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.optaplanner.core.api.solver.change.ProblemChange;
+import org.optaplanner.core.api.solver.change.ProblemChangeDirector;
+
+import com.customer.rutaOptima.optimization.domain.VehicleRoutingSolution;
+import com.customer.rutaOptima.optimization.domain.Visit;
+import com.customer.rutaOptima.optimization.solver.VehicleRoutingSolutionCloner;
+
+/**
+ * Agrega una visita nueva (sin asignar) a un solve en curso.
+ * Cada working solution recibe su propia copia de la visita, así el mismo cambio se puede
+ * aplicar a varios solvers a la vez (modo portfolio) sin compartir entidades entre hilos.
+ */
+public class AddVisitProblemChange implements ProblemChange<VehicleRoutingSolution> {
+
+    private final Visit visit;
+
+    public AddVisitProblemChange(Visit visit) {
+        this.visit = visit;
+    }
+
+    @Override
+    public void doChange(VehicleRoutingSolution workingSolution, ProblemChangeDirector problemChangeDirector) {
+        if (problemChangeDirector.lookUpWorkingObject(visit).isPresent()) {
+            return; // ya está en el problema
+        }
+        problemChangeDirector.addEntity(VehicleRoutingSolutionCloner.cloneVisit(visit), added -> {
+            // Copiar la lista: la mejor solución clonada no debe ver el cambio
+            List<Visit> visits = new ArrayList<>(workingSolution.getVisits());
+            visits.add(added);
+            workingSolution.setVisits(visits);
+        });
+    }
+}
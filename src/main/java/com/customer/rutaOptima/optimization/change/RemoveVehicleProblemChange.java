@@ -0,0 +1,46 @@
+package com.customer.rutaOptima.optimization.change;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.optaplanner.core.api.solver.change.ProblemChange;
+import org.optaplanner.core.api.solver.change.ProblemChangeDirector;
+
+import com.customer.rutaOptima.optimization.domain.VehicleInfo;
+import com.customer.rutaOptima.optimization.domain.VehicleRoutingSolution;
+import com.customer.rutaOptima.optimization.domain.Visit;
+
+/**
+ * Saca un vehículo de servicio durante un solve en curso: sus visitas quedan sin asignar
+ * (incluso las fijadas) y el vehículo deja de estar en el rango de valores.
+ * Al reiniciar las fases, la construction heuristic las reubica en los vehículos restantes.
+ */
+public class RemoveVehicleProblemChange implements ProblemChange<VehicleRoutingSolution> {
+
+    private final Long vehicleId;
+
+    public RemoveVehicleProblemChange(Long vehicleId) {
+        this.vehicleId = vehicleId;
+    }
+
+    @Override
+    public void doChange(VehicleRoutingSolution workingSolution, ProblemChangeDirector problemChangeDirector) {
+        VehicleInfo key = new VehicleInfo();
+        key.setVehicleId(vehicleId);
+        problemChangeDirector.lookUpWorkingObject(key).ifPresent(workingVehicle -> {
+            for (Visit visit : workingSolution.getVisits()) {
+                if (visit.getVehicle() == workingVehicle) {
+                    if (visit.isPinned()) {
+                        problemChangeDirector.changeProblemProperty(visit, v -> v.setPinned(false));
+                    }
+                    problemChangeDirector.changeVariable(visit, "vehicle", v -> v.setVehicle(null));
+                }
+            }
+            problemChangeDirector.removeProblemFact(workingVehicle, removed -> {
+                List<VehicleInfo> vehicles = new ArrayList<>(workingSolution.getVehicles());
+                vehicles.removeIf(vehicle -> vehicle == removed);
+                workingSolution.setVehicles(vehicles);
+            });
+        });
+    }
+}
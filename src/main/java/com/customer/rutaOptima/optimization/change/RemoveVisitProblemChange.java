@@ -0,0 +1,34 @@
+package com.customer.rutaOptima.optimization.change;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.optaplanner.core.api.solver.change.ProblemChange;
+import org.optaplanner.core.api.solver.change.ProblemChangeDirector;
+
+import com.customer.rutaOptima.optimization.domain.VehicleRoutingSolution;
+import com.customer.rutaOptima.optimization.domain.Visit;
+
+/**
+ * Quita una visita (por ejemplo, un pedido cancelado) de un solve en curso.
+ */
+public class RemoveVisitProblemChange implements ProblemChange<VehicleRoutingSolution> {
+
+    private final Long visitId;
+
+    public RemoveVisitProblemChange(Long visitId) {
+        this.visitId = visitId;
+    }
+
+    @Override
+    public void doChange(VehicleRoutingSolution workingSolution, ProblemChangeDirector problemChangeDirector) {
+        Visit key = new Visit();
+        key.setId(visitId);
+        problemChangeDirector.lookUpWorkingObject(key).ifPresent(workingVisit ->
+            problemChangeDirector.removeEntity(workingVisit, removed -> {
+                List<Visit> visits = new ArrayList<>(workingSolution.getVisits());
+                visits.removeIf(visit -> visit == removed);
+                workingSolution.setVisits(visits);
+            }));
+    }
+}
@@ -1,6 +1,9 @@
 package com.customer.rutaOptima.optimization.domain;
 
 import java.math.BigDecimal;
+
+import org.optaplanner.core.api.domain.lookup.PlanningId;
+
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
@@ -12,6 +15,7 @@ import lombok.NoArgsConstructor;
 @NoArgsConstructor
 @AllArgsConstructor
 public class VehicleInfo {
+    @PlanningId // necesario para rebase de movimientos entre hilos y problem changes
     private Long vehicleId;
     private String vehicleName;
     private BigDecimal capacidadCantidad;
@@ -5,7 +5,10 @@ import org.optaplanner.core.api.domain.solution.PlanningScore;
 import org.optaplanner.core.api.domain.solution.PlanningSolution;
 import org.optaplanner.core.api.domain.solution.ProblemFactCollectionProperty;
 import org.optaplanner.core.api.domain.valuerange.ValueRangeProvider;
-import org.optaplanner.core.api.score.buildin.hardsoft.HardSoftScore;
+import org.optaplanner.core.api.score.buildin.hardmediumsoft.HardMediumSoftScore;
+
+import com.customer.rutaOptima.optimization.solver.VehicleRoutingSolutionCloner;
+
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
@@ -16,7 +19,7 @@ import java.util.List;
  * Solución del problema de ruteo de vehículos.
  * OptaPlanner optimiza esta clase asignando vehículos y secuencias a las visitas.
  */
-@PlanningSolution
+@PlanningSolution(solutionCloner = VehicleRoutingSolutionCloner.class)
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -31,7 +34,7 @@ public class VehicleRoutingSolution {
     private List<Visit> visits;
 
     @PlanningScore
-    private HardSoftScore score;
+    private HardMediumSoftScore score;
 
     /**
      * Calcula la distancia total de todas las rutas.
@@ -4,9 +4,13 @@ import java.math.BigDecimal;
 import java.time.Instant;
 
 import org.optaplanner.core.api.domain.entity.PlanningEntity;
+import org.optaplanner.core.api.domain.entity.PlanningPin;
 import org.optaplanner.core.api.domain.lookup.PlanningId;
 import org.optaplanner.core.api.domain.variable.PlanningVariable;
 
+import com.customer.rutaOptima.optimization.solver.VehicleStrengthWeightFactory;
+import com.customer.rutaOptima.optimization.solver.VisitDifficultyWeightFactory;
+
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
@@ -15,7 +19,7 @@ import lombok.NoArgsConstructor;
  * Entidad de planificación: una visita a un cliente.
  * OptaPlanner optimiza asignando vehículo y secuencia.
  */
-@PlanningEntity
+@PlanningEntity(difficultyWeightFactoryClass = VisitDifficultyWeightFactory.class)
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -31,8 +35,13 @@ public class Visit {
     private BigDecimal peso;
     private Integer prioridad;
 
-    // Variables de planificación que OptaPlanner cambia
-    @PlanningVariable(valueRangeProviderRefs = "vehicleRange")
+    // Visita fija (por ejemplo, de un vehículo ya despachado): el solver no cambia su vehículo
+    @PlanningPin
+    private boolean pinned;
+
+    // Variables de planificación que OptaPlanner cambia (null = visita sin asignar, ver penalización medium)
+    @PlanningVariable(valueRangeProviderRefs = "vehicleRange", nullable = true,
+        strengthWeightFactoryClass = VehicleStrengthWeightFactory.class)
     private VehicleInfo vehicle;
 
     // Estas variables se calculan DESPUÉS del solving, no durante
@@ -0,0 +1,302 @@
+package com.customer.rutaOptima.optimization.solver;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import org.optaplanner.core.api.score.director.ScoreDirector;
+import org.optaplanner.core.impl.phase.custom.CustomPhaseCommand;
+
+import com.customer.rutaOptima.optimization.domain.Location;
+import com.customer.rutaOptima.optimization.domain.VehicleInfo;
+import com.customer.rutaOptima.optimization.domain.VehicleRoutingSolution;
+import com.customer.rutaOptima.optimization.domain.Visit;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Solución inicial con la heurística de ahorros de Clarke-Wright (versión paralela).
+ * Las visitas se agrupan por zona; dentro de cada grupo se parte de una ruta por visita
+ * y se fusionan rutas por los extremos en orden de ahorro decreciente
+ * s(i,j) = d(depot,i) + d(depot,j) - d(i,j), siempre que la carga fusionada entre en el
+ * vehículo más grande del grupo. Luego las rutas se reparten entre los vehículos compatibles
+ * respetando su capacidad restante.
+ * Solo asigna visitas sin vehículo; las que no entran en ningún vehículo quedan para la
+ * construction heuristic siguiente.
+ */
+@Slf4j
+public class ClarkeWrightSavingsPhaseCommand implements CustomPhaseCommand<VehicleRoutingSolution> {
+
+    private static final String ANY_ZONE = "*";
+    private static final long NO_LIMIT = Long.MAX_VALUE;
+    private static final int MAX_NEIGHBOURS = 50;
+
+    // Clave de orden de los ahorros (ver savingsOrder)
+    private static final int PAIR_INDEX_BITS = 31;
+    private static final long PAIR_INDEX_MASK = (1L << PAIR_INDEX_BITS) - 1;
+    private static final long MAX_SAVING_CENTIMETERS = (1L << (63 - PAIR_INDEX_BITS)) - 1;
+    private static final double CENTIMETERS_PER_KM = 100_000;
+
+    @Override
+    public void changeWorkingSolution(ScoreDirector<VehicleRoutingSolution> scoreDirector) {
+        VehicleRoutingSolution solution = scoreDirector.getWorkingSolution();
+        List<VehicleInfo> vehicles = solution.getVehicles();
+        if (vehicles.isEmpty()) {
+            return;
+        }
+
+        // Carga ya comprometida por visitas asignadas (por ejemplo, fijadas de antemano)
+        Map<VehicleInfo, long[]> remaining = new IdentityHashMap<>();
+        for (VehicleInfo vehicle : vehicles) {
+            remaining.put(vehicle, new long[] {
+                capacity(vehicle.getCapacidadCantidad()),
+                capacity(vehicle.getCapacidadVolumen()),
+                capacity(vehicle.getCapacidadPeso())
+            });
+        }
+        Map<String, List<Visit>> visitsByZone = new LinkedHashMap<>();
+        for (Visit visit : solution.getVisits()) {
+            if (visit.getVehicle() != null) {
+                subtract(remaining.get(visit.getVehicle()), load(visit));
+            } else if (visit.getLocation() != null) {
+                visitsByZone.computeIfAbsent(zoneKey(visit.getLocation().getZona()), z -> new ArrayList<>()).add(visit);
+            }
+        }
+
+        int assigned = 0;
+        for (Map.Entry<String, List<Visit>> entry : visitsByZone.entrySet()) {
+            List<VehicleInfo> candidates = compatibleVehicles(vehicles, entry.getKey());
+            if (candidates.isEmpty()) {
+                continue;
+            }
+            List<List<Visit>> routes = buildRoutes(entry.getValue(), candidates, remaining);
+            assigned += assignRoutes(scoreDirector, routes, candidates, remaining);
+        }
+        scoreDirector.triggerVariableListeners();
+        log.debug("Clarke-Wright: {} visitas asignadas en la solución inicial", assigned);
+    }
+
+    /**
+     * Fusiona rutas del grupo según los ahorros. La capacidad límite es la del vehículo
+     * compatible con más capacidad restante (medida en cantidad).
+     */
+    private List<List<Visit>> buildRoutes(List<Visit> visits, List<VehicleInfo> candidates,
+                                          Map<VehicleInfo, long[]> remaining) {
+        int n = visits.size();
+        VehicleInfo reference = candidates.stream()
+            .max(Comparator.comparingLong(v -> remaining.get(v)[0]))
+            .orElseThrow();
+        long[] limit = remaining.get(reference);
+        Location depot = reference.getDepot();
+
+        double[] lat = new double[n];
+        double[] lon = new double[n];
+        double[] depotDistance = new double[n];
+        long[][] loads = new long[n][];
+        for (int i = 0; i < n; i++) {
+            Location location = visits.get(i).getLocation();
+            lat[i] = location.getLatitud().doubleValue();
+            lon[i] = location.getLongitud().doubleValue();
+            depotDistance[i] = depot != null
+                ? RoutingCosts.haversineKm(depot.getLatitud().doubleValue(), depot.getLongitud().doubleValue(), lat[i], lon[i])
+                : 0.0;
+            loads[i] = load(visits.get(i));
+        }
+
+        // Ahorros positivos, ordenados de mayor a menor. En grupos grandes solo se consideran
+        // los vecinos más cercanos de cada visita para no materializar los n² pares.
+        int neighbours = Math.min(n - 1, MAX_NEIGHBOURS);
+        boolean allPairs = neighbours == n - 1;
+        int[] pairI = new int[n * neighbours];
+        int[] pairJ = new int[pairI.length];
+        double[] saving = new double[pairI.length];
+        int pairCount = 0;
+        double[] distance = new double[n];
+        for (int i = 0; i < n; i++) {
+            for (int j = 0; j < n; j++) {
+                distance[j] = RoutingCosts.haversineKm(lat[i], lon[i], lat[j], lon[j]);
+            }
+            // Con todos los pares basta con j > i; con vecinos un par repetido se descarta al fusionar
+            int[] nearest = allPairs ? null : NearestNeighbours.nearest(distance, i, neighbours);
+            int candidateCount = allPairs ? n : nearest.length;
+            for (int c = 0; c < candidateCount; c++) {
+                int j = allPairs ? c : nearest[c];
+                if (allPairs && j <= i) {
+                    continue;
+                }
+                double s = depotDistance[i] + depotDistance[j] - distance[j];
+                if (s > 0) {
+                    pairI[pairCount] = i;
+                    pairJ[pairCount] = j;
+                    saving[pairCount] = s;
+                    pairCount++;
+                }
+            }
+        }
+        long[] order = savingsOrder(saving, pairCount);
+
+        // Una ruta por visita al inicio
+        int[] routeOf = new int[n];
+        List<List<Integer>> routes = new ArrayList<>(n);
+        List<long[]> routeLoads = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            routeOf[i] = i;
+            routes.add(new ArrayList<>(List.of(i)));
+            routeLoads.add(loads[i].clone());
+        }
+
+        for (int o = order.length - 1; o >= 0; o--) {
+            int p = (int) (order[o] & PAIR_INDEX_MASK);
+            int i = pairI[p];
+            int j = pairJ[p];
+            int ri = routeOf[i];
+            int rj = routeOf[j];
+            if (ri == rj) {
+                continue;
+            }
+            List<Integer> routeI = routes.get(ri);
+            List<Integer> routeJ = routes.get(rj);
+            if (!isEnd(routeI, i) || !isEnd(routeJ, j)) {
+                continue;
+            }
+            long[] merged = sum(routeLoads.get(ri), routeLoads.get(rj));
+            if (!fits(merged, limit)) {
+                continue;
+            }
+            // Orientar para que i quede al final de su ruta y j al inicio de la otra
+            if (routeI.get(routeI.size() - 1) != i) {
+                Collections.reverse(routeI);
+            }
+            if (routeJ.get(0) != j) {
+                Collections.reverse(routeJ);
+            }
+            routeI.addAll(routeJ);
+            for (Integer k : routeJ) {
+                routeOf[k] = ri;
+            }
+            routes.set(rj, null);
+            routeLoads.set(ri, merged);
+        }
+
+        List<List<Visit>> result = new ArrayList<>();
+        for (List<Integer> route : routes) {
+            if (route != null) {
+                List<Visit> routeVisits = new ArrayList<>(route.size());
+                for (Integer k : route) {
+                    routeVisits.add(visits.get(k));
+                }
+                result.add(routeVisits);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Pares ordenados por ahorro creciente, sin boxear: cada clave lleva el ahorro en
+     * centímetros en los bits altos y el índice del par en los 31 bits bajos, así un
+     * Arrays.sort primitivo ordena por ahorro. Se recorren de atrás hacia adelante.
+     */
+    private static long[] savingsOrder(double[] saving, int pairCount) {
+        long[] keys = new long[pairCount];
+        for (int p = 0; p < pairCount; p++) {
+            long centimeters = Math.min((long) (saving[p] * CENTIMETERS_PER_KM), MAX_SAVING_CENTIMETERS);
+            keys[p] = (centimeters << PAIR_INDEX_BITS) | p;
+        }
+        Arrays.sort(keys);
+        return keys;
+    }
+
+    /**
+     * Reparte las rutas (de mayor a menor carga) en el vehículo compatible que las contenga
+     * con menor capacidad restante (best fit).
+     */
+    private int assignRoutes(ScoreDirector<VehicleRoutingSolution> scoreDirector, List<List<Visit>> routes,
+                             List<VehicleInfo> candidates, Map<VehicleInfo, long[]> remaining) {
+        Map<List<Visit>, long[]> loadByRoute = new IdentityHashMap<>();
+        for (List<Visit> route : routes) {
+            long[] routeLoad = new long[3];
+            for (Visit visit : route) {
+                routeLoad = sum(routeLoad, load(visit));
+            }
+            loadByRoute.put(route, routeLoad);
+        }
+        routes.sort(Comparator.comparingLong((List<Visit> route) -> loadByRoute.get(route)[0]).reversed());
+
+        int assigned = 0;
+        for (List<Visit> route : routes) {
+            long[] routeLoad = loadByRoute.get(route);
+            VehicleInfo best = null;
+            for (VehicleInfo vehicle : candidates) {
+                long[] free = remaining.get(vehicle);
+                if (fits(routeLoad, free) && (best == null || free[0] < remaining.get(best)[0])) {
+                    best = vehicle;
+                }
+            }
+            if (best == null) {
+                continue;
+            }
+            subtract(remaining.get(best), routeLoad);
+            for (Visit visit : route) {
+                scoreDirector.beforeVariableChanged(visit, "vehicle");
+                visit.setVehicle(best);
+                scoreDirector.afterVariableChanged(visit, "vehicle");
+                assigned++;
+            }
+        }
+        return assigned;
+    }
+
+    private static List<VehicleInfo> compatibleVehicles(List<VehicleInfo> vehicles, String zone) {
+        List<VehicleInfo> compatible = new ArrayList<>();
+        for (VehicleInfo vehicle : vehicles) {
+            String vehicleZone = zoneKey(vehicle.getZona());
+            if (ANY_ZONE.equals(zone) || ANY_ZONE.equals(vehicleZone) || zone.equals(vehicleZone)) {
+                compatible.add(vehicle);
+            }
+        }
+        return compatible;
+    }
+
+    private static String zoneKey(String zona) {
+        return zona != null ? zona.toUpperCase(Locale.ROOT) : ANY_ZONE;
+    }
+
+    private static boolean isEnd(List<Integer> route, int visit) {
+        return route.get(0) == visit || route.get(route.size() - 1) == visit;
+    }
+
+    private static long[] load(Visit visit) {
+        return new long[] {
+            RoutingCosts.toCents(visit.getCantidad()),
+            RoutingCosts.toCents(visit.getVolumen()),
+            RoutingCosts.toCents(visit.getPeso())
+        };
+    }
+
+    private static long capacity(BigDecimal value) {
+        return value != null ? RoutingCosts.toCents(value) : NO_LIMIT;
+    }
+
+    private static boolean fits(long[] load, long[] free) {
+        return load[0] <= free[0] && load[1] <= free[1] && load[2] <= free[2];
+    }
+
+    private static long[] sum(long[] a, long[] b) {
+        return new long[] { a[0] + b[0], a[1] + b[1], a[2] + b[2] };
+    }
+
+    private static void subtract(long[] free, long[] load) {
+        for (int k = 0; k < 3; k++) {
+            if (free[k] != NO_LIMIT) {
+                free[k] -= load[k];
+            }
+        }
+    }
+}
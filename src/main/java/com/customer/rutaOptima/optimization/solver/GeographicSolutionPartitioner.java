@@ -0,0 +1,268 @@
+package com.customer.rutaOptima.optimization.solver;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import org.optaplanner.core.api.score.director.ScoreDirector;
+import org.optaplanner.core.impl.partitionedsearch.partitioner.SolutionPartitioner;
+
+import com.customer.rutaOptima.optimization.domain.Location;
+import com.customer.rutaOptima.optimization.domain.VehicleInfo;
+import com.customer.rutaOptima.optimization.domain.VehicleRoutingSolution;
+import com.customer.rutaOptima.optimization.domain.Visit;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Particiona el problema geográficamente para el partitioned search:
+ * 1. Por zona: cada zona de visitas con los vehículos de esa zona. Los vehículos sin zona (o de
+ *    zonas sin visitas) se reparten hacia las zonas con mayor déficit de capacidad, y las zonas
+ *    que quedan sin vehículos se unen a la que tiene más.
+ * 2. Por barrido angular (sweep) dentro de cada zona: las visitas se ordenan por ángulo alrededor
+ *    de sus depots y se cortan en sectores contiguos de demanda similar, cada uno con sus vehículos.
+ * La cantidad total de particiones sale del tamaño del problema (maxPartSize visitas por partición)
+ * limitada por los núcleos disponibles y la cantidad de vehículos. Las visitas ya asignadas
+ * (fijadas o del warm start) van a la partición de su vehículo.
+ * maxPartSize se configura como custom property en OptaPlannerConfig.
+ */
+@Slf4j
+public class GeographicSolutionPartitioner implements SolutionPartitioner<VehicleRoutingSolution> {
+
+    private static final String ANY_ZONE = "*";
+    private static final long NO_LIMIT = Long.MAX_VALUE;
+
+    private int maxPartSize = 300;
+
+    public void setMaxPartSize(int maxPartSize) {
+        this.maxPartSize = maxPartSize;
+    }
+
+    @Override
+    public List<VehicleRoutingSolution> splitWorkingSolution(ScoreDirector<VehicleRoutingSolution> scoreDirector,
+                                                             Integer runnablePartThreadLimit) {
+        VehicleRoutingSolution solution = scoreDirector.getWorkingSolution();
+        List<Part> zones = splitByZone(solution);
+
+        // Cantidad de particiones: por tamaño, sin superar núcleos ni vehículos
+        int unassigned = zones.stream().mapToInt(part -> part.visits.size()).sum();
+        int cores = runnablePartThreadLimit != null && runnablePartThreadLimit > 0
+            ? runnablePartThreadLimit
+            : Runtime.getRuntime().availableProcessors();
+        int partCount = Math.max(1, Math.min((unassigned + maxPartSize - 1) / maxPartSize,
+            Math.min(cores, solution.getVehicles().size())));
+
+        List<Part> parts = new ArrayList<>();
+        for (Part zone : zones) {
+            int sectors = unassigned == 0 ? 1
+                : (int) Math.round((double) partCount * zone.visits.size() / unassigned);
+            sectors = Math.max(1, Math.min(sectors, zone.vehicles.size()));
+            parts.addAll(sectors > 1 ? sweep(zone, sectors) : List.of(zone));
+        }
+
+        // Visitas asignadas a la partición de su vehículo
+        Map<VehicleInfo, Part> partByVehicle = new IdentityHashMap<>();
+        for (Part part : parts) {
+            part.vehicles.forEach(vehicle -> partByVehicle.put(vehicle, part));
+        }
+        for (Visit visit : solution.getVisits()) {
+            if (visit.getVehicle() != null) {
+                partByVehicle.getOrDefault(visit.getVehicle(), parts.get(0)).visits.add(visit);
+            }
+        }
+
+        List<VehicleRoutingSolution> partitions = new ArrayList<>(parts.size());
+        for (Part part : parts) {
+            List<Visit> visits = new ArrayList<>(part.visits.size());
+            for (Visit visit : part.visits) {
+                visits.add(VehicleRoutingSolutionCloner.cloneVisit(visit));
+            }
+            VehicleRoutingSolution partition = new VehicleRoutingSolution();
+            partition.setVehicles(part.vehicles);
+            partition.setVisits(visits);
+            partitions.add(partition);
+        }
+        log.debug("Partitioned search: {} particiones ({} zonas) para {} visitas sin asignar",
+            partitions.size(), zones.size(), unassigned);
+        return partitions;
+    }
+
+    /**
+     * Una partición por zona de visitas sin asignar, con sus vehículos.
+     */
+    private List<Part> splitByZone(VehicleRoutingSolution solution) {
+        Map<String, Part> zones = new LinkedHashMap<>();
+        for (Visit visit : solution.getVisits()) {
+            if (visit.getVehicle() == null) {
+                String zona = visit.getLocation() != null ? visit.getLocation().getZona() : null;
+                zones.computeIfAbsent(zoneKey(zona), key -> new Part()).addVisit(visit);
+            }
+        }
+
+        List<VehicleInfo> unzoned = new ArrayList<>();
+        for (VehicleInfo vehicle : solution.getVehicles()) {
+            String key = zoneKey(vehicle.getZona());
+            Part zone = zones.get(key);
+            if (zone != null && !ANY_ZONE.equals(key)) {
+                zone.addVehicle(vehicle);
+            } else {
+                unzoned.add(vehicle);
+            }
+        }
+        if (zones.isEmpty()) {
+            // Solo hay visitas ya asignadas: una partición para todo
+            zones.put(ANY_ZONE, new Part());
+        }
+        for (VehicleInfo vehicle : unzoned) {
+            maxDeficit(zones.values()).addVehicle(vehicle);
+        }
+
+        // Zonas sin vehículos se unen a la que tiene más vehículos
+        Part largest = zones.values().stream()
+            .max(Comparator.comparingInt(zone -> zone.vehicles.size()))
+            .orElseThrow();
+        List<Part> result = new ArrayList<>();
+        for (Part zone : zones.values()) {
+            if (zone.vehicles.isEmpty() && zone != largest) {
+                zone.visits.forEach(largest::addVisit);
+            } else {
+                result.add(zone);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Corta la zona en sectores angulares contiguos de demanda similar alrededor del centro de
+     * sus depots, empezando en el mayor hueco angular para no partir un grupo de visitas.
+     */
+    private List<Part> sweep(Part zone, int sectors) {
+        double[] center = center(zone);
+        double cosLat = Math.cos(Math.toRadians(center[0]));
+        int n = zone.visits.size();
+        double[] angles = new double[n];
+        Integer[] order = new Integer[n];
+        for (int i = 0; i < n; i++) {
+            Location location = zone.visits.get(i).getLocation();
+            angles[i] = location == null ? 0.0 : Math.atan2(
+                location.getLatitud().doubleValue() - center[0],
+                (location.getLongitud().doubleValue() - center[1]) * cosLat);
+            order[i] = i;
+        }
+        Arrays.sort(order, Comparator.comparingDouble(i -> angles[i]));
+
+        int start = 0;
+        double largestGap = angles[order[0]] + 2 * Math.PI - angles[order[n - 1]];
+        for (int k = 1; k < n; k++) {
+            double gap = angles[order[k]] - angles[order[k - 1]];
+            if (gap > largestGap) {
+                largestGap = gap;
+                start = k;
+            }
+        }
+
+        long totalDemand = 0;
+        for (Visit visit : zone.visits) {
+            totalDemand += weight(visit);
+        }
+        List<Part> parts = new ArrayList<>(sectors);
+        for (int s = 0; s < sectors; s++) {
+            parts.add(new Part());
+        }
+        long cumulative = 0;
+        int sector = 0;
+        for (int k = 0; k < n; k++) {
+            Visit visit = zone.visits.get(order[(start + k) % n]);
+            // Pasar al siguiente sector al completar su cuota, dejando al menos una visita por sector
+            boolean quotaReached = cumulative * sectors >= (sector + 1) * totalDemand;
+            boolean mustAdvance = n - k <= sectors - 1 - sector;
+            if (sector < sectors - 1 && !parts.get(sector).visits.isEmpty() && (quotaReached || mustAdvance)) {
+                sector++;
+            }
+            parts.get(sector).addVisit(visit);
+            cumulative += weight(visit);
+        }
+
+        // Un vehículo por sector (el de mayor capacidad libre primero) y el resto por déficit
+        List<VehicleInfo> vehicles = new ArrayList<>(zone.vehicles);
+        vehicles.sort(Comparator.comparingLong((VehicleInfo vehicle) -> capacity(vehicle)).reversed());
+        for (int i = 0; i < vehicles.size(); i++) {
+            Part target = i < sectors ? parts.get(i) : maxDeficit(parts);
+            target.addVehicle(vehicles.get(i));
+        }
+        return parts;
+    }
+
+    private static double[] center(Part zone) {
+        double lat = 0;
+        double lon = 0;
+        int count = 0;
+        for (VehicleInfo vehicle : zone.vehicles) {
+            if (vehicle.getDepot() != null) {
+                lat += vehicle.getDepot().getLatitud().doubleValue();
+                lon += vehicle.getDepot().getLongitud().doubleValue();
+                count++;
+            }
+        }
+        if (count == 0) {
+            for (Visit visit : zone.visits) {
+                if (visit.getLocation() != null) {
+                    lat += visit.getLocation().getLatitud().doubleValue();
+                    lon += visit.getLocation().getLongitud().doubleValue();
+                    count++;
+                }
+            }
+        }
+        return count == 0 ? new double[] { 0.0, 0.0 } : new double[] { lat / count, lon / count };
+    }
+
+    private static Part maxDeficit(Iterable<Part> parts) {
+        Part target = null;
+        for (Part part : parts) {
+            if (target == null || part.deficit() > target.deficit()) {
+                target = part;
+            }
+        }
+        return target;
+    }
+
+    // Peso de la visita para balancear sectores: su cantidad, o 1 si no tiene
+    private static long weight(Visit visit) {
+        return Math.max(1, RoutingCosts.toCents(visit.getCantidad()));
+    }
+
+    private static long capacity(VehicleInfo vehicle) {
+        return vehicle.getCapacidadCantidad() != null ? RoutingCosts.toCents(vehicle.getCapacidadCantidad()) : NO_LIMIT;
+    }
+
+    private static String zoneKey(String zona) {
+        return zona != null ? zona.toUpperCase(Locale.ROOT) : ANY_ZONE;
+    }
+
+    private static final class Part {
+        private final List<Visit> visits = new ArrayList<>();
+        private final List<VehicleInfo> vehicles = new ArrayList<>();
+        private long demand;
+        private long capacity;
+
+        void addVisit(Visit visit) {
+            visits.add(visit);
+            demand += weight(visit);
+        }
+
+        void addVehicle(VehicleInfo vehicle) {
+            vehicles.add(vehicle);
+            long vehicleCapacity = GeographicSolutionPartitioner.capacity(vehicle);
+            capacity = vehicleCapacity == NO_LIMIT || capacity == NO_LIMIT ? NO_LIMIT : capacity + vehicleCapacity;
+        }
+
+        long deficit() {
+            return capacity == NO_LIMIT ? Long.MIN_VALUE : demand - capacity;
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package com.customer.rutaOptima.optimization.solver;
+
+/**
+ * Selección de los k vecinos más cercanos sobre distancias primitivas, compartida por las
+ * heurísticas del solver. Inserta en una lista ordenada de tamaño k: O(n·k) por nodo, sin
+ * ordenar todos los candidatos ni boxear índices.
+ */
+final class NearestNeighbours {
+
+    private NearestNeighbours() {
+    }
+
+    /**
+     * Índices de los k valores más chicos de la fila (sin contar self), de menor a mayor.
+     *
+     * @param row  distancias desde el nodo a todos los demás
+     * @param self índice del propio nodo (se excluye), o -1
+     */
+    static int[] nearest(double[] row, int self, int k) {
+        int candidates = self >= 0 && self < row.length ? row.length - 1 : row.length;
+        int count = Math.max(0, Math.min(k, candidates));
+        int[] nearest = new int[count];
+        if (count == 0) {
+            return nearest;
+        }
+        int size = 0;
+        for (int b = 0; b < row.length; b++) {
+            if (b == self || (size == count && row[b] >= row[nearest[size - 1]])) {
+                continue;
+            }
+            int position = size < count ? size++ : count - 1;
+            while (position > 0 && row[nearest[position - 1]] > row[b]) {
+                nearest[position] = nearest[position - 1];
+                position--;
+            }
+            nearest[position] = b;
+        }
+        return nearest;
+    }
+}
@@ -0,0 +1,90 @@
+package com.customer.rutaOptima.optimization.solver;
+
+import java.math.BigDecimal;
+
+import com.customer.rutaOptima.optimization.domain.Location;
+import com.customer.rutaOptima.optimization.domain.VehicleInfo;
+import com.customer.rutaOptima.optimization.domain.Visit;
+
+/**
+ * Costos del modelo de ruteo compartidos por el ConstraintProvider y el
+ * IncrementalScoreCalculator, para que ambos motores de score calculen exactamente lo mismo.
+ * Como el solver solo asigna vehículos (no secuencia), la distancia de una visita se
+ * aproxima con la distancia Haversine desde el depot del vehículo asignado.
+ */
+public final class RoutingCosts {
+
+    public static final int ZONE_MISMATCH_PENALTY = 100;
+
+    private static final double EARTH_RADIUS_KM = 6371;
+
+    private RoutingCosts() {
+    }
+
+    /**
+     * Penalización medium por dejar la visita sin vehículo: su prioridad (mínimo 1),
+     * para que en días sobrecargados queden afuera primero los pedidos menos prioritarios.
+     */
+    public static int unassignedPenalty(Visit visit) {
+        Integer prioridad = visit.getPrioridad();
+        return prioridad != null ? Math.max(1, prioridad) : 1;
+    }
+
+    /**
+     * Distancia en metros desde el depot del vehículo hasta la visita.
+     */
+    public static int distanceMeters(VehicleInfo vehicle, Visit visit) {
+        return (int) (depotDistanceKm(vehicle, visit) * 1000);
+    }
+
+    /**
+     * Tiempo de viaje estimado en minutos (30 km/h promedio) desde el depot hasta la visita.
+     */
+    public static int travelTimeMin(VehicleInfo vehicle, Visit visit) {
+        return (int) (depotDistanceKm(vehicle, visit) * 2);
+    }
+
+    /**
+     * Verifica si la zona de la visita no coincide con la del vehículo.
+     * Si alguna de las dos zonas no está definida se considera compatible.
+     */
+    public static boolean isZoneMismatch(VehicleInfo vehicle, Visit visit) {
+        if (visit.getLocation() == null) {
+            return false;
+        }
+        String vehicleZone = vehicle.getZona();
+        String visitZone = visit.getLocation().getZona();
+        return vehicleZone != null && visitZone != null && !vehicleZone.equalsIgnoreCase(visitZone);
+    }
+
+    /**
+     * Convierte una cantidad (escala 2 en BD) a centésimas para operar con long.
+     */
+    public static long toCents(BigDecimal value) {
+        return value != null ? value.movePointRight(2).longValue() : 0L;
+    }
+
+    public static double depotDistanceKm(VehicleInfo vehicle, Visit visit) {
+        Location depot = vehicle.getDepot();
+        Location location = visit.getLocation();
+        if (depot == null || location == null) {
+            return 0.0;
+        }
+        return haversineKm(depot, location);
+    }
+
+    public static double haversineKm(Location from, Location to) {
+        return haversineKm(from.getLatitud().doubleValue(), from.getLongitud().doubleValue(),
+            to.getLatitud().doubleValue(), to.getLongitud().doubleValue());
+    }
+
+    public static double haversineKm(double lat1, double lon1, double lat2, double lon2) {
+        double dLat = Math.toRadians(lat2 - lat1);
+        double dLon = Math.toRadians(lon2 - lon1);
+        double a = Math.sin(dLat / 2) * Math.sin(dLat / 2) +
+                   Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2)) *
+                   Math.sin(dLon / 2) * Math.sin(dLon / 2);
+        double c = 2 * Math.atan2(Math.sqrt(a), Math.sqrt(1 - a));
+        return EARTH_RADIUS_KM * c;
+    }
+}
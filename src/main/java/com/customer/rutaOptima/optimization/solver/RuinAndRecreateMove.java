@@ -0,0 +1,122 @@
+package com.customer.rutaOptima.optimization.solver;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import org.optaplanner.core.api.score.director.ScoreDirector;
+import org.optaplanner.core.impl.heuristic.move.AbstractMove;
+
+import com.customer.rutaOptima.optimization.domain.VehicleInfo;
+import com.customer.rutaOptima.optimization.domain.VehicleRoutingSolution;
+import com.customer.rutaOptima.optimization.domain.Visit;
+
+/**
+ * Movimiento compuesto de ruin and recreate: reasigna un conjunto de visitas a los
+ * vehículos elegidos por RuinAndRecreateMoveIteratorFactory en un solo paso.
+ */
+public class RuinAndRecreateMove extends AbstractMove<VehicleRoutingSolution> {
+
+    private final List<Visit> visits;
+    private final List<VehicleInfo> toVehicles;
+
+    public RuinAndRecreateMove(List<Visit> visits, List<VehicleInfo> toVehicles) {
+        this.visits = visits;
+        this.toVehicles = toVehicles;
+    }
+
+    @Override
+    public boolean isMoveDoable(ScoreDirector<VehicleRoutingSolution> scoreDirector) {
+        for (int i = 0; i < visits.size(); i++) {
+            if (visits.get(i).getVehicle() != toVehicles.get(i)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    protected RuinAndRecreateMove createUndoMove(ScoreDirector<VehicleRoutingSolution> scoreDirector) {
+        List<VehicleInfo> fromVehicles = new ArrayList<>(visits.size());
+        for (Visit visit : visits) {
+            fromVehicles.add(visit.getVehicle());
+        }
+        return new RuinAndRecreateMove(visits, fromVehicles);
+    }
+
+    @Override
+    protected void doMoveOnGenuineVariables(ScoreDirector<VehicleRoutingSolution> scoreDirector) {
+        for (int i = 0; i < visits.size(); i++) {
+            Visit visit = visits.get(i);
+            scoreDirector.beforeVariableChanged(visit, "vehicle");
+            visit.setVehicle(toVehicles.get(i));
+            scoreDirector.afterVariableChanged(visit, "vehicle");
+        }
+    }
+
+    @Override
+    public RuinAndRecreateMove rebase(ScoreDirector<VehicleRoutingSolution> destinationScoreDirector) {
+        List<Visit> rebasedVisits = new ArrayList<>(visits.size());
+        List<VehicleInfo> rebasedVehicles = new ArrayList<>(toVehicles.size());
+        for (int i = 0; i < visits.size(); i++) {
+            rebasedVisits.add(destinationScoreDirector.lookUpWorkingObject(visits.get(i)));
+            rebasedVehicles.add(destinationScoreDirector.lookUpWorkingObject(toVehicles.get(i)));
+        }
+        return new RuinAndRecreateMove(rebasedVisits, rebasedVehicles);
+    }
+
+    @Override
+    public Collection<? extends Object> getPlanningEntities() {
+        return visits;
+    }
+
+    @Override
+    public Collection<? extends Object> getPlanningValues() {
+        return toVehicles;
+    }
+
+    @Override
+    public String getSimpleMoveTypeDescription() {
+        return "RuinAndRecreateMove(Visit.vehicle)";
+    }
+
+    // Visit es @Data (equals por valor sobre campos mutables): se compara por identidad
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof RuinAndRecreateMove other) || visits.size() != other.visits.size()) {
+            return false;
+        }
+        for (int i = 0; i < visits.size(); i++) {
+            if (visits.get(i) != other.visits.get(i) || toVehicles.get(i) != other.toVehicles.get(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public int hashCode() {
+        int hash = 1;
+        for (int i = 0; i < visits.size(); i++) {
+            hash = 31 * hash + System.identityHashCode(visits.get(i));
+            hash = 31 * hash + System.identityHashCode(toVehicles.get(i));
+        }
+        return hash;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("RuinAndRecreate[");
+        for (int i = 0; i < visits.size(); i++) {
+            if (i > 0) {
+                sb.append(", ");
+            }
+            VehicleInfo vehicle = toVehicles.get(i);
+            sb.append(visits.get(i).getId()).append(" -> ").append(vehicle != null ? vehicle.getVehicleId() : null);
+        }
+        return sb.append(']').toString();
+    }
+}
@@ -0,0 +1,267 @@
+package com.customer.rutaOptima.optimization.solver;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Random;
+
+import org.optaplanner.core.api.score.director.ScoreDirector;
+import org.optaplanner.core.impl.heuristic.selector.move.factory.MoveIteratorFactory;
+
+import com.customer.rutaOptima.optimization.domain.VehicleInfo;
+import com.customer.rutaOptima.optimization.domain.VehicleRoutingSolution;
+import com.customer.rutaOptima.optimization.domain.Visit;
+
+/**
+ * Genera movimientos de ruin and recreate (large neighbourhood search):
+ * - Ruin: toma una visita al azar y sus vecinas más cercanas (Haversine), entre
+ *   minRuinSize y maxRuinSize visitas en total.
+ * - Recreate: reinserta esas visitas, de mayor a menor cantidad, en el vehículo más barato
+ *   que las admite sin exceder capacidad ni cambiar de zona; si ninguno es factible,
+ *   la visita queda sin asignar (penalización medium, menor que cualquier hard).
+ * Las listas de vecinos se calculan una vez por fase y solución de trabajo (NearestNeighbours, O(n·k)), y se
+ * recalculan si cambian las visitas o los vehículos (problem changes, como RemoveVehicleProblemChange).
+ * Las visitas fijadas (@PlanningPin) nunca se remueven, pero su carga sí cuenta al reinsertar.
+ * Las propiedades se configuran como custom properties en OptaPlannerConfig.
+ */
+public class RuinAndRecreateMoveIteratorFactory
+        implements MoveIteratorFactory<VehicleRoutingSolution, RuinAndRecreateMove> {
+
+    private static final long NO_LIMIT = Long.MAX_VALUE;
+
+    private int minRuinSize = 3;
+    private int maxRuinSize = 15;
+
+    private volatile Neighbourhood neighbourhood;
+
+    public void setMinRuinSize(int minRuinSize) {
+        this.minRuinSize = minRuinSize;
+    }
+
+    public void setMaxRuinSize(int maxRuinSize) {
+        this.maxRuinSize = maxRuinSize;
+    }
+
+    /**
+     * Las fases se reinician tras cada problem change, que puede cambiar los pines o el rango de vehículos
+     * sin cambiar las listas: se descartan los vecinos calculados.
+     */
+    @Override
+    public void phaseStarted(ScoreDirector<VehicleRoutingSolution> scoreDirector) {
+        neighbourhood = null;
+    }
+
+    @Override
+    public long getSize(ScoreDirector<VehicleRoutingSolution> scoreDirector) {
+        return scoreDirector.getWorkingSolution().getVisits().size();
+    }
+
+    /**
+     * Selección en orden original (sin randomSelection): un movimiento por visita no fijada,
+     * usándola como semilla con el tamaño máximo de ruina. Iterador finito (a lo sumo getSize() movimientos).
+     */
+    @Override
+    public Iterator<RuinAndRecreateMove> createOriginalMoveIterator(ScoreDirector<VehicleRoutingSolution> scoreDirector) {
+        Neighbourhood current = neighbourhood(scoreDirector.getWorkingSolution());
+        return new Iterator<>() {
+            private int seed = 0;
+
+            @Override
+            public boolean hasNext() {
+                return seed < current.visits.size() && current.visits.size() > 1 && !current.vehicles.isEmpty();
+            }
+
+            @Override
+            public RuinAndRecreateMove next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                int ruinSize = Math.min(maxRuinSize, current.neighbours[seed].length + 1);
+                return createMove(current, seed++, ruinSize);
+            }
+        };
+    }
+
+    @Override
+    public Iterator<RuinAndRecreateMove> createRandomMoveIterator(ScoreDirector<VehicleRoutingSolution> scoreDirector,
+                                                                  Random workingRandom) {
+        VehicleRoutingSolution solution = scoreDirector.getWorkingSolution();
+        Neighbourhood current = neighbourhood(solution);
+        return new Iterator<>() {
+            @Override
+            public boolean hasNext() {
+                return current.visits.size() > 1 && !current.vehicles.isEmpty();
+            }
+
+            @Override
+            public RuinAndRecreateMove next() {
+                return createMove(current, workingRandom);
+            }
+        };
+    }
+
+    private RuinAndRecreateMove createMove(Neighbourhood hood, Random random) {
+        int seed = random.nextInt(hood.visits.size());
+        int upper = Math.min(maxRuinSize, hood.neighbours[seed].length + 1);
+        int lower = Math.min(minRuinSize, upper);
+        return createMove(hood, seed, lower + random.nextInt(upper - lower + 1));
+    }
+
+    private RuinAndRecreateMove createMove(Neighbourhood hood, int seed, int ruinSize) {
+        List<Visit> visits = hood.visits;
+
+        // Ruin: la semilla y sus vecinas más cercanas
+        List<Visit> ruined = new ArrayList<>(ruinSize);
+        ruined.add(visits.get(seed));
+        for (int k = 0; k < ruinSize - 1; k++) {
+            ruined.add(visits.get(hood.neighbours[seed][k]));
+        }
+
+        // Carga de cada vehículo sin las visitas removidas
+        Map<Visit, Boolean> ruinedSet = new IdentityHashMap<>(ruinSize);
+        ruined.forEach(visit -> ruinedSet.put(visit, Boolean.TRUE));
+        int vehicleCount = hood.vehicles.size();
+        long[][] loads = new long[vehicleCount][3];
+        for (Visit visit : hood.source) {
+            if (visit.getVehicle() != null && !ruinedSet.containsKey(visit)) {
+                add(loads[hood.vehicleIndex.get(visit.getVehicle())], visit, 1);
+            }
+        }
+
+        // Recreate: primero las visitas más grandes, que son las más difíciles de ubicar
+        ruined.sort(Comparator.comparing((Visit visit) -> RoutingCosts.toCents(visit.getCantidad())).reversed());
+        List<VehicleInfo> toVehicles = new ArrayList<>(ruinSize);
+        for (Visit visit : ruined) {
+            int best = -1;
+            long bestHard = Long.MAX_VALUE;
+            long bestSoft = Long.MAX_VALUE;
+            for (int i = 0; i < vehicleCount; i++) {
+                VehicleInfo vehicle = hood.vehicles.get(i);
+                long hard = overflow(loads[i], hood.capacities[i], visit)
+                    + (RoutingCosts.isZoneMismatch(vehicle, visit) ? RoutingCosts.ZONE_MISMATCH_PENALTY : 0);
+                long soft = RoutingCosts.distanceMeters(vehicle, visit) + RoutingCosts.travelTimeMin(vehicle, visit);
+                if (hard < bestHard || (hard == bestHard && soft < bestSoft)) {
+                    best = i;
+                    bestHard = hard;
+                    bestSoft = soft;
+                }
+            }
+            if (bestHard > 0) {
+                // Ningún vehículo la admite sin romper una restricción hard: queda sin asignar (medium)
+                toVehicles.add(null);
+                continue;
+            }
+            add(loads[best], visit, 1);
+            toVehicles.add(hood.vehicles.get(best));
+        }
+        return new RuinAndRecreateMove(ruined, toVehicles);
+    }
+
+    /**
+     * Exceso (en unidades enteras) que produciría agregar la visita a la carga actual.
+     */
+    private static long overflow(long[] load, long[] capacity, Visit visit) {
+        long[] demand = demand(visit);
+        long total = 0;
+        for (int k = 0; k < 3; k++) {
+            if (capacity[k] != NO_LIMIT && load[k] + demand[k] > capacity[k]) {
+                total += (load[k] + demand[k] - capacity[k] + 99) / 100;
+            }
+        }
+        return total;
+    }
+
+    private static void add(long[] load, Visit visit, int sign) {
+        long[] demand = demand(visit);
+        for (int k = 0; k < 3; k++) {
+            load[k] += sign * demand[k];
+        }
+    }
+
+    private static long[] demand(Visit visit) {
+        return new long[] {
+            RoutingCosts.toCents(visit.getCantidad()),
+            RoutingCosts.toCents(visit.getVolumen()),
+            RoutingCosts.toCents(visit.getPeso())
+        };
+    }
+
+    /**
+     * Devuelve las listas de vecinos de la solución de trabajo, calculándolas si cambió.
+     */
+    private Neighbourhood neighbourhood(VehicleRoutingSolution solution) {
+        Neighbourhood current = neighbourhood;
+        if (current == null || !current.isFor(solution)) {
+            current = new Neighbourhood(solution, maxRuinSize - 1);
+            neighbourhood = current;
+        }
+        return current;
+    }
+
+    /**
+     * Índices y vecinos más cercanos (en arreglos primitivos) de una solución de trabajo.
+     */
+    private static final class Neighbourhood {
+        private final List<Visit> source;
+        private final int sourceSize;
+        private final List<Visit> visits;
+        private final List<VehicleInfo> vehicles;
+        private final int vehiclesSize;
+        private final Map<VehicleInfo, Integer> vehicleIndex;
+        private final long[][] capacities;
+        private final int[][] neighbours;
+
+        private Neighbourhood(VehicleRoutingSolution solution, int neighbourCount) {
+            this.source = solution.getVisits();
+            this.sourceSize = source.size();
+            this.visits = new ArrayList<>();
+            for (Visit visit : source) {
+                if (visit.getLocation() != null && !visit.isPinned()) {
+                    visits.add(visit);
+                }
+            }
+            this.vehicles = solution.getVehicles();
+            this.vehiclesSize = vehicles.size();
+            this.vehicleIndex = new IdentityHashMap<>(vehicles.size());
+            this.capacities = new long[vehicles.size()][];
+            for (int i = 0; i < vehicles.size(); i++) {
+                VehicleInfo vehicle = vehicles.get(i);
+                vehicleIndex.put(vehicle, i);
+                capacities[i] = new long[] {
+                    capacity(vehicle.getCapacidadCantidad() != null, RoutingCosts.toCents(vehicle.getCapacidadCantidad())),
+                    capacity(vehicle.getCapacidadVolumen() != null, RoutingCosts.toCents(vehicle.getCapacidadVolumen())),
+                    capacity(vehicle.getCapacidadPeso() != null, RoutingCosts.toCents(vehicle.getCapacidadPeso()))
+                };
+            }
+
+            int n = visits.size();
+            double[] lat = new double[n];
+            double[] lon = new double[n];
+            for (int i = 0; i < n; i++) {
+                lat[i] = visits.get(i).getLocation().getLatitud().doubleValue();
+                lon[i] = visits.get(i).getLocation().getLongitud().doubleValue();
+            }
+            this.neighbours = new int[n][];
+            double[] distance = new double[n];
+            for (int i = 0; i < n; i++) {
+                for (int j = 0; j < n; j++) {
+                    distance[j] = RoutingCosts.haversineKm(lat[i], lon[i], lat[j], lon[j]);
+                }
+                neighbours[i] = NearestNeighbours.nearest(distance, i, neighbourCount);
+            }
+        }
+
+        private boolean isFor(VehicleRoutingSolution solution) {
+            return source == solution.getVisits() && sourceSize == source.size()
+                && vehicles == solution.getVehicles() && vehiclesSize == vehicles.size();
+        }
+
+        private static long capacity(boolean defined, long cents) {
+            return defined ? cents : NO_LIMIT;
+        }
+    }
+}
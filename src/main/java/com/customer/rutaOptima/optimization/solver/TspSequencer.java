@@ -0,0 +1,297 @@
+package com.customer.rutaOptima.optimization.solver;
+
+import java.util.Arrays;
+
+/**
+ * Secuencia las paradas de un vehículo (TSP cerrado: sale del depot y vuelve a él).
+ * Trabaja sobre una matriz de distancias primitiva donde el nodo 0 es el depot:
+ * - Hasta HELD_KARP_MAX_STOPS paradas: programación dinámica de Held-Karp (óptimo exacto).
+ * - Más paradas: nearest neighbour como punto de partida, mejorado con 2-opt y Or-opt
+ *   (segmentos de 1 a 3 paradas) restringidos a los vecinos más cercanos de cada nodo.
+ * Sin estado: se puede usar en paralelo para distintos vehículos.
+ */
+public final class TspSequencer {
+
+    public static final int HELD_KARP_MAX_STOPS = 12;
+
+    private static final int NEIGHBOUR_COUNT = 10;
+    private static final int OR_OPT_MAX_SEGMENT = 3;
+    private static final int MAX_PASSES = 100;
+    private static final double EPSILON = 1e-9;
+
+    private TspSequencer() {
+    }
+
+    /**
+     * Devuelve los nodos de las paradas (1..n) en orden de visita.
+     *
+     * @param distance matriz (n+1)x(n+1), nodo 0 = depot
+     */
+    public static int[] sequence(double[][] distance) {
+        int stops = distance.length - 1;
+        if (stops <= 2) {
+            int[] order = new int[Math.max(stops, 0)];
+            for (int i = 0; i < order.length; i++) {
+                order[i] = i + 1;
+            }
+            return order;
+        }
+        if (stops <= HELD_KARP_MAX_STOPS) {
+            return heldKarp(distance);
+        }
+        int[] tour = nearestNeighbourTour(distance);
+        improve(distance, tour);
+        return Arrays.copyOfRange(tour, 1, tour.length);
+    }
+
+    /**
+     * Largo del recorrido depot -> paradas en orden -> depot.
+     */
+    public static double tourLength(double[][] distance, int[] order) {
+        if (order.length == 0) {
+            return 0.0;
+        }
+        double length = distance[0][order[0]] + distance[order[order.length - 1]][0];
+        for (int i = 1; i < order.length; i++) {
+            length += distance[order[i - 1]][order[i]];
+        }
+        return length;
+    }
+
+    /**
+     * Orden por nearest neighbour desde el depot (referencia para medir la mejora).
+     */
+    public static int[] nearestNeighbour(double[][] distance) {
+        int[] tour = nearestNeighbourTour(distance);
+        return Arrays.copyOfRange(tour, 1, tour.length);
+    }
+
+    // --- Held-Karp ---
+
+    private static int[] heldKarp(double[][] distance) {
+        int n = distance.length - 1;
+        int full = (1 << n) - 1;
+        double[][] cost = new double[1 << n][n];
+        int[][] parent = new int[1 << n][n];
+        for (double[] row : cost) {
+            Arrays.fill(row, Double.MAX_VALUE);
+        }
+        for (int j = 0; j < n; j++) {
+            cost[1 << j][j] = distance[0][j + 1];
+            parent[1 << j][j] = -1;
+        }
+        for (int mask = 1; mask <= full; mask++) {
+            for (int j = 0; j < n; j++) {
+                double current = cost[mask][j];
+                if ((mask & (1 << j)) == 0 || current == Double.MAX_VALUE) {
+                    continue;
+                }
+                for (int k = 0; k < n; k++) {
+                    if ((mask & (1 << k)) != 0) {
+                        continue;
+                    }
+                    int next = mask | (1 << k);
+                    double candidate = current + distance[j + 1][k + 1];
+                    if (candidate < cost[next][k]) {
+                        cost[next][k] = candidate;
+                        parent[next][k] = j;
+                    }
+                }
+            }
+        }
+
+        int last = 0;
+        double best = Double.MAX_VALUE;
+        for (int j = 0; j < n; j++) {
+            double candidate = cost[full][j] + distance[j + 1][0];
+            if (candidate < best) {
+                best = candidate;
+                last = j;
+            }
+        }
+        int[] order = new int[n];
+        int mask = full;
+        for (int i = n - 1; i >= 0; i--) {
+            order[i] = last + 1;
+            int previous = parent[mask][last];
+            mask &= ~(1 << last);
+            last = previous;
+        }
+        return order;
+    }
+
+    // --- Nearest neighbour + 2-opt / Or-opt ---
+
+    /**
+     * Recorrido cerrado con el depot en la posición 0.
+     */
+    private static int[] nearestNeighbourTour(double[][] distance) {
+        int m = distance.length;
+        int[] tour = new int[m];
+        boolean[] visited = new boolean[m];
+        visited[0] = true;
+        int current = 0;
+        for (int i = 1; i < m; i++) {
+            int nearest = -1;
+            for (int candidate = 1; candidate < m; candidate++) {
+                if (!visited[candidate] && (nearest < 0 || distance[current][candidate] < distance[current][nearest])) {
+                    nearest = candidate;
+                }
+            }
+            tour[i] = nearest;
+            visited[nearest] = true;
+            current = nearest;
+        }
+        return tour;
+    }
+
+    private static void improve(double[][] distance, int[] tour) {
+        int[][] neighbours = neighbours(distance);
+        int[] position = new int[tour.length];
+        for (int pass = 0; pass < MAX_PASSES; pass++) {
+            boolean improved = twoOpt(distance, neighbours, tour, position);
+            improved |= orOpt(distance, neighbours, tour, position);
+            if (!improved) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Los NEIGHBOUR_COUNT nodos más cercanos de cada nodo.
+     */
+    private static int[][] neighbours(double[][] distance) {
+        int m = distance.length;
+        int[][] neighbours = new int[m][];
+        for (int a = 0; a < m; a++) {
+            neighbours[a] = NearestNeighbours.nearest(distance[a], a, NEIGHBOUR_COUNT);
+        }
+        return neighbours;
+    }
+
+    /**
+     * Una pasada de 2-opt (first improvement): reemplaza las aristas (a,b) y (c,d) por (a,c) y (b,d)
+     * para cada c vecino de a. El depot queda fijo en la posición 0.
+     */
+    private static boolean twoOpt(double[][] distance, int[][] neighbours, int[] tour, int[] position) {
+        int m = tour.length;
+        indexPositions(tour, position);
+        boolean improved = false;
+        for (int i = 0; i < m; i++) {
+            int a = tour[i];
+            int b = tour[(i + 1) % m];
+            for (int c : neighbours[a]) {
+                int j = position[c];
+                int d = tour[(j + 1) % m];
+                if (c == b || d == a) {
+                    continue;
+                }
+                double gain = distance[a][b] + distance[c][d] - distance[a][c] - distance[b][d];
+                if (gain > EPSILON) {
+                    if (i < j) {
+                        reverse(tour, position, i + 1, j);
+                    } else {
+                        reverse(tour, position, j + 1, i);
+                    }
+                    improved = true;
+                    a = tour[i];
+                    b = tour[(i + 1) % m];
+                }
+            }
+        }
+        return improved;
+    }
+
+    /**
+     * Una pasada de Or-opt: mueve segmentos de 1 a OR_OPT_MAX_SEGMENT paradas junto a un
+     * vecino de su primera parada, en la orientación más barata.
+     */
+    private static boolean orOpt(double[][] distance, int[][] neighbours, int[] tour, int[] position) {
+        int m = tour.length;
+        indexPositions(tour, position);
+        boolean improved = false;
+        for (int length = 1; length <= OR_OPT_MAX_SEGMENT; length++) {
+            for (int i = 1; i + length - 1 < m; i++) {
+                int end = i + length - 1;
+                int first = tour[i];
+                int last = tour[end];
+                int previous = tour[i - 1];
+                int next = tour[(end + 1) % m];
+                double removeGain = distance[previous][first] + distance[last][next] - distance[previous][next];
+                if (removeGain <= EPSILON) {
+                    continue;
+                }
+                for (int c : neighbours[first]) {
+                    int j = position[c];
+                    if (j >= i && j <= end) {
+                        continue;
+                    }
+                    int e = tour[(j + 1) % m];
+                    if (e == first) {
+                        continue;
+                    }
+                    double forward = distance[c][first] + distance[last][e] - distance[c][e];
+                    double backward = distance[c][last] + distance[first][e] - distance[c][e];
+                    double insertCost = Math.min(forward, backward);
+                    if (removeGain - insertCost > EPSILON) {
+                        moveSegment(tour, i, end, j, backward < forward);
+                        indexPositions(tour, position);
+                        improved = true;
+                        break;
+                    }
+                }
+            }
+        }
+        return improved;
+    }
+
+    /**
+     * Saca el segmento [from, to] y lo inserta después de la posición after (posición en el
+     * recorrido original), invertido si reversed.
+     */
+    private static void moveSegment(int[] tour, int from, int to, int after, boolean reversed) {
+        int m = tour.length;
+        int length = to - from + 1;
+        int[] segment = Arrays.copyOfRange(tour, from, to + 1);
+        if (reversed) {
+            for (int l = 0, r = length - 1; l < r; l++, r--) {
+                int tmp = segment[l];
+                segment[l] = segment[r];
+                segment[r] = tmp;
+            }
+        }
+        int afterNode = tour[after];
+        int[] rest = new int[m - length];
+        int k = 0;
+        for (int p = 0; p < m; p++) {
+            if (p < from || p > to) {
+                rest[k++] = tour[p];
+            }
+        }
+        k = 0;
+        for (int node : rest) {
+            tour[k++] = node;
+            if (node == afterNode) {
+                for (int s : segment) {
+                    tour[k++] = s;
+                }
+            }
+        }
+    }
+
+    private static void reverse(int[] tour, int[] position, int from, int to) {
+        for (int l = from, r = to; l < r; l++, r--) {
+            int tmp = tour[l];
+            tour[l] = tour[r];
+            tour[r] = tmp;
+            position[tour[l]] = l;
+            position[tour[r]] = r;
+        }
+    }
+
+    private static void indexPositions(int[] tour, int[] position) {
+        for (int p = 0; p < tour.length; p++) {
+            position[tour[p]] = p;
+        }
+    }
+}
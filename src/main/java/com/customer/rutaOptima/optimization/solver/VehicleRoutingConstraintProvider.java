@@ -1,9 +1,11 @@
 package com.customer.rutaOptima.optimization.solver;
 
 import java.math.BigDecimal;
+import java.util.Objects;
 
-import org.optaplanner.core.api.score.buildin.hardsoft.HardSoftScore;
+import org.optaplanner.core.api.score.buildin.hardmediumsoft.HardMediumSoftScore;
 import org.optaplanner.core.api.score.stream.Constraint;
+import org.optaplanner.core.api.score.stream.ConstraintCollectors;
 import org.optaplanner.core.api.score.stream.ConstraintFactory;
 import org.optaplanner.core.api.score.stream.ConstraintProvider;
 
@@ -12,7 +14,11 @@ import com.customer.rutaOptima.optimization.domain.Visit;
 /**
  * Define las restricciones del problema de ruteo.
  * - Hard constraints: deben cumplirse (capacidad, zonas)
+ * - Medium constraints: visitas sin asignar cuando la flota no alcanza (ponderadas por prioridad)
  * - Soft constraints: se minimizan (distancia, tiempo)
+ *
+ * VehicleRoutingIncrementalScoreCalculator implementa el mismo modelo; cualquier cambio
+ * aquí debe replicarse allí (el modo assert-score compara ambos).
  */
 public class VehicleRoutingConstraintProvider implements ConstraintProvider {
 
@@ -24,86 +30,86 @@ public class VehicleRoutingConstraintProvider implements ConstraintProvider {
             vehicleCapacityVolumen(constraintFactory),
             vehicleCapacityPeso(constraintFactory),
             vehicleZoneMatch(constraintFactory),
-            
+
+            // Medium constraints
+            unassignedVisit(constraintFactory),
+
             // Soft constraints
             minimizeTotalDistance(constraintFactory),
             minimizeTotalTravelTime(constraintFactory)
         };
     }
 
-    // Hard: La cantidad acumulada no debe exceder la capacidad del vehículo
+    // Hard: La cantidad total asignada no debe exceder la capacidad del vehículo
     Constraint vehicleCapacityCantidad(ConstraintFactory constraintFactory) {
         return constraintFactory.forEach(Visit.class)
-            .filter(visit -> visit.getVehicle() != null && visit.getAccumulatedCantidad() != null)
-            .filter(visit -> visit.getAccumulatedCantidad().compareTo(
-                visit.getVehicle().getCapacidadCantidad()) > 0)
-            .penalize(HardSoftScore.ONE_HARD,
-                visit -> {
-                    BigDecimal excess = visit.getAccumulatedCantidad()
-                        .subtract(visit.getVehicle().getCapacidadCantidad());
-                    return excess.intValue();
-                })
+            .groupBy(Visit::getVehicle,
+                ConstraintCollectors.sumBigDecimal(visit -> orZero(visit.getCantidad())))
+            .filter((vehicle, load) -> vehicle.getCapacidadCantidad() != null
+                && load.compareTo(vehicle.getCapacidadCantidad()) > 0)
+            .penalize(HardMediumSoftScore.ONE_HARD,
+                (vehicle, load) -> load.subtract(vehicle.getCapacidadCantidad()).intValue())
             .asConstraint("Capacidad cantidad del vehículo");
     }
 
-    // Hard: El volumen acumulado no debe exceder la capacidad del vehículo
+    // Hard: El volumen total asignado no debe exceder la capacidad del vehículo
     Constraint vehicleCapacityVolumen(ConstraintFactory constraintFactory) {
         return constraintFactory.forEach(Visit.class)
-            .filter(visit -> visit.getVehicle() != null && visit.getAccumulatedVolumen() != null)
-            .filter(visit -> visit.getAccumulatedVolumen().compareTo(
-                visit.getVehicle().getCapacidadVolumen()) > 0)
-            .penalize(HardSoftScore.ONE_HARD,
-                visit -> {
-                    BigDecimal excess = visit.getAccumulatedVolumen()
-                        .subtract(visit.getVehicle().getCapacidadVolumen());
-                    return excess.intValue();
-                })
+            .groupBy(Visit::getVehicle,
+                ConstraintCollectors.sumBigDecimal(visit -> orZero(visit.getVolumen())))
+            .filter((vehicle, load) -> vehicle.getCapacidadVolumen() != null
+                && load.compareTo(vehicle.getCapacidadVolumen()) > 0)
+            .penalize(HardMediumSoftScore.ONE_HARD,
+                (vehicle, load) -> load.subtract(vehicle.getCapacidadVolumen()).intValue())
             .asConstraint("Capacidad volumen del vehículo");
     }
 
-    // Hard: El peso acumulado no debe exceder la capacidad del vehículo
+    // Hard: El peso total asignado no debe exceder la capacidad del vehículo
     Constraint vehicleCapacityPeso(ConstraintFactory constraintFactory) {
         return constraintFactory.forEach(Visit.class)
-            .filter(visit -> visit.getVehicle() != null && visit.getAccumulatedPeso() != null)
-            .filter(visit -> visit.getAccumulatedPeso().compareTo(
-                visit.getVehicle().getCapacidadPeso()) > 0)
-            .penalize(HardSoftScore.ONE_HARD,
-                visit -> {
-                    BigDecimal excess = visit.getAccumulatedPeso()
-                        .subtract(visit.getVehicle().getCapacidadPeso());
-                    return excess.intValue();
-                })
+            .groupBy(Visit::getVehicle,
+                ConstraintCollectors.sumBigDecimal(visit -> orZero(visit.getPeso())))
+            .filter((vehicle, load) -> vehicle.getCapacidadPeso() != null
+                && load.compareTo(vehicle.getCapacidadPeso()) > 0)
+            .penalize(HardMediumSoftScore.ONE_HARD,
+                (vehicle, load) -> load.subtract(vehicle.getCapacidadPeso()).intValue())
             .asConstraint("Capacidad peso del vehículo");
     }
 
     // Hard: Las visitas deben estar en la zona del vehículo
     Constraint vehicleZoneMatch(ConstraintFactory constraintFactory) {
         return constraintFactory.forEach(Visit.class)
-            .filter(visit -> visit.getVehicle() != null && visit.getLocation() != null)
-            .filter(visit -> {
-                String vehicleZone = visit.getVehicle().getZona();
-                String visitZone = visit.getLocation().getZona();
-                return vehicleZone != null && visitZone != null && !vehicleZone.equalsIgnoreCase(visitZone);
-            })
-            .penalize(HardSoftScore.ONE_HARD, visit -> 100)
+            .filter(visit -> RoutingCosts.isZoneMismatch(visit.getVehicle(), visit))
+            .penalize(HardMediumSoftScore.ofHard(RoutingCosts.ZONE_MISMATCH_PENALTY))
             .asConstraint("Vehículo debe estar en la zona correcta");
     }
 
-    // Soft: Minimizar la distancia total (usando OSRM - ya calculado en shadow variables)
+    // Medium: Cada visita sin vehículo penaliza según su prioridad
+    // (forEach excluye las visitas con vehicle null, por eso las demás restricciones no las ven)
+    Constraint unassignedVisit(ConstraintFactory constraintFactory) {
+        return constraintFactory.forEachIncludingNullVars(Visit.class)
+            .filter(visit -> visit.getVehicle() == null)
+            .penalize(HardMediumSoftScore.ONE_MEDIUM, RoutingCosts::unassignedPenalty)
+            .asConstraint("Visita sin asignar");
+    }
+
+    // Soft: Minimizar la distancia total (aproximada desde el depot del vehículo)
     Constraint minimizeTotalDistance(ConstraintFactory constraintFactory) {
         return constraintFactory.forEach(Visit.class)
-            .filter(visit -> visit.getDistanceFromPreviousKm() != null)
-            .penalize(HardSoftScore.ONE_SOFT,
-                visit -> (int) (visit.getDistanceFromPreviousKm() * 1000)) // metros
+            .penalize(HardMediumSoftScore.ONE_SOFT,
+                visit -> RoutingCosts.distanceMeters(visit.getVehicle(), visit)) // metros
             .asConstraint("Minimizar distancia total");
     }
 
     // Soft: Minimizar el tiempo total de viaje
     Constraint minimizeTotalTravelTime(ConstraintFactory constraintFactory) {
         return constraintFactory.forEach(Visit.class)
-            .filter(visit -> visit.getTravelTimeFromPreviousMin() != null)
-            .penalize(HardSoftScore.ONE_SOFT,
-                Visit::getTravelTimeFromPreviousMin)
+            .penalize(HardMediumSoftScore.ONE_SOFT,
+                visit -> RoutingCosts.travelTimeMin(visit.getVehicle(), visit))
             .asConstraint("Minimizar tiempo de viaje");
     }
+
+    private static BigDecimal orZero(BigDecimal value) {
+        return Objects.requireNonNullElse(value, BigDecimal.ZERO);
+    }
 }
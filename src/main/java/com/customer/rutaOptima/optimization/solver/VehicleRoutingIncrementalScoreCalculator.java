@@ -0,0 +1,191 @@
+package com.customer.rutaOptima.optimization.solver;
+
+import java.math.BigDecimal;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.optaplanner.core.api.score.buildin.hardmediumsoft.HardMediumSoftScore;
+import org.optaplanner.core.api.score.calculator.IncrementalScoreCalculator;
+
+import com.customer.rutaOptima.optimization.domain.VehicleInfo;
+import com.customer.rutaOptima.optimization.domain.VehicleRoutingSolution;
+import com.customer.rutaOptima.optimization.domain.Visit;
+
+/**
+ * Score calculator incremental, alternativa a VehicleRoutingConstraintProvider.
+ * Mantiene la carga y los costos de cada vehículo en arreglos primitivos y los actualiza
+ * en O(1) por cada cambio de la variable vehicle. Implementa el mismo modelo que las
+ * constraint streams (ver RoutingCosts).
+ */
+public class VehicleRoutingIncrementalScoreCalculator
+        implements IncrementalScoreCalculator<VehicleRoutingSolution, HardMediumSoftScore> {
+
+    private static final long NO_LIMIT = Long.MAX_VALUE;
+
+    private Map<VehicleInfo, Integer> vehicleIndexMap;
+    private Map<Visit, Integer> visitIndexMap;
+    private int vehicleCount;
+
+    // Capacidades y cargas por vehículo, en centésimas
+    private long[] capacidadCantidad;
+    private long[] capacidadVolumen;
+    private long[] capacidadPeso;
+    private long[] loadCantidad;
+    private long[] loadVolumen;
+    private long[] loadPeso;
+
+    // Costos precalculados por (visita, vehículo): índice visitIndex * vehicleCount + vehicleIndex
+    private int[] distanceMeters;
+    private int[] travelTimeMin;
+    private boolean[] zoneMismatch;
+
+    private int hardScore;
+    private int mediumScore;
+    private int softScore;
+
+    @Override
+    public void resetWorkingSolution(VehicleRoutingSolution workingSolution) {
+        List<VehicleInfo> vehicles = workingSolution.getVehicles();
+        List<Visit> visits = workingSolution.getVisits();
+        vehicleCount = vehicles.size();
+        int visitCount = visits.size();
+
+        vehicleIndexMap = new IdentityHashMap<>(vehicleCount);
+        capacidadCantidad = new long[vehicleCount];
+        capacidadVolumen = new long[vehicleCount];
+        capacidadPeso = new long[vehicleCount];
+        loadCantidad = new long[vehicleCount];
+        loadVolumen = new long[vehicleCount];
+        loadPeso = new long[vehicleCount];
+        for (int i = 0; i < vehicleCount; i++) {
+            VehicleInfo vehicle = vehicles.get(i);
+            vehicleIndexMap.put(vehicle, i);
+            capacidadCantidad[i] = capacity(vehicle.getCapacidadCantidad());
+            capacidadVolumen[i] = capacity(vehicle.getCapacidadVolumen());
+            capacidadPeso[i] = capacity(vehicle.getCapacidadPeso());
+        }
+
+        visitIndexMap = new IdentityHashMap<>(visitCount);
+        distanceMeters = new int[visitCount * vehicleCount];
+        travelTimeMin = new int[visitCount * vehicleCount];
+        zoneMismatch = new boolean[visitCount * vehicleCount];
+        for (int v = 0; v < visitCount; v++) {
+            Visit visit = visits.get(v);
+            visitIndexMap.put(visit, v);
+            for (int i = 0; i < vehicleCount; i++) {
+                VehicleInfo vehicle = vehicles.get(i);
+                int cell = v * vehicleCount + i;
+                distanceMeters[cell] = RoutingCosts.distanceMeters(vehicle, visit);
+                travelTimeMin[cell] = RoutingCosts.travelTimeMin(vehicle, visit);
+                zoneMismatch[cell] = RoutingCosts.isZoneMismatch(vehicle, visit);
+            }
+        }
+
+        hardScore = 0;
+        mediumScore = 0;
+        softScore = 0;
+        for (Visit visit : visits) {
+            insert(visit);
+        }
+    }
+
+    @Override
+    public void beforeEntityAdded(Object entity) {
+        // No action needed
+    }
+
+    @Override
+    public void afterEntityAdded(Object entity) {
+        insert((Visit) entity);
+    }
+
+    @Override
+    public void beforeVariableChanged(Object entity, String variableName) {
+        if ("vehicle".equals(variableName)) {
+            retract((Visit) entity);
+        }
+    }
+
+    @Override
+    public void afterVariableChanged(Object entity, String variableName) {
+        if ("vehicle".equals(variableName)) {
+            insert((Visit) entity);
+        }
+    }
+
+    @Override
+    public void beforeEntityRemoved(Object entity) {
+        retract((Visit) entity);
+    }
+
+    @Override
+    public void afterEntityRemoved(Object entity) {
+        // No action needed
+    }
+
+    @Override
+    public HardMediumSoftScore calculateScore() {
+        return HardMediumSoftScore.of(hardScore, mediumScore, softScore);
+    }
+
+    private void insert(Visit visit) {
+        apply(visit, 1);
+    }
+
+    private void retract(Visit visit) {
+        apply(visit, -1);
+    }
+
+    /**
+     * Suma (sign = 1) o resta (sign = -1) la visita de los totales de su vehículo,
+     * o de la penalización medium si está sin asignar.
+     */
+    private void apply(Visit visit, int sign) {
+        VehicleInfo vehicle = visit.getVehicle();
+        if (vehicle == null) {
+            mediumScore -= sign * RoutingCosts.unassignedPenalty(visit);
+            return;
+        }
+        int i = vehicleIndexMap.get(vehicle);
+
+        hardScore += capacityPenalty(i);
+        loadCantidad[i] += sign * RoutingCosts.toCents(visit.getCantidad());
+        loadVolumen[i] += sign * RoutingCosts.toCents(visit.getVolumen());
+        loadPeso[i] += sign * RoutingCosts.toCents(visit.getPeso());
+        hardScore -= capacityPenalty(i);
+
+        Integer v = visitIndexMap.get(visit);
+        if (v != null) {
+            int cell = v * vehicleCount + i;
+            if (zoneMismatch[cell]) {
+                hardScore -= sign * RoutingCosts.ZONE_MISMATCH_PENALTY;
+            }
+            softScore -= sign * (distanceMeters[cell] + travelTimeMin[cell]);
+        } else {
+            // Visita agregada después del reset (problem change): calcular en el momento
+            if (RoutingCosts.isZoneMismatch(vehicle, visit)) {
+                hardScore -= sign * RoutingCosts.ZONE_MISMATCH_PENALTY;
+            }
+            softScore -= sign * (RoutingCosts.distanceMeters(vehicle, visit)
+                + RoutingCosts.travelTimeMin(vehicle, visit));
+        }
+    }
+
+    private int capacityPenalty(int i) {
+        return excess(loadCantidad[i], capacidadCantidad[i])
+            + excess(loadVolumen[i], capacidadVolumen[i])
+            + excess(loadPeso[i], capacidadPeso[i]);
+    }
+
+    /**
+     * Exceso en unidades enteras (truncado), igual que BigDecimal.intValue() en las constraint streams.
+     */
+    private static int excess(long load, long capacity) {
+        return load > capacity ? (int) ((load - capacity) / 100) : 0;
+    }
+
+    private static long capacity(BigDecimal value) {
+        return value != null ? RoutingCosts.toCents(value) : NO_LIMIT;
+    }
+}
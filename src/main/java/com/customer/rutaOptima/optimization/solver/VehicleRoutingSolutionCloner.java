@@ -0,0 +1,98 @@
+package com.customer.rutaOptima.optimization.solver;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import org.optaplanner.core.api.domain.solution.cloner.SolutionCloner;
+
+import com.customer.rutaOptima.optimization.domain.VehicleInfo;
+import com.customer.rutaOptima.optimization.domain.VehicleRoutingSolution;
+import com.customer.rutaOptima.optimization.domain.Visit;
+
+/**
+ * Cloner específico para VehicleRoutingSolution.
+ * OptaPlanner clona la solución cada vez que encuentra una nueva mejor solución; en lugar del
+ * cloner genérico por reflexión, aquí solo se copia el estado de planificación y las variables
+ * calculadas de cada Visit. Los hechos del problema (Location, VehicleInfo) no cambian durante
+ * el solving y se comparten entre el original y el clon.
+ */
+public class VehicleRoutingSolutionCloner implements SolutionCloner<VehicleRoutingSolution> {
+
+    @Override
+    public VehicleRoutingSolution cloneSolution(VehicleRoutingSolution original) {
+        VehicleRoutingSolution clone = new VehicleRoutingSolution();
+
+        List<VehicleInfo> vehicles = original.getVehicles();
+        clone.setVehicles(vehicles != null ? new ArrayList<>(vehicles) : null);
+
+        List<Visit> visits = original.getVisits();
+        if (visits != null) {
+            int size = visits.size();
+            Visit[] clonedVisits = new Visit[size];
+            boolean hasChain = false;
+            for (int i = 0; i < size; i++) {
+                Visit visit = visits.get(i);
+                clonedVisits[i] = cloneVisit(visit);
+                hasChain |= visit.getPreviousVisit() != null;
+            }
+
+            // previousVisit apunta a otra visita: reasignar la referencia al clon correspondiente
+            if (hasChain) {
+                Map<Visit, Visit> cloneByOriginal = new IdentityHashMap<>(size);
+                for (int i = 0; i < size; i++) {
+                    cloneByOriginal.put(visits.get(i), clonedVisits[i]);
+                }
+                for (int i = 0; i < size; i++) {
+                    Visit previous = visits.get(i).getPreviousVisit();
+                    if (previous != null) {
+                        // Una visita fuera de la lista filtraría referencias de la working solution al clon
+                        clonedVisits[i].setPreviousVisit(Objects.requireNonNull(cloneByOriginal.get(previous),
+                            () -> "previousVisit " + previous.getId() + " no pertenece a la solución"));
+                    }
+                }
+            }
+
+            List<Visit> clonedList = new ArrayList<>(size);
+            for (Visit clonedVisit : clonedVisits) {
+                clonedList.add(clonedVisit);
+            }
+            clone.setVisits(clonedList);
+        }
+
+        clone.setScore(original.getScore()); // Score es inmutable
+        return clone;
+    }
+
+    /**
+     * Copia una visita (también usado por el partitioner para armar las particiones y por
+     * AddVisitProblemChange, que agrega una copia a cada solver).
+     */
+    public static Visit cloneVisit(Visit original) {
+        Visit clone = new Visit();
+        // Datos del pedido (inmutables, se comparten)
+        clone.setId(original.getId());
+        clone.setOrderId(original.getOrderId());
+        clone.setLocation(original.getLocation());
+        clone.setCantidad(original.getCantidad());
+        clone.setVolumen(original.getVolumen());
+        clone.setPeso(original.getPeso());
+        clone.setPrioridad(original.getPrioridad());
+        clone.setPinned(original.isPinned());
+
+        // Variable de planificación
+        clone.setVehicle(original.getVehicle());
+
+        // Variables calculadas (previousVisit se reasigna en cloneSolution)
+        clone.setPreviousVisit(original.getPreviousVisit());
+        clone.setArrivalTime(original.getArrivalTime());
+        clone.setAccumulatedCantidad(original.getAccumulatedCantidad());
+        clone.setAccumulatedVolumen(original.getAccumulatedVolumen());
+        clone.setAccumulatedPeso(original.getAccumulatedPeso());
+        clone.setDistanceFromPreviousKm(original.getDistanceFromPreviousKm());
+        clone.setTravelTimeFromPreviousMin(original.getTravelTimeFromPreviousMin());
+        return clone;
+    }
+}
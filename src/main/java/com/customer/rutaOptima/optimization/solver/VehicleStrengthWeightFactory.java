@@ -0,0 +1,67 @@
+package com.customer.rutaOptima.optimization.solver;
+
+import java.math.BigDecimal;
+import java.util.Comparator;
+
+import org.optaplanner.core.impl.heuristic.selector.common.decorator.SelectionSorterWeightFactory;
+
+import com.customer.rutaOptima.optimization.domain.VehicleInfo;
+import com.customer.rutaOptima.optimization.domain.VehicleRoutingSolution;
+import com.customer.rutaOptima.optimization.domain.Visit;
+
+/**
+ * Fuerza de un vehículo para la construction heuristic (DECREASING_STRENGTH): capacidad
+ * restante en cantidad, luego volumen y peso, descontando las visitas que ya tiene asignadas
+ * al empezar la fase (fijadas o ubicadas por Clarke-Wright). Una capacidad no definida cuenta
+ * como ilimitada. Como Visit.vehicle es nullable, el sorter también recibe null (dejar la visita
+ * sin asignar), que es el valor más débil: se prueba último.
+ */
+public class VehicleStrengthWeightFactory
+        implements SelectionSorterWeightFactory<VehicleRoutingSolution, VehicleInfo> {
+
+    private static final long NO_LIMIT = Long.MAX_VALUE;
+
+    private static final VehicleStrengthWeight UNASSIGNED =
+        new VehicleStrengthWeight(Long.MIN_VALUE, Long.MIN_VALUE, Long.MIN_VALUE, Long.MIN_VALUE);
+
+    private static final Comparator<VehicleStrengthWeight> COMPARATOR = Comparator
+        .comparingLong(VehicleStrengthWeight::remainingCantidad)
+        .thenComparingLong(VehicleStrengthWeight::remainingVolumen)
+        .thenComparingLong(VehicleStrengthWeight::remainingPeso)
+        .thenComparingLong(VehicleStrengthWeight::id);
+
+    @Override
+    public VehicleStrengthWeight createSorterWeight(VehicleRoutingSolution solution, VehicleInfo vehicle) {
+        if (vehicle == null) {
+            return UNASSIGNED;
+        }
+        long cantidad = 0;
+        long volumen = 0;
+        long peso = 0;
+        for (Visit visit : solution.getVisits()) {
+            if (visit.getVehicle() == vehicle) {
+                cantidad += RoutingCosts.toCents(visit.getCantidad());
+                volumen += RoutingCosts.toCents(visit.getVolumen());
+                peso += RoutingCosts.toCents(visit.getPeso());
+            }
+        }
+        return new VehicleStrengthWeight(
+            remaining(vehicle.getCapacidadCantidad(), cantidad),
+            remaining(vehicle.getCapacidadVolumen(), volumen),
+            remaining(vehicle.getCapacidadPeso(), peso),
+            vehicle.getVehicleId() != null ? vehicle.getVehicleId() : 0L);
+    }
+
+    private static long remaining(BigDecimal capacity, long load) {
+        return capacity != null ? RoutingCosts.toCents(capacity) - load : NO_LIMIT;
+    }
+
+    public record VehicleStrengthWeight(long remainingCantidad, long remainingVolumen, long remainingPeso, long id)
+            implements Comparable<VehicleStrengthWeight> {
+
+        @Override
+        public int compareTo(VehicleStrengthWeight other) {
+            return COMPARATOR.compare(this, other);
+        }
+    }
+}
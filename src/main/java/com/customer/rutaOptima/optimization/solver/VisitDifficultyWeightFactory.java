@@ -0,0 +1,72 @@
+package com.customer.rutaOptima.optimization.solver;
+
+import java.math.BigDecimal;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Function;
+
+import org.optaplanner.core.impl.heuristic.selector.common.decorator.SelectionSorterWeightFactory;
+
+import com.customer.rutaOptima.optimization.domain.VehicleInfo;
+import com.customer.rutaOptima.optimization.domain.VehicleRoutingSolution;
+import com.customer.rutaOptima.optimization.domain.Visit;
+
+/**
+ * Dificultad de una visita para la construction heuristic (DECREASING_DIFFICULTY):
+ * primero las que ocupan más capacidad (la mayor fracción de cantidad, volumen o peso respecto
+ * del vehículo más grande de la flota), luego las de mayor prioridad y por último las más
+ * alejadas del depot más cercano. Así las visitas difíciles de ubicar eligen vehículo antes
+ * de que la flota se llene.
+ */
+public class VisitDifficultyWeightFactory
+        implements SelectionSorterWeightFactory<VehicleRoutingSolution, Visit> {
+
+    private static final Comparator<VisitDifficultyWeight> COMPARATOR = Comparator
+        .comparingDouble(VisitDifficultyWeight::demandRatio)
+        .thenComparingInt(VisitDifficultyWeight::prioridad)
+        .thenComparingDouble(VisitDifficultyWeight::depotDistanceKm)
+        .thenComparingLong(VisitDifficultyWeight::id);
+
+    @Override
+    public VisitDifficultyWeight createSorterWeight(VehicleRoutingSolution solution, Visit visit) {
+        List<VehicleInfo> vehicles = solution.getVehicles();
+        double demandRatio = Math.max(
+            ratio(visit.getCantidad(), vehicles, VehicleInfo::getCapacidadCantidad),
+            Math.max(
+                ratio(visit.getVolumen(), vehicles, VehicleInfo::getCapacidadVolumen),
+                ratio(visit.getPeso(), vehicles, VehicleInfo::getCapacidadPeso)));
+
+        double depotDistanceKm = Double.MAX_VALUE;
+        for (VehicleInfo vehicle : vehicles) {
+            depotDistanceKm = Math.min(depotDistanceKm, RoutingCosts.depotDistanceKm(vehicle, visit));
+        }
+        if (vehicles.isEmpty()) {
+            depotDistanceKm = 0.0;
+        }
+
+        return new VisitDifficultyWeight(demandRatio, RoutingCosts.unassignedPenalty(visit), depotDistanceKm,
+            visit.getId() != null ? visit.getId() : 0L);
+    }
+
+    /**
+     * Demanda de la visita sobre la mayor capacidad de la flota en esa dimensión
+     * (0 si ningún vehículo tiene la capacidad definida).
+     */
+    private static double ratio(BigDecimal demand, List<VehicleInfo> vehicles,
+                                Function<VehicleInfo, BigDecimal> capacity) {
+        long maxCapacity = 0;
+        for (VehicleInfo vehicle : vehicles) {
+            maxCapacity = Math.max(maxCapacity, RoutingCosts.toCents(capacity.apply(vehicle)));
+        }
+        return maxCapacity > 0 ? (double) RoutingCosts.toCents(demand) / maxCapacity : 0.0;
+    }
+
+    public record VisitDifficultyWeight(double demandRatio, int prioridad, double depotDistanceKm, long id)
+            implements Comparable<VisitDifficultyWeight> {
+
+        @Override
+        public int compareTo(VisitDifficultyWeight other) {
+            return COMPARATOR.compare(this, other);
+        }
+    }
+}
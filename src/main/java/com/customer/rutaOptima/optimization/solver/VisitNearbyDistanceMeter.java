@@ -0,0 +1,19 @@
+package com.customer.rutaOptima.optimization.solver;
+
+import org.optaplanner.core.impl.heuristic.selector.common.nearby.NearbyDistanceMeter;
+
+import com.customer.rutaOptima.optimization.domain.Visit;
+
+/**
+ * Nearby selection para swap moves: se intercambian preferentemente visitas cercanas entre sí.
+ */
+public class VisitNearbyDistanceMeter implements NearbyDistanceMeter<Visit, Visit> {
+
+    @Override
+    public double getNearbyDistance(Visit origin, Visit destination) {
+        if (origin.getLocation() == null || destination.getLocation() == null) {
+            return Double.MAX_VALUE;
+        }
+        return RoutingCosts.haversineKm(origin.getLocation(), destination.getLocation());
+    }
+}
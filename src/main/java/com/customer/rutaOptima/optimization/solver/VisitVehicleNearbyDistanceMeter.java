@@ -0,0 +1,19 @@
+package com.customer.rutaOptima.optimization.solver;
+
+import org.optaplanner.core.impl.heuristic.selector.common.nearby.NearbyDistanceMeter;
+
+import com.customer.rutaOptima.optimization.domain.VehicleInfo;
+import com.customer.rutaOptima.optimization.domain.Visit;
+
+/**
+ * Nearby selection para change moves: los vehículos cuyo depot está más cerca de la visita
+ * se prueban con mayor probabilidad. Dejar la visita sin asignar (destino null, Visit.vehicle es
+ * nullable) cuenta como el destino más lejano.
+ */
+public class VisitVehicleNearbyDistanceMeter implements NearbyDistanceMeter<Visit, VehicleInfo> {
+
+    @Override
+    public double getNearbyDistance(Visit origin, VehicleInfo destination) {
+        return destination != null ? RoutingCosts.depotDistanceKm(destination, origin) : Double.MAX_VALUE;
+    }
+}
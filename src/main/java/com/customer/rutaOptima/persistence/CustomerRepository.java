@@ -1,22 +1,50 @@
 package com.customer.rutaOptima.persistence;
 
+import com.customer.rutaOptima.config.CacheConfig;
 import com.customer.rutaOptima.domain.Customer;
+import com.customer.rutaOptima.persistence.projection.CustomerLocation;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.math.BigDecimal;
+import java.util.Collection;
 import java.util.List;
 
 /**
- * Repositorio para la entidad Customer
+ * Repositorio para la entidad Customer.
+ * Los listados de clientes activos usan el cache de consultas (región customer-queries); las
+ * escrituras JDBC de la importación masiva la invalidan con ReferenceDataCacheEvictor.
  */
 @Repository
 public interface CustomerRepository extends JpaRepository<Customer, Long> {
 
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = CacheConfig.CUSTOMER_QUERIES)
+    })
     List<Customer> findByActivoTrue();
 
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = CacheConfig.CUSTOMER_QUERIES)
+    })
     @Query("SELECT c FROM Customer c WHERE c.activo = true ORDER BY c.nombre")
     List<Customer> findAllActiveCustomersOrdered();
     
     List<Customer> findByZona(String zona);
+
+    @Query("SELECT c.id FROM Customer c WHERE c.id IN :ids")
+    List<Long> findExistingIds(@Param("ids") Collection<Long> ids);
+
+    List<Customer> findByCodigoExternoIn(Collection<String> codigosExternos);
+
+    @Query(CustomerLocation.SELECT + "FROM Customer c WHERE c.latitud BETWEEN :minLat AND :maxLat " +
+           "AND c.longitud BETWEEN :minLon AND :maxLon")
+    List<CustomerLocation> findLocationsWithin(@Param("minLat") BigDecimal minLat, @Param("maxLat") BigDecimal maxLat,
+                                               @Param("minLon") BigDecimal minLon, @Param("maxLon") BigDecimal maxLon);
 }
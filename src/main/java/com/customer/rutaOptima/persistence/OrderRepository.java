@@ -1,13 +1,20 @@
 package com.customer.rutaOptima.persistence;
 
 import com.customer.rutaOptima.domain.Order;
+import com.customer.rutaOptima.persistence.projection.OrderSnapshot;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.Instant;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 /**
  * Repositorio para la entidad Order
@@ -25,6 +32,11 @@ public interface OrderRepository extends JpaRepository<Order, Long> {
 
     List<Order> findByCustomerId(Long customerId);
 
+    // Pedido con lock de escritura: un pedido urgente no puede entrar en dos planes a la vez
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT o FROM Order o JOIN FETCH o.customer c WHERE o.id = :id")
+    Optional<Order> findByIdForUpdate(@Param("id") Long id);
+
     @Query("SELECT o FROM Order o WHERE o.fechaEntrega = :fecha AND o.estado = 'PENDIENTE' ORDER BY o.prioridad DESC, o.id")
     List<Order> findPendingOrdersByFecha(@Param("fecha") Instant fecha);
 
@@ -34,6 +46,63 @@ public interface OrderRepository extends JpaRepository<Order, Long> {
     @Query("SELECT o FROM Order o JOIN FETCH o.customer c WHERE o.fechaEntrega >= :start AND o.fechaEntrega < :end AND o.estado = 'PENDIENTE' ORDER BY o.prioridad DESC, o.id")
     List<Order> findPendingOrdersWithCustomerBetween(@Param("start") Instant start, @Param("end") Instant end);
 
+    // Paginación por keyset: (fecha_entrega, id) dentro de un rango de fechas, o id sin fecha
+
+    @Query("SELECT o FROM Order o WHERE o.id > :afterId ORDER BY o.id")
+    List<Order> findPageAfterId(@Param("afterId") long afterId, Limit limit);
+
+    @Query("SELECT o FROM Order o WHERE o.estado = :estado AND o.id > :afterId ORDER BY o.id")
+    List<Order> findPageByEstadoAfterId(@Param("estado") String estado, @Param("afterId") long afterId, Limit limit);
+
+    @Query("SELECT o FROM Order o WHERE o.fechaEntrega >= :start AND o.fechaEntrega < :end " +
+           "AND (o.fechaEntrega > :afterFecha OR (o.fechaEntrega = :afterFecha AND o.id > :afterId)) " +
+           "ORDER BY o.fechaEntrega, o.id")
+    List<Order> findPageByFechaRange(@Param("start") Instant start, @Param("end") Instant end,
+                                     @Param("afterFecha") Instant afterFecha, @Param("afterId") long afterId,
+                                     Limit limit);
+
+    @Query("SELECT o FROM Order o WHERE o.estado = :estado AND o.fechaEntrega >= :start AND o.fechaEntrega < :end " +
+           "AND (o.fechaEntrega > :afterFecha OR (o.fechaEntrega = :afterFecha AND o.id > :afterId)) " +
+           "ORDER BY o.fechaEntrega, o.id")
+    List<Order> findPageByEstadoAndFechaRange(@Param("estado") String estado,
+                                              @Param("start") Instant start, @Param("end") Instant end,
+                                              @Param("afterFecha") Instant afterFecha, @Param("afterId") long afterId,
+                                              Limit limit);
+
+    @Query(OrderSnapshot.SELECT + "FROM Order o JOIN o.customer c WHERE o.fechaEntrega >= :start AND o.fechaEntrega < :end " +
+           "AND o.estado = 'PENDIENTE' ORDER BY o.prioridad DESC, o.id")
+    List<OrderSnapshot> findPendingSnapshotsBetween(@Param("start") Instant start, @Param("end") Instant end);
+
+    @Query(OrderSnapshot.SELECT + "FROM Order o JOIN o.customer c WHERE o.id IN :ids")
+    List<OrderSnapshot> findSnapshotsByIdIn(@Param("ids") Collection<Long> ids);
+
+    /**
+     * Pasa a PLANIFICADO los pedidos pendientes que tienen parada en el plan (un solo UPDATE).
+     */
+    @Modifying
+    @Query("UPDATE Order o SET o.estado = 'PLANIFICADO', o.updatedAt = :now WHERE o.estado = 'PENDIENTE' " +
+           "AND o.id IN (SELECT rs.order.id FROM RouteStop rs WHERE rs.routePlan.id = :routePlanId)")
+    int markPlannedByRoutePlanId(@Param("routePlanId") Long routePlanId, @Param("now") Instant now);
+
+    /**
+     * Devuelve a PENDIENTE los pedidos planificados que tienen parada en el plan (un solo UPDATE).
+     */
+    @Modifying
+    @Query("UPDATE Order o SET o.estado = 'PENDIENTE', o.updatedAt = :now WHERE o.estado = 'PLANIFICADO' " +
+           "AND o.id IN (SELECT rs.order.id FROM RouteStop rs WHERE rs.routePlan.id = :routePlanId)")
+    int markPendingByRoutePlanId(@Param("routePlanId") Long routePlanId, @Param("now") Instant now);
+
+    @Modifying
+    @Query("UPDATE Order o SET o.estado = 'PENDIENTE', o.updatedAt = :now WHERE o.estado = 'PLANIFICADO' AND o.id IN :ids")
+    int markPendingByIdIn(@Param("ids") Collection<Long> ids, @Param("now") Instant now);
+
+    /**
+     * Pasa a CANCELADO los pedidos planificados indicados (un solo UPDATE).
+     */
+    @Modifying
+    @Query("UPDATE Order o SET o.estado = 'CANCELADO', o.updatedAt = :now WHERE o.estado = 'PLANIFICADO' AND o.id IN :ids")
+    int markCancelledByIdIn(@Param("ids") Collection<Long> ids, @Param("now") Instant now);
+
     @Query("SELECT COUNT(o) FROM Order o WHERE o.customer.id = :customerId")
     long countByCustomerId(@Param("customerId") Long customerId);
 }
@@ -1,7 +1,11 @@
 package com.customer.rutaOptima.persistence;
 
 import com.customer.rutaOptima.domain.RoutePlan;
+import com.customer.rutaOptima.persistence.projection.RoutePlanSummary;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
@@ -26,9 +30,42 @@ public interface RoutePlanRepository extends JpaRepository<RoutePlan, Long> {
     @Query("SELECT rp FROM RoutePlan rp WHERE rp.fecha >= :start AND rp.fecha < :end ORDER BY rp.createdAt DESC")
     List<RoutePlan> findByFechaBetweenOrderedByCreatedDesc(@Param("start") Instant start, @Param("end") Instant end);
 
+    // Paginación por keyset: id descendente (los planes más nuevos primero), solo resúmenes sin paradas
+
+    @Query(RoutePlanSummary.SELECT + "FROM RoutePlan rp WHERE rp.id < :beforeId ORDER BY rp.id DESC")
+    List<RoutePlanSummary> findPageBeforeId(@Param("beforeId") long beforeId, Limit limit);
+
+    @Query(RoutePlanSummary.SELECT + "FROM RoutePlan rp WHERE rp.estado = :estado AND rp.id < :beforeId ORDER BY rp.id DESC")
+    List<RoutePlanSummary> findPageByEstadoBeforeId(@Param("estado") RoutePlan.Estado estado,
+                                                    @Param("beforeId") long beforeId, Limit limit);
+
+    @Query(RoutePlanSummary.SELECT + "FROM RoutePlan rp WHERE rp.fecha >= :start AND rp.fecha < :end AND rp.id < :beforeId " +
+           "ORDER BY rp.id DESC")
+    List<RoutePlanSummary> findPageByFechaBetweenBeforeId(@Param("start") Instant start, @Param("end") Instant end,
+                                                          @Param("beforeId") long beforeId, Limit limit);
+
+    @Query(RoutePlanSummary.SELECT + "FROM RoutePlan rp WHERE rp.fecha >= :start AND rp.fecha < :end AND rp.estado = :estado " +
+           "AND rp.id < :beforeId ORDER BY rp.id DESC")
+    List<RoutePlanSummary> findPageByFechaBetweenAndEstadoBeforeId(@Param("start") Instant start, @Param("end") Instant end,
+                                                                   @Param("estado") RoutePlan.Estado estado,
+                                                                   @Param("beforeId") long beforeId, Limit limit);
+
+    @Query(RoutePlanSummary.SELECT + "FROM RoutePlan rp WHERE rp.id = :id")
+    Optional<RoutePlanSummary> findSummaryById(@Param("id") Long id);
+
+    /**
+     * Plan con lock de escritura (SELECT ... FOR UPDATE) hasta el fin de la transacción: serializa las
+     * inserciones urgentes entre sí y contra el paso a OPTIMIZING de la reparación y la re-optimización.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT rp FROM RoutePlan rp WHERE rp.id = :id")
+    Optional<RoutePlan> findByIdForUpdate(@Param("id") Long id);
+
     @Query("SELECT rp FROM RoutePlan rp LEFT JOIN FETCH rp.stops WHERE rp.id = :id")
     Optional<RoutePlan> findByIdWithStops(@Param("id") Long id);
 
+    List<RoutePlan> findByEstadoAndUpdatedAtBefore(RoutePlan.Estado estado, Instant updatedBefore);
+
     @Query("SELECT rp FROM RoutePlan rp WHERE rp.fecha >= :start AND rp.fecha < :end AND rp.estado = com.customer.rutaOptima.domain.RoutePlan$Estado.OPTIMIZED ORDER BY rp.createdAt DESC")
     List<RoutePlan> findOptimizedPlansByFechaRange(@Param("start") Instant start, @Param("end") Instant end);
 }
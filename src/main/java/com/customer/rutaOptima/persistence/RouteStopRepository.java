@@ -2,6 +2,10 @@ package com.customer.rutaOptima.persistence;
 
 import com.customer.rutaOptima.domain.RoutePlan;
 import com.customer.rutaOptima.domain.RouteStop;
+import com.customer.rutaOptima.persistence.projection.OrderSnapshot;
+import com.customer.rutaOptima.persistence.projection.RouteStopDetail;
+import com.customer.rutaOptima.persistence.projection.StopAssignment;
+import com.customer.rutaOptima.persistence.projection.VehicleSnapshot;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
@@ -23,6 +27,27 @@ public interface RouteStopRepository extends JpaRepository<RouteStop, Long> {
     @Query("SELECT rs FROM RouteStop rs WHERE rs.routePlan.id = :routePlanId AND rs.vehicle.id = :vehicleId ORDER BY rs.secuencia")
     List<RouteStop> findByRoutePlanIdAndVehicleIdOrdered(@Param("routePlanId") Long routePlanId, @Param("vehicleId") Long vehicleId);
 
+    @Query("SELECT rs FROM RouteStop rs JOIN FETCH rs.order o JOIN FETCH o.customer JOIN FETCH rs.vehicle " +
+           "WHERE rs.routePlan.id = :routePlanId ORDER BY rs.vehicle.id, rs.secuencia")
+    List<RouteStop> findByRoutePlanIdWithDetails(@Param("routePlanId") Long routePlanId);
+
+    @Query(RouteStopDetail.SELECT + "FROM RouteStop rs JOIN rs.order o JOIN o.customer c JOIN rs.vehicle v " +
+           "WHERE rs.routePlan.id = :routePlanId ORDER BY v.id, rs.secuencia")
+    List<RouteStopDetail> findDetailsByRoutePlanId(@Param("routePlanId") Long routePlanId);
+
+    @Query(OrderSnapshot.SELECT + "FROM RouteStop rs JOIN rs.order o JOIN o.customer c WHERE rs.routePlan.id = :routePlanId")
+    List<OrderSnapshot> findOrderSnapshotsByRoutePlanId(@Param("routePlanId") Long routePlanId);
+
+    @Query(VehicleSnapshot.SELECT + "FROM Vehicle v WHERE v.id IN " +
+           "(SELECT rs.vehicle.id FROM RouteStop rs WHERE rs.routePlan.id = :routePlanId)")
+    List<VehicleSnapshot> findVehicleSnapshotsByRoutePlanId(@Param("routePlanId") Long routePlanId);
+
+    @Query("SELECT new com.customer.rutaOptima.persistence.projection.StopAssignment(rs.order.id, rs.vehicle.id, rs.secuencia) " +
+           "FROM RouteStop rs WHERE rs.routePlan.id = :routePlanId")
+    List<StopAssignment> findAssignmentsByRoutePlanId(@Param("routePlanId") Long routePlanId);
+
+    boolean existsByRoutePlanId(Long routePlanId);
+
     void deleteByRoutePlanId(Long routePlanId);
     void deleteByRoutePlan(RoutePlan routePlan);
 
@@ -1,24 +1,53 @@
 package com.customer.rutaOptima.persistence;
 
+import com.customer.rutaOptima.config.CacheConfig;
 import com.customer.rutaOptima.domain.Vehicle;
+import com.customer.rutaOptima.persistence.projection.VehicleSnapshot;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 
 /**
- * Repositorio para la entidad Vehicle
+ * Repositorio para la entidad Vehicle.
+ * Las consultas de vehículos activos usan el cache de consultas (región vehicle-queries), que
+ * Hibernate invalida ante cualquier escritura en la tabla vehicle hecha por esta instancia; las de
+ * otras instancias se ven al expirar la región (ehcache.xml).
  */
 @Repository
 public interface VehicleRepository extends JpaRepository<Vehicle, Long> {
 
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = CacheConfig.VEHICLE_QUERIES)
+    })
     List<Vehicle> findByActivoTrue();
 
     List<Vehicle> findByTipo(String tipo);
 
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = CacheConfig.VEHICLE_QUERIES)
+    })
     @Query("SELECT v FROM Vehicle v WHERE v.activo = true ORDER BY v.capacidadCantidad DESC")
     List<Vehicle> findAllActiveVehiclesOrderedByCapacity();
 
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = CacheConfig.VEHICLE_QUERIES)
+    })
     List<Vehicle> findByIdInAndActivoTrue(List<Long> ids);
+
+    /**
+     * Sin cache de consultas: la usa el optimizador y tiene que ver la capacidad y el estado actuales
+     * aunque el vehículo se haya modificado desde otra instancia.
+     */
+    @Query(VehicleSnapshot.SELECT + "FROM Vehicle v WHERE v.id IN :ids")
+    List<VehicleSnapshot> findSnapshotsByIdIn(@Param("ids") Collection<Long> ids);
 }
@@ -0,0 +1,20 @@
+package com.customer.rutaOptima.persistence.projection;
+
+import java.math.BigDecimal;
+
+/**
+ * Ubicación de un cliente para la detección de duplicados cercanos, cargada por proyección.
+ */
+public record CustomerLocation(
+    Long id,
+    String codigoExterno,
+    BigDecimal latitud,
+    BigDecimal longitud
+) {
+
+    /**
+     * Proyección JPQL (constructor expression) sobre Customer c.
+     */
+    public static final String SELECT = "SELECT new com.customer.rutaOptima.persistence.projection.CustomerLocation("
+        + "c.id, c.codigoExterno, c.latitud, c.longitud) ";
+}
@@ -0,0 +1,51 @@
+package com.customer.rutaOptima.persistence.projection;
+
+import java.math.BigDecimal;
+
+import com.customer.rutaOptima.domain.Customer;
+import com.customer.rutaOptima.domain.Order;
+
+/**
+ * Datos de un pedido y su cliente que necesita la optimización, cargados por proyección
+ * (sin entidades ni asociaciones lazy).
+ */
+public record OrderSnapshot(
+    Long orderId,
+    Long customerId,
+    String customerName,
+    String direccion,
+    BigDecimal latitud,
+    BigDecimal longitud,
+    String zona,
+    Integer tiempoServicioMin,
+    BigDecimal cantidad,
+    BigDecimal volumen,
+    BigDecimal peso,
+    Integer prioridad
+) {
+
+    /**
+     * Proyección JPQL (constructor expression) sobre Order o y Customer c.
+     */
+    public static final String SELECT = "SELECT new com.customer.rutaOptima.persistence.projection.OrderSnapshot("
+        + "o.id, c.id, c.nombre, c.direccion, c.latitud, c.longitud, c.zona, "
+        + "o.tiempoServicioEstimadoMin, o.cantidad, o.volumen, o.peso, o.prioridad) ";
+
+    public static OrderSnapshot from(Order order) {
+        Customer customer = order.getCustomer();
+        return new OrderSnapshot(
+            order.getId(),
+            customer.getId(),
+            customer.getNombre(),
+            customer.getDireccion(),
+            customer.getLatitud(),
+            customer.getLongitud(),
+            customer.getZona(),
+            order.getTiempoServicioEstimadoMin(),
+            order.getCantidad(),
+            order.getVolumen(),
+            order.getPeso(),
+            order.getPrioridad()
+        );
+    }
+}
@@ -0,0 +1,35 @@
+package com.customer.rutaOptima.persistence.projection;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+
+import com.customer.rutaOptima.domain.RoutePlan;
+
+/**
+ * Resumen de un plan de rutas para los listados, cargado por proyección (sin paradas).
+ */
+public record RoutePlanSummary(
+    Long id,
+    Instant fecha,
+    String objetivo,
+    RoutePlan.Estado estado,
+    String score,
+    BigDecimal kmsTotales,
+    Integer tiempoEstimadoMin,
+    BigDecimal costoTotal,
+    Integer vehiculosUtilizados,
+    Integer pedidosAsignados,
+    Integer pedidosNoAsignados,
+    Integer maxOptimizationTimeSeconds,
+    Instant createdAt,
+    Instant updatedAt
+) {
+
+    /**
+     * Proyección JPQL (constructor expression) sobre RoutePlan rp.
+     */
+    public static final String SELECT = "SELECT new com.customer.rutaOptima.persistence.projection.RoutePlanSummary("
+        + "rp.id, rp.fecha, rp.objetivo, rp.estado, rp.score, rp.kmsTotales, rp.tiempoEstimadoMin, rp.costoTotal, "
+        + "rp.vehiculosUtilizados, rp.pedidosAsignados, rp.pedidosNoAsignados, rp.maxOptimizationTimeSeconds, "
+        + "rp.createdAt, rp.updatedAt) ";
+}
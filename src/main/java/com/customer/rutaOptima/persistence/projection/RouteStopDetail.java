@@ -0,0 +1,36 @@
+package com.customer.rutaOptima.persistence.projection;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+
+/**
+ * Parada de un plan con los datos de su pedido, cliente y vehículo para el detalle del plan,
+ * cargada en una sola consulta por proyección.
+ */
+public record RouteStopDetail(
+    Long id,
+    Long orderId,
+    Long vehicleId,
+    String vehiclePatente,
+    String customerName,
+    String customerAddress,
+    BigDecimal latitud,
+    BigDecimal longitud,
+    Integer secuencia,
+    Instant eta,
+    Instant etd,
+    BigDecimal cargaAcumuladaCantidad,
+    BigDecimal cargaAcumuladaVolumen,
+    BigDecimal cargaAcumuladaPeso,
+    BigDecimal cantidad,
+    BigDecimal volumen,
+    BigDecimal peso
+) {
+
+    /**
+     * Proyección JPQL (constructor expression) sobre RouteStop rs, Order o, Customer c y Vehicle v.
+     */
+    public static final String SELECT = "SELECT new com.customer.rutaOptima.persistence.projection.RouteStopDetail("
+        + "rs.id, o.id, v.id, v.patente, c.nombre, c.direccion, c.latitud, c.longitud, rs.secuencia, rs.eta, rs.etd, "
+        + "rs.cargaAcumuladaCantidad, rs.cargaAcumuladaVolumen, rs.cargaAcumuladaPeso, o.cantidad, o.volumen, o.peso) ";
+}
@@ -0,0 +1,7 @@
+package com.customer.rutaOptima.persistence.projection;
+
+/**
+ * Asignación actual de un pedido dentro de un plan (vehículo y secuencia).
+ */
+public record StopAssignment(Long orderId, Long vehicleId, Integer secuencia) {
+}
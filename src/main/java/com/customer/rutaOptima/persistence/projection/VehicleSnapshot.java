@@ -0,0 +1,48 @@
+package com.customer.rutaOptima.persistence.projection;
+
+import java.math.BigDecimal;
+
+import com.customer.rutaOptima.domain.Vehicle;
+
+/**
+ * Datos de un vehículo que necesita la optimización, cargados por proyección.
+ */
+public record VehicleSnapshot(
+    Long vehicleId,
+    String nombre,
+    String patente,
+    BigDecimal capacidadCantidad,
+    BigDecimal capacidadVolumen,
+    BigDecimal capacidadPeso,
+    BigDecimal costoKm,
+    String conductor,
+    String zona,
+    String color,
+    BigDecimal depotLatitud,
+    BigDecimal depotLongitud
+) {
+
+    /**
+     * Proyección JPQL (constructor expression) sobre Vehicle v.
+     */
+    public static final String SELECT = "SELECT new com.customer.rutaOptima.persistence.projection.VehicleSnapshot("
+        + "v.id, v.nombre, v.patente, v.capacidadCantidad, v.capacidadVolumen, v.capacidadPeso, "
+        + "v.costoKm, v.conductor, v.zona, v.color, v.depotLatitud, v.depotLongitud) ";
+
+    public static VehicleSnapshot from(Vehicle vehicle) {
+        return new VehicleSnapshot(
+            vehicle.getId(),
+            vehicle.getNombre(),
+            vehicle.getPatente(),
+            vehicle.getCapacidadCantidad(),
+            vehicle.getCapacidadVolumen(),
+            vehicle.getCapacidadPeso(),
+            vehicle.getCostoKm(),
+            vehicle.getConductor(),
+            vehicle.getZona(),
+            vehicle.getColor(),
+            vehicle.getDepotLatitud(),
+            vehicle.getDepotLongitud()
+        );
+    }
+}
@@ -20,6 +20,8 @@ import org.springframework.web.cors.CorsConfiguration;
 import org.springframework.web.cors.CorsConfigurationSource;
 import org.springframework.web.cors.UrlBasedCorsConfigurationSource;
 
+import com.customer.rutaOptima.api.pagination.KeysetCursor;
+
 import lombok.RequiredArgsConstructor;
 
 /**
@@ -70,7 +72,8 @@ public class SecurityConfig {
         configuration.setAllowedMethods(Arrays.asList("GET", "POST", "PUT", "DELETE", "OPTIONS"));
         configuration.setAllowedHeaders(List.of("*"));
         configuration.setAllowCredentials(true);
-        configuration.setExposedHeaders(List.of("Authorization"));
+        // X-Next-Cursor: el frontend lo necesita para pedir la página siguiente de los listados
+        configuration.setExposedHeaders(List.of("Authorization", KeysetCursor.NEXT_CURSOR_HEADER));
 
         UrlBasedCorsConfigurationSource source = new UrlBasedCorsConfigurationSource();
         source.registerCorsConfiguration("/**", configuration);
@@ -5,10 +5,12 @@ import com.customer.rutaOptima.domain.Customer;
 import com.customer.rutaOptima.persistence.CustomerRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
+import java.util.Set;
 
 /**
  * Servicio de negocio para clientes
@@ -19,6 +21,7 @@ import java.util.List;
 public class CustomerService {
 
     private final CustomerRepository customerRepository;
+    private final ApplicationEventPublisher eventPublisher;
 
     @Transactional
     public Customer createCustomer(Customer customer) {
@@ -45,6 +48,9 @@ public class CustomerService {
     @Transactional
     public Customer updateCustomer(Long id, Customer customer) {
         Customer existing = findById(id);
+        if (customer.getCodigoExterno() != null) {
+            existing.setCodigoExterno(customer.getCodigoExterno());
+        }
         existing.setNombre(customer.getNombre());
         existing.setDireccion(customer.getDireccion());
         existing.setLatitud(customer.getLatitud());
@@ -54,6 +60,7 @@ public class CustomerService {
         existing.setTelefono(customer.getTelefono());
         existing.setEmail(customer.getEmail());
         existing.setZona(customer.getZona());
+        eventPublisher.publishEvent(new CustomersChangedEvent(Set.of(id)));
         return customerRepository.save(existing);
     }
 
@@ -63,6 +70,7 @@ public class CustomerService {
             throw new BusinessException("Cliente con ID " + id + " no encontrado");
         }
         customerRepository.deleteById(id);
+        eventPublisher.publishEvent(new CustomersChangedEvent(Set.of(id)));
         log.info("Cliente con ID {} eliminado", id);
     }
 }
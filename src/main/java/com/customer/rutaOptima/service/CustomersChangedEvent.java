@@ -0,0 +1,12 @@
+package com.customer.rutaOptima.service;
+
+import java.util.Set;
+
+/**
+ * Clientes existentes que cambiaron (datos o ubicación) o se eliminaron; vacío si solo hubo altas.
+ * Se publica dentro de la transacción que los modifica; los cachés derivados de clientes lo escuchan
+ * con @TransactionalEventListener para invalidar solo esas entradas después del commit
+ * (ver ReferenceDataCacheEvictor).
+ */
+public record CustomersChangedEvent(Set<Long> customerIds) {
+}
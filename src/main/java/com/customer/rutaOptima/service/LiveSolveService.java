@@ -0,0 +1,77 @@
+package com.customer.rutaOptima.service;
+
+import java.util.concurrent.CompletableFuture;
+
+import org.optaplanner.core.api.solver.change.ProblemChange;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.customer.rutaOptima.config.SolverProfiles;
+import com.customer.rutaOptima.config.exception.BusinessException;
+import com.customer.rutaOptima.config.exception.ResourceNotFoundException;
+import com.customer.rutaOptima.domain.Order;
+import com.customer.rutaOptima.optimization.change.AddVisitProblemChange;
+import com.customer.rutaOptima.optimization.change.RemoveVehicleProblemChange;
+import com.customer.rutaOptima.optimization.change.RemoveVisitProblemChange;
+import com.customer.rutaOptima.optimization.domain.VehicleRoutingSolution;
+import com.customer.rutaOptima.persistence.OrderRepository;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Cambios sobre un solve en curso (ProblemChange): el solver incorpora el cambio sin
+ * reiniciar desde cero y conserva el progreso de la búsqueda.
+ * El solve se identifica por el id del RoutePlan que se está optimizando, ya sea en el
+ * SolverManager de su perfil o en el portfolio.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class LiveSolveService {
+
+    private final SolverProfiles solverProfiles;
+    private final PortfolioSolverService portfolioSolverService;
+    private final OrderRepository orderRepository;
+    private final RoutingProblemFactory routingProblemFactory;
+
+    /**
+     * Agrega un pedido al solve en curso del plan.
+     */
+    @Transactional(readOnly = true)
+    public CompletableFuture<Void> addOrder(Long routePlanId, Long orderId) {
+        Order order = orderRepository.findById(orderId)
+            .orElseThrow(() -> new ResourceNotFoundException("Pedido no encontrado: " + orderId));
+        if (!"PENDIENTE".equals(order.getEstado())) {
+            throw new BusinessException("Solo se pueden agregar pedidos en estado PENDIENTE");
+        }
+        log.info("Plan {}: agregando pedido {} al solve en curso", routePlanId, orderId);
+        return addProblemChange(routePlanId, new AddVisitProblemChange(routingProblemFactory.toVisit(order)));
+    }
+
+    /**
+     * Quita un pedido del solve en curso del plan.
+     */
+    public CompletableFuture<Void> removeOrder(Long routePlanId, Long orderId) {
+        log.info("Plan {}: quitando pedido {} del solve en curso", routePlanId, orderId);
+        return addProblemChange(routePlanId, new RemoveVisitProblemChange(orderId));
+    }
+
+    /**
+     * Saca un vehículo de servicio en el solve en curso del plan.
+     */
+    public CompletableFuture<Void> removeVehicle(Long routePlanId, Long vehicleId) {
+        log.info("Plan {}: sacando de servicio el vehículo {}", routePlanId, vehicleId);
+        return addProblemChange(routePlanId, new RemoveVehicleProblemChange(vehicleId));
+    }
+
+    private CompletableFuture<Void> addProblemChange(Long routePlanId,
+                                                     ProblemChange<VehicleRoutingSolution> problemChange) {
+        if (portfolioSolverService.isSolving(routePlanId)) {
+            return portfolioSolverService.addProblemChange(routePlanId, problemChange);
+        }
+        return solverProfiles.findSolving(routePlanId)
+            .orElseThrow(() -> new BusinessException("El plan " + routePlanId + " no tiene una optimización en curso"))
+            .addProblemChange(routePlanId, problemChange);
+    }
+}
@@ -0,0 +1,93 @@
+package com.customer.rutaOptima.service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+
+import com.customer.rutaOptima.domain.Order;
+import com.customer.rutaOptima.domain.Vehicle;
+import com.customer.rutaOptima.persistence.projection.OrderSnapshot;
+import com.customer.rutaOptima.persistence.projection.VehicleSnapshot;
+
+/**
+ * Entrada inmutable de una optimización: pedidos (con los datos de su cliente) y vehículos
+ * cargados por proyección. El solver, la extracción de paradas y la respuesta trabajan solo
+ * sobre este snapshot, sin tocar entidades ni sesión.
+ * Los ids se indexan en arreglos long[] ordenados (búsqueda binaria) en lugar de mapas con claves boxed.
+ */
+public final class OptimizationSnapshot {
+
+    private final List<OrderSnapshot> orders;
+    private final List<VehicleSnapshot> vehicles;
+    private final long[] orderIds;
+    private final OrderSnapshot[] ordersById;
+    private final long[] vehicleIds;
+    private final VehicleSnapshot[] vehiclesById;
+
+    public OptimizationSnapshot(List<OrderSnapshot> orders, List<VehicleSnapshot> vehicles) {
+        this.orders = List.copyOf(orders);
+        this.vehicles = List.copyOf(vehicles);
+        this.ordersById = this.orders.toArray(OrderSnapshot[]::new);
+        Arrays.sort(ordersById, Comparator.comparingLong(OrderSnapshot::orderId));
+        this.orderIds = Arrays.stream(ordersById).mapToLong(OrderSnapshot::orderId).toArray();
+        this.vehiclesById = this.vehicles.toArray(VehicleSnapshot[]::new);
+        Arrays.sort(vehiclesById, Comparator.comparingLong(VehicleSnapshot::vehicleId));
+        this.vehicleIds = Arrays.stream(vehiclesById).mapToLong(VehicleSnapshot::vehicleId).toArray();
+    }
+
+    /**
+     * Snapshot de entidades ya cargadas (dentro de una transacción).
+     */
+    public static OptimizationSnapshot of(Collection<Order> orders, Collection<Vehicle> vehicles) {
+        return new OptimizationSnapshot(
+            orders.stream().map(OrderSnapshot::from).toList(),
+            vehicles.stream().map(VehicleSnapshot::from).toList());
+    }
+
+    /**
+     * Nuevo snapshot con pedidos adicionales (los agregados durante un solve en curso).
+     */
+    public OptimizationSnapshot withOrders(Collection<OrderSnapshot> additionalOrders) {
+        if (additionalOrders.isEmpty()) {
+            return this;
+        }
+        List<OrderSnapshot> allOrders = new ArrayList<>(orders.size() + additionalOrders.size());
+        allOrders.addAll(orders);
+        for (OrderSnapshot order : additionalOrders) {
+            if (!containsOrder(order.orderId())) {
+                allOrders.add(order);
+            }
+        }
+        return new OptimizationSnapshot(allOrders, vehicles);
+    }
+
+    public List<OrderSnapshot> orders() {
+        return orders;
+    }
+
+    public List<VehicleSnapshot> vehicles() {
+        return vehicles;
+    }
+
+    public boolean containsOrder(long orderId) {
+        return Arrays.binarySearch(orderIds, orderId) >= 0;
+    }
+
+    /**
+     * Pedido por id, o null si no está en el snapshot.
+     */
+    public OrderSnapshot order(long orderId) {
+        int index = Arrays.binarySearch(orderIds, orderId);
+        return index >= 0 ? ordersById[index] : null;
+    }
+
+    /**
+     * Vehículo por id, o null si no está en el snapshot.
+     */
+    public VehicleSnapshot vehicle(long vehicleId) {
+        int index = Arrays.binarySearch(vehicleIds, vehicleId);
+        return index >= 0 ? vehiclesById[index] : null;
+    }
+}
@@ -7,6 +7,7 @@ import com.customer.rutaOptima.persistence.CustomerRepository;
 import com.customer.rutaOptima.persistence.OrderRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -46,18 +47,10 @@ public class OrderService {
 
         order.setCustomer(customer);
 
-        // Validar fecha no sea en el pasado
-        if (order.getFechaEntrega().isBefore(Instant.now())) {
-            throw new BusinessException(
-                    "La fecha de entrega no puede ser en el pasado");
-        }
-
-        // Validar ventanas horarias si están presentes
-        if (order.getVentanaHorariaInicio() != null && order.getVentanaHorariaFin() != null) {
-            if (order.getVentanaHorariaInicio().isAfter(order.getVentanaHorariaFin())) {
-                throw new BusinessException(
-                        "La ventana horaria de inicio no puede ser posterior a la de fin");
-            }
+        String violation = checkBusinessRules(order.getFechaEntrega(),
+                order.getVentanaHorariaInicio(), order.getVentanaHorariaFin(), Instant.now());
+        if (violation != null) {
+            throw new BusinessException(violation);
         }
 
         Order savedOrder = orderRepository.save(order);
@@ -66,6 +59,23 @@ public class OrderService {
         return savedOrder;
     }
 
+    /**
+     * Reglas de negocio de un pedido, sin acceso a la base (también las usa la importación masiva).
+     * Devuelve el mensaje de la primera regla que no se cumple, o null si el pedido es válido.
+     */
+    public static String checkBusinessRules(Instant fechaEntrega, Instant ventanaInicio, Instant ventanaFin, Instant now) {
+        // Validar fecha no sea en el pasado
+        if (fechaEntrega.isBefore(now)) {
+            return "La fecha de entrega no puede ser en el pasado";
+        }
+
+        // Validar ventanas horarias si están presentes
+        if (ventanaInicio != null && ventanaFin != null && ventanaInicio.isAfter(ventanaFin)) {
+            return "La ventana horaria de inicio no puede ser posterior a la de fin";
+        }
+        return null;
+    }
+
     /**
      * Valida que los pedidos de clientes nuevos cumplan con la anticipación mínima de 5 días
      */
@@ -100,6 +110,29 @@ public class OrderService {
         return orderRepository.findByFechaEntregaBetween(start, end);
     }
 
+    /**
+     * Página de pedidos por keyset, con los filtros resueltos en la consulta.
+     * Sin rango de fechas ordena por id; con rango, por (fechaEntrega, id).
+     *
+     * @param afterFecha fecha de la última fila de la página anterior (null en la primera)
+     * @param afterId    id de la última fila de la página anterior (null en la primera)
+     */
+    @Transactional(readOnly = true)
+    public List<Order> findPage(Instant start, Instant end, String estado,
+                                Instant afterFecha, Long afterId, int limit) {
+        Limit pageLimit = Limit.of(limit);
+        long lastId = afterId != null ? afterId : 0L;
+        if (start == null) {
+            return estado == null
+                    ? orderRepository.findPageAfterId(lastId, pageLimit)
+                    : orderRepository.findPageByEstadoAfterId(estado, lastId, pageLimit);
+        }
+        Instant lastFecha = afterFecha != null ? afterFecha : start;
+        return estado == null
+                ? orderRepository.findPageByFechaRange(start, end, lastFecha, lastId, pageLimit)
+                : orderRepository.findPageByEstadoAndFechaRange(estado, start, end, lastFecha, lastId, pageLimit);
+    }
+
     @Transactional(readOnly = true)
     public List<Order> findPendingOrdersByFecha(Instant fecha) {
         return orderRepository.findPendingOrdersWithCustomerByFecha(fecha);
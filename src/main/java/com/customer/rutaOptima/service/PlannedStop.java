@@ -0,0 +1,47 @@
+package com.customer.rutaOptima.service;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+
+import com.customer.rutaOptima.domain.Order;
+import com.customer.rutaOptima.domain.RoutePlan;
+import com.customer.rutaOptima.domain.RouteStop;
+import com.customer.rutaOptima.domain.Vehicle;
+import com.customer.rutaOptima.persistence.projection.OrderSnapshot;
+import com.customer.rutaOptima.persistence.projection.VehicleSnapshot;
+
+/**
+ * Parada calculada por RouteStopExtractor, antes de persistirse como RouteStop.
+ */
+public record PlannedStop(
+    OrderSnapshot order,
+    VehicleSnapshot vehicle,
+    int secuencia,
+    Instant eta,
+    Instant etd,
+    BigDecimal distanciaKmDesdeAnterior,
+    int tiempoViajeMinDesdeAnterior,
+    BigDecimal cargaAcumuladaCantidad,
+    BigDecimal cargaAcumuladaVolumen,
+    BigDecimal cargaAcumuladaPeso
+) {
+
+    /**
+     * Entidad a persistir; order y vehicle pueden ser referencias (getReferenceById).
+     */
+    public RouteStop toRouteStop(RoutePlan routePlan, Order orderRef, Vehicle vehicleRef) {
+        return RouteStop.builder()
+            .routePlan(routePlan)
+            .order(orderRef)
+            .vehicle(vehicleRef)
+            .secuencia(secuencia)
+            .eta(eta)
+            .etd(etd)
+            .distanciaKmDesdeAnterior(distanciaKmDesdeAnterior)
+            .tiempoViajeMínDesdeAnterior(tiempoViajeMinDesdeAnterior)
+            .cargaAcumuladaCantidad(cargaAcumuladaCantidad)
+            .cargaAcumuladaVolumen(cargaAcumuladaVolumen)
+            .cargaAcumuladaPeso(cargaAcumuladaPeso)
+            .build();
+    }
+}
@@ -0,0 +1,273 @@
+package com.customer.rutaOptima.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import org.optaplanner.core.api.score.buildin.hardmediumsoft.HardMediumSoftScore;
+import org.optaplanner.core.api.solver.Solver;
+import org.optaplanner.core.api.solver.SolverFactory;
+import org.optaplanner.core.api.solver.change.ProblemChange;
+import org.optaplanner.core.config.constructionheuristic.ConstructionHeuristicPhaseConfig;
+import org.optaplanner.core.config.constructionheuristic.ConstructionHeuristicType;
+import org.optaplanner.core.config.localsearch.LocalSearchPhaseConfig;
+import org.optaplanner.core.config.localsearch.decider.acceptor.LocalSearchAcceptorConfig;
+import org.optaplanner.core.config.localsearch.decider.forager.LocalSearchForagerConfig;
+import org.optaplanner.core.config.solver.SolverConfig;
+import org.optaplanner.core.config.solver.termination.TerminationConfig;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.customer.rutaOptima.config.SolverProfiles;
+import com.customer.rutaOptima.config.exception.BusinessException;
+import com.customer.rutaOptima.optimization.domain.VehicleRoutingSolution;
+import com.customer.rutaOptima.optimization.solver.VehicleRoutingSolutionCloner;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Modo portfolio: ejecuta varias configuraciones de solver en paralelo sobre el mismo problema
+ * (cada una con su propia copia, sin estado compartido) dentro del mismo presupuesto de tiempo
+ * y devuelve la mejor solución final. Las configuraciones que quedan claramente atrás se
+ * terminan antes para liberar sus núcleos. Cada configuración corre hasta el límite de tiempo o hasta
+ * que su mejor score deja de mejorar, aunque ya sea factible.
+ *
+ * Las configuraciones corren en un pool compartido y acotado: cada solve del portfolio ocupa uno
+ * de los parallel-solver-count lugares de solve (compartidos con los perfiles, ver SolverProfiles)
+ * y usa a lo sumo los núcleos que le tocan a ese lugar (el mismo reparto que moveThreadCount AUTO en OptaPlannerConfig).
+ */
+@Service
+@Slf4j
+public class PortfolioSolverService {
+
+    private static final long MONITOR_INTERVAL_MS = 500;
+
+    private final List<Member> members = new ArrayList<>();
+    private final VehicleRoutingSolutionCloner cloner = new VehicleRoutingSolutionCloner();
+
+    private final boolean enabled;
+
+    // Pool compartido por todos los solves del portfolio (null si está deshabilitado)
+    private final ExecutorService executor;
+    private final SolverProfiles solverProfiles;
+
+    // Solvers de cada solve en curso, por id del problema (para los cambios en vivo)
+    private final Map<Long, List<Solver<VehicleRoutingSolution>>> running = new ConcurrentHashMap<>();
+
+    // Tiempo mínimo antes de descartar configuraciones rezagadas
+    @Value("${app.optimization.portfolio.grace-seconds:5}")
+    private long graceSeconds;
+
+    // Brecha de score soft (en % del líder) a partir de la cual una configuración se considera rezagada
+    @Value("${app.optimization.portfolio.trailing-soft-gap-percent:5}")
+    private double trailingSoftGapPercent;
+
+    public PortfolioSolverService(SolverConfig solverConfig,
+                                  SolverProfiles solverProfiles,
+                                  @Value("${app.optimization.portfolio.enabled:false}") boolean enabled,
+                                  @Value("${app.optimization.portfolio.size:3}") int size,
+                                  @Value("${app.optimization.parallel-solver-count:1}") int parallelSolverCount) {
+        this.enabled = enabled;
+        this.solverProfiles = solverProfiles;
+        if (!enabled) {
+            this.executor = null;
+            return;
+        }
+        List<Member> candidates = List.of(
+            member(solverConfig, "late-acceptance", ConstructionHeuristicType.ALLOCATE_ENTITY_FROM_QUEUE,
+                new LocalSearchAcceptorConfig().withLateAcceptanceSize(400),
+                new LocalSearchForagerConfig().withAcceptedCountLimit(1)),
+            member(solverConfig, "tabu-search", ConstructionHeuristicType.FIRST_FIT,
+                new LocalSearchAcceptorConfig().withEntityTabuSize(7),
+                new LocalSearchForagerConfig().withAcceptedCountLimit(1000)),
+            member(solverConfig, "simulated-annealing", ConstructionHeuristicType.CHEAPEST_INSERTION,
+                new LocalSearchAcceptorConfig().withSimulatedAnnealingStartingTemperature("0hard/0medium/500soft"),
+                new LocalSearchForagerConfig().withAcceptedCountLimit(4))
+        );
+        // Un núcleo por configuración dentro de los núcleos de un lugar de solve, dejando uno
+        // libre (el hilo que monitorea el portfolio y el resto de la aplicación)
+        int solves = Math.max(1, parallelSolverCount);
+        int coresPerSolve = Runtime.getRuntime().availableProcessors() / solves;
+        int maxMembers = Math.max(1, coresPerSolve - 1);
+        members.addAll(candidates.subList(0, Math.min(Math.min(size, maxMembers), candidates.size())));
+        this.executor = Executors.newFixedThreadPool(members.size() * solves);
+        log.info("Portfolio: {} configuraciones por solve, hasta {} solves en paralelo", members.size(), solves);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (executor != null) {
+            running.values().forEach(solvers -> solvers.forEach(Solver::terminateEarly));
+            executor.shutdownNow();
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Indica si hay un solve del portfolio en curso para el problema.
+     */
+    public boolean isSolving(Long problemId) {
+        return running.containsKey(problemId);
+    }
+
+    /**
+     * Aplica el cambio a todas las configuraciones del solve en curso. El futuro se completa al
+     * encolar el cambio; cada solver lo incorpora en su próximo paso.
+     */
+    public CompletableFuture<Void> addProblemChange(Long problemId, ProblemChange<VehicleRoutingSolution> problemChange) {
+        List<Solver<VehicleRoutingSolution>> solvers = running.get(problemId);
+        if (solvers == null) {
+            throw new BusinessException("El plan " + problemId + " no tiene una optimización en curso");
+        }
+        solvers.forEach(solver -> solver.addProblemChange(problemChange));
+        return CompletableFuture.completedFuture(null);
+    }
+
+    /**
+     * Resuelve el problema con todas las configuraciones del portfolio y devuelve la mejor solución.
+     * Ocupa uno de los lugares de solve compartidos con los perfiles (ver SolverProfiles).
+     */
+    public VehicleRoutingSolution solve(Long problemId, VehicleRoutingSolution problem) {
+        int n = members.size();
+        log.info("Portfolio: {} configuraciones en paralelo", n);
+
+        List<Solver<VehicleRoutingSolution>> solvers = new ArrayList<>(n);
+        List<Future<VehicleRoutingSolution>> futures = new ArrayList<>(n);
+        AtomicReferenceArray<HardMediumSoftScore> bestScores = new AtomicReferenceArray<>(n);
+        boolean[] terminated = new boolean[n];
+
+        try {
+            solverProfiles.acquireSolveSlot();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new BusinessException("Optimización interrumpida", e);
+        }
+        try {
+            for (int i = 0; i < n; i++) {
+                int index = i;
+                Solver<VehicleRoutingSolution> solver = members.get(i).solverFactory().buildSolver();
+                solver.addEventListener(event -> bestScores.set(index, event.getNewBestSolution().getScore()));
+                solvers.add(solver);
+            }
+            running.put(problemId, solvers);
+            for (int i = 0; i < n; i++) {
+                Solver<VehicleRoutingSolution> solver = solvers.get(i);
+                VehicleRoutingSolution copy = cloner.cloneSolution(problem);
+                futures.add(executor.submit(() -> solver.solve(copy)));
+            }
+
+            long start = System.currentTimeMillis();
+            while (!allDone(futures)) {
+                Thread.sleep(MONITOR_INTERVAL_MS);
+                if (System.currentTimeMillis() - start >= graceSeconds * 1000) {
+                    terminateTrailing(solvers, futures, bestScores, terminated);
+                }
+            }
+
+            VehicleRoutingSolution best = null;
+            String bestName = null;
+            for (int i = 0; i < n; i++) {
+                try {
+                    VehicleRoutingSolution solution = futures.get(i).get();
+                    log.info("Portfolio [{}]: score {}{}", members.get(i).name(), solution.getScore(),
+                        terminated[i] ? " (terminado antes por rezago)" : "");
+                    if (best == null || solution.getScore().compareTo(best.getScore()) > 0) {
+                        best = solution;
+                        bestName = members.get(i).name();
+                    }
+                } catch (ExecutionException e) {
+                    log.error("Portfolio [{}] falló", members.get(i).name(), e.getCause());
+                }
+            }
+
+            if (best == null) {
+                throw new BusinessException("Error al optimizar rutas: todas las configuraciones del portfolio fallaron");
+            }
+            log.info("Portfolio: gana [{}] con score {}", bestName, best.getScore());
+            return best;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            solvers.forEach(Solver::terminateEarly);
+            throw new BusinessException("Optimización interrumpida", e);
+        } finally {
+            running.remove(problemId);
+            futures.forEach(future -> future.cancel(true));
+            solverProfiles.releaseSolveSlot();
+        }
+    }
+
+    /**
+     * Termina las configuraciones cuyo mejor score quedó claramente detrás del líder:
+     * peor score hard o medium (más pedidos sin asignar), o igual hard y medium pero con una
+     * brecha soft mayor al umbral configurado.
+     */
+    private void terminateTrailing(List<Solver<VehicleRoutingSolution>> solvers,
+                                   List<Future<VehicleRoutingSolution>> futures,
+                                   AtomicReferenceArray<HardMediumSoftScore> bestScores,
+                                   boolean[] terminated) {
+        HardMediumSoftScore leader = null;
+        for (int i = 0; i < bestScores.length(); i++) {
+            HardMediumSoftScore score = bestScores.get(i);
+            if (score != null && score.isSolutionInitialized()
+                    && (leader == null || score.compareTo(leader) > 0)) {
+                leader = score;
+            }
+        }
+        if (leader == null) {
+            return;
+        }
+
+        long allowedGap = (long) Math.ceil(Math.abs(leader.softScore()) * trailingSoftGapPercent / 100.0);
+        for (int i = 0; i < solvers.size(); i++) {
+            HardMediumSoftScore score = bestScores.get(i);
+            if (terminated[i] || futures.get(i).isDone() || score == null || !score.isSolutionInitialized()) {
+                continue;
+            }
+            boolean trailing = score.hardScore() < leader.hardScore()
+                || (score.hardScore() == leader.hardScore() && score.mediumScore() < leader.mediumScore())
+                || (score.hardScore() == leader.hardScore() && score.mediumScore() == leader.mediumScore()
+                    && (long) leader.softScore() - score.softScore() > allowedGap);
+            if (trailing) {
+                log.debug("Portfolio [{}] rezagado ({} vs líder {}), terminando", members.get(i).name(), score, leader);
+                solvers.get(i).terminateEarly();
+                terminated[i] = true;
+            }
+        }
+    }
+
+    private static boolean allDone(List<Future<VehicleRoutingSolution>> futures) {
+        return futures.stream().allMatch(Future::isDone);
+    }
+
+    private static Member member(SolverConfig base, String name, ConstructionHeuristicType constructionHeuristicType,
+                                 LocalSearchAcceptorConfig acceptorConfig, LocalSearchForagerConfig foragerConfig) {
+        // Solo límites de tiempo, nunca de score: con 0hard/0medium/*soft cada configuración terminaría
+        // al salir de la construction heuristic y el local search no correría nunca
+        TerminationConfig baseTermination = base.getTerminationConfig();
+        SolverConfig config = base.copyConfig()
+            .withMoveThreadCount(SolverConfig.MOVE_THREAD_COUNT_NONE) // cada configuración usa un solo núcleo
+            .withTerminationConfig(new TerminationConfig()
+                .withSpentLimit(baseTermination.getSpentLimit())
+                .withUnimprovedSpentLimit(baseTermination.getUnimprovedSpentLimit()))
+            .withPhases(
+                new ConstructionHeuristicPhaseConfig().withConstructionHeuristicType(constructionHeuristicType),
+                new LocalSearchPhaseConfig()
+                    .withAcceptorConfig(acceptorConfig)
+                    .withForagerConfig(foragerConfig));
+        return new Member(name, SolverFactory.create(config));
+    }
+
+    private record Member(String name, SolverFactory<VehicleRoutingSolution> solverFactory) {
+    }
+}
@@ -0,0 +1,37 @@
+package com.customer.rutaOptima.service;
+
+import org.hibernate.Cache;
+import org.hibernate.SessionFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import com.customer.rutaOptima.config.CacheConfig;
+import com.customer.rutaOptima.domain.Customer;
+
+import jakarta.persistence.EntityManagerFactory;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Invalida el cache de segundo nivel de clientes después del commit de un CustomersChangedEvent.
+ * Las escrituras por JPA ya lo mantienen al día; esto cubre las escrituras JDBC (importación
+ * masiva), que Hibernate no ve: se sacan solo los clientes que cambiaron y, como una alta o una
+ * modificación puede cambiar cualquier listado, la región de consultas de clientes.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class ReferenceDataCacheEvictor {
+
+    private final EntityManagerFactory entityManagerFactory;
+
+    @TransactionalEventListener
+    public void onCustomersChanged(CustomersChangedEvent event) {
+        Cache cache = entityManagerFactory.unwrap(SessionFactory.class).getCache();
+        for (Long customerId : event.customerIds()) {
+            cache.evictEntityData(Customer.class, customerId);
+        }
+        cache.evictQueryRegion(CacheConfig.CUSTOMER_QUERIES);
+        log.debug("Cache de clientes invalidado: {} clientes y consultas", event.customerIds().size());
+    }
+}
@@ -4,31 +4,32 @@ import java.math.BigDecimal;
 import java.time.Instant;
 import java.time.LocalDate;
 import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
-import org.optaplanner.core.api.solver.SolverJob;
-import org.optaplanner.core.api.solver.SolverManager;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import com.customer.rutaOptima.api.dto.OptimizeRouteRequest;
 import com.customer.rutaOptima.api.dto.OptimizeRouteResponse;
+import com.customer.rutaOptima.api.dto.ReoptimizeRouteRequest;
+import com.customer.rutaOptima.config.OptaPlannerConfig.SolverProfile;
+import com.customer.rutaOptima.config.SolverProfiles;
 import com.customer.rutaOptima.config.exception.BusinessException;
-import com.customer.rutaOptima.domain.Customer;
-import com.customer.rutaOptima.domain.Order;
+import com.customer.rutaOptima.config.exception.ResourceNotFoundException;
 import com.customer.rutaOptima.domain.RoutePlan;
-import com.customer.rutaOptima.domain.RouteStop;
-import com.customer.rutaOptima.domain.Vehicle;
-import com.customer.rutaOptima.optimization.domain.Location;
 import com.customer.rutaOptima.optimization.domain.VehicleInfo;
 import com.customer.rutaOptima.optimization.domain.VehicleRoutingSolution;
 import com.customer.rutaOptima.optimization.domain.Visit;
@@ -36,6 +37,9 @@ import com.customer.rutaOptima.persistence.OrderRepository;
 import com.customer.rutaOptima.persistence.RoutePlanRepository;
 import com.customer.rutaOptima.persistence.RouteStopRepository;
 import com.customer.rutaOptima.persistence.VehicleRepository;
+import com.customer.rutaOptima.persistence.projection.OrderSnapshot;
+import com.customer.rutaOptima.persistence.projection.StopAssignment;
+import com.customer.rutaOptima.persistence.projection.VehicleSnapshot;
 import com.customer.rutaOptima.service.DistanceMatrixService.RouteInfo;
 
 import lombok.RequiredArgsConstructor;
@@ -55,14 +59,25 @@ public class RouteOptimizationService {
     private final RoutePlanRepository routePlanRepository;
     private final RouteStopRepository routeStopRepository;
     private final DistanceMatrixService distanceMatrixService;
-    private final SolverManager<VehicleRoutingSolution, Long> solverManager;
+    private final SolverProfiles solverProfiles;
+    private final PortfolioSolverService portfolioSolverService;
+    private final RoutingProblemFactory routingProblemFactory;
+    private final RouteStopExtractor routeStopExtractor;
+    private final RouteStopBulkWriter routeStopBulkWriter;
+    private final RoutePlanRecoveryService routePlanRecoveryService;
+    private final TransactionTemplate transactionTemplate;
 
     /**
-     * Optimiza rutas usando OptaPlanner (metaheuristics) + OSRM (distancias reales)
+     * Optimiza rutas usando OptaPlanner (metaheuristics) + OSRM (distancias reales).
+     * El pipeline corre en etapas para no retener una conexión durante el solve:
+     * 1. Snapshot de solo lectura (proyección de pedidos con su cliente y vehículos) y alta del plan en OPTIMIZING.
+     * 2. Solve y extracción con OSRM sin transacción, solo sobre el snapshot.
+     * 3. Una transacción corta que guarda los stops y marca el plan como OPTIMIZED.
+     * Si algo falla entre 2 y 3 el plan queda FAILED (ver RoutePlanRecoveryService).
      */
-    @Transactional
     public OptimizeRouteResponse optimizeRoutesWithRealDistances(OptimizeRouteRequest request) {
         log.info("Optimizando rutas con OptaPlanner para fecha: {}", request.getFecha());
+        long pipelineStart = System.nanoTime();
 
         // 1. Parsear fecha
         LocalDate fecha = LocalDate.parse(request.getFecha());
@@ -70,352 +85,387 @@ public class RouteOptimizationService {
         Instant startOfDay = fecha.atStartOfDay(zone).toInstant();
         Instant endOfDay = fecha.plusDays(1).atStartOfDay(zone).toInstant();
 
-        // 2. Obtener datos
-        List<Order> orders = orderRepository.findByFechaEntregaBetweenAndEstado(
-            startOfDay, endOfDay, "PENDIENTE"
-        );
+        // 2. Obtener datos (solo lectura, por proyección)
+        OptimizationSnapshot snapshot = readOnlyTransaction().execute(status -> {
+            List<OrderSnapshot> orders = orderRepository.findPendingSnapshotsBetween(startOfDay, endOfDay);
 
-        if (orders.isEmpty()) {
-            throw new BusinessException("No hay pedidos pendientes para la fecha especificada");
-        }
-
-        // Filtrar por orderIds específicos si se proporcionan
-        if (request.getOrderIds() != null && !request.getOrderIds().isEmpty()) {
-            Set<Long> requestedOrderIds = new HashSet<>(request.getOrderIds());
-            orders = orders.stream()
-                .filter(order -> requestedOrderIds.contains(order.getId()))
-                .collect(Collectors.toList());
-            
             if (orders.isEmpty()) {
-                throw new BusinessException("Ninguna de las órdenes especificadas está pendiente para la fecha");
+                throw new BusinessException("No hay pedidos pendientes para la fecha especificada");
             }
-            log.info("Filtrando {} órdenes específicas de {} disponibles", 
-                orders.size(), requestedOrderIds.size());
-        }
 
-        List<Vehicle> vehicles = vehicleRepository.findAllById(request.getVehicleIds());
+            // Filtrar por orderIds específicos si se proporcionan
+            if (request.getOrderIds() != null && !request.getOrderIds().isEmpty()) {
+                Set<Long> requestedOrderIds = new HashSet<>(request.getOrderIds());
+                orders = orders.stream()
+                    .filter(order -> requestedOrderIds.contains(order.orderId()))
+                    .collect(Collectors.toList());
 
-        if (vehicles.isEmpty()) {
-            throw new BusinessException("No hay vehículos seleccionados");
-        }
+                if (orders.isEmpty()) {
+                    throw new BusinessException("Ninguna de las órdenes especificadas está pendiente para la fecha");
+                }
+                log.info("Filtrando {} órdenes específicas de {} disponibles",
+                    orders.size(), requestedOrderIds.size());
+            }
 
-        log.info("Datos cargados: {} pedidos, {} vehículos", orders.size(), vehicles.size());
+            List<VehicleSnapshot> vehicles = vehicleRepository.findSnapshotsByIdIn(request.getVehicleIds());
+
+            if (vehicles.isEmpty()) {
+                throw new BusinessException("No hay vehículos seleccionados");
+            }
+            return new OptimizationSnapshot(orders, vehicles);
+        });
+
+        log.info("Datos cargados: {} pedidos, {} vehículos", snapshot.orders().size(), snapshot.vehicles().size());
 
         // 3. Crear plan de rutas
-        RoutePlan routePlan = new RoutePlan();
-        routePlan.setFecha(startOfDay);
-        routePlan.setObjetivo(request.getObjective());
-        routePlan.setEstado(RoutePlan.Estado.OPTIMIZING);
-        routePlan = routePlanRepository.save(routePlan);
-
-        // 4. Construir problema para OptaPlanner
-        VehicleRoutingSolution problem = buildOptaPlannerProblem(orders, vehicles);
-        
-        log.info("Problema construido: {} visitas, {} vehículos", problem.getVisits().size(), problem.getVehicles().size());
+        RoutePlan routePlan = transactionTemplate.execute(status -> {
+            RoutePlan newPlan = new RoutePlan();
+            newPlan.setFecha(startOfDay);
+            newPlan.setObjetivo(request.getObjective());
+            newPlan.markAsOptimizing();
+            return routePlanRepository.save(newPlan);
+        });
+        OptimizeRouteResponse.TimingsDTO timings = new OptimizeRouteResponse.TimingsDTO();
+        timings.setLoadMs(elapsedMs(pipelineStart));
 
-        // 5. Resolver con OptaPlanner (30 segundos máximo)
         VehicleRoutingSolution solution;
+        List<PlannedStop> allStops;
         try {
-            SolverJob<VehicleRoutingSolution, Long> solverJob = solverManager.solve(
-                routePlan.getId(), problem
-            );
-            solution = solverJob.getFinalBestSolution();
-            log.info("OptaPlanner finalizado. Score: {}", solution.getScore());
-        } catch (InterruptedException | ExecutionException e) {
-            log.error("Error en OptaPlanner", e);
-            throw new BusinessException("Error al optimizar rutas: " + e.getMessage());
+            // 4. Construir problema para OptaPlanner
+            VehicleRoutingSolution problem = routingProblemFactory.buildProblem(snapshot);
+
+            log.info("Problema construido: {} visitas, {} vehículos", problem.getVisits().size(), problem.getVehicles().size());
+
+            // 5. Resolver con OptaPlanner (30 segundos máximo)
+            long stageStart = System.nanoTime();
+            solution = solve(routePlan.getId(), problem);
+            timings.setSolveMs(elapsedMs(stageStart));
+
+            // 6. Extraer rutas optimizadas y calcular distancias REALES con OSRM
+            stageStart = System.nanoTime();
+            allStops = routeStopExtractor.extractRouteStops(startOfDay, solution, snapshot, Map.of());
+            timings.setExtractMs(elapsedMs(stageStart));
+
+            // 7-9. Métricas, stops y plan
+            stageStart = System.nanoTime();
+            Long routePlanId = routePlan.getId();
+            int solveSeconds = (int) TimeUnit.MILLISECONDS.toSeconds(timings.getSolveMs());
+            routePlan = transactionTemplate.execute(status ->
+                completePlan(routePlanId, false, allStops, solution, solveSeconds));
+            timings.setWriteMs(elapsedMs(stageStart));
+        } catch (RuntimeException e) {
+            routePlanRecoveryService.releaseFailedPlan(routePlan.getId());
+            throw e;
         }
 
-        // 6. Extraer rutas optimizadas y calcular distancias REALES con OSRM
-        List<RouteStop> allStops = extractRouteStopsWithOSRM(routePlan, solution, orders, vehicles);
-
-        // 7. Calcular métricas
-        BigDecimal totalKm = allStops.stream()
-            .map(RouteStop::getDistanciaKmDesdeAnterior)
-            .filter(Objects::nonNull)
-            .reduce(BigDecimal.ZERO, BigDecimal::add);
-        
-        int totalTimeMin = allStops.stream()
-            .map(RouteStop::getTiempoViajeMínDesdeAnterior)
-            .filter(Objects::nonNull)
-            .mapToInt(Integer::intValue)
-            .sum();
-
-        Map<Long, List<RouteStop>> stopsByVehicle = allStops.stream()
-            .collect(Collectors.groupingBy(stop -> stop.getVehicle().getId()));
-
-        BigDecimal totalCost = BigDecimal.ZERO;
-        for (Map.Entry<Long, List<RouteStop>> entry : stopsByVehicle.entrySet()) {
-            Vehicle vehicle = vehicles.stream()
-                .filter(v -> v.getId().equals(entry.getKey()))
-                .findFirst()
-                .orElse(null);
-            
-            if (vehicle != null) {
-                BigDecimal routeKm = entry.getValue().stream()
-                    .map(RouteStop::getDistanciaKmDesdeAnterior)
-                    .filter(Objects::nonNull)
-                    .reduce(BigDecimal.ZERO, BigDecimal::add);
-                totalCost = totalCost.add(routeKm.multiply(vehicle.getCostoKm()));
-            }
-        }
-
-        // 8. Guardar stops
-        routeStopRepository.saveAll(allStops);
-
-        // 9. Actualizar plan
-        routePlan.setEstado(RoutePlan.Estado.OPTIMIZED);
-        routePlan.setKmsTotales(totalKm);
-        routePlan.setTiempoEstimadoMin(totalTimeMin);
-        routePlan.setCostoTotal(totalCost);
-        routePlan.setVehiculosUtilizados(stopsByVehicle.size());
-        routePlan.setPedidosAsignados(orders.size());
-        routePlan.setScore(solution.getScore().toString());
-        routePlanRepository.save(routePlan);
-
-        log.info("Optimización completada: {} km, {} min, ${}, score: {}", 
-            totalKm, totalTimeMin, totalCost, solution.getScore());
+        log.info("Optimización completada: {} km, {} min, ${}, score: {}",
+            routePlan.getKmsTotales(), routePlan.getTiempoEstimadoMin(), routePlan.getCostoTotal(), solution.getScore());
 
         // 10. Construir respuesta
-        return buildResponse(routePlan, allStops, vehicles);
+        OptimizeRouteResponse response = buildResponse(routePlan, allStops, snapshot.vehicles());
+        response.setUnassignedOrderIds(unassignedOrderIds(solution));
+        timings.setTotalMs(elapsedMs(pipelineStart));
+        response.setTimings(timings);
+        log.info("Tiempos plan {}: carga {} ms, solve {} ms, extracción {} ms, escritura {} ms",
+            routePlan.getId(), timings.getLoadMs(), timings.getSolveMs(), timings.getExtractMs(), timings.getWriteMs());
+        return response;
     }
 
     /**
-     * Construye el problema de optimización para OptaPlanner
+     * Re-optimiza un plan existente partiendo de su asignación actual (warm start).
+     * Las paradas de los vehículos ya despachados quedan fijas (@PlanningPin) y los pedidos
+     * pendientes nuevos entran sin asignar, así el solver solo resuelve la diferencia.
+     * Mismas etapas que la optimización completa: las paradas anteriores se reemplazan recién
+     * en la transacción final, y si el solve falla el plan vuelve a OPTIMIZED sin cambios.
      */
-    private VehicleRoutingSolution buildOptaPlannerProblem(List<Order> orders, List<Vehicle> vehicles) {
-        // Crear VehicleInfo para cada vehículo
-        List<VehicleInfo> vehicleInfos = new ArrayList<>();
-        for (Vehicle vehicle : vehicles) {
-            Location depot = new Location(
-                vehicle.getDepotLatitud(),
-                vehicle.getDepotLongitud(),
-                null, // customerId
-                "Depot " + vehicle.getNombre(),
-                vehicle.getZona(), // zona del vehículo
-                0, // tiempoServicio
-                BigDecimal.ZERO // demanda
-            );
-
-            VehicleInfo vehicleInfo = new VehicleInfo(
-                vehicle.getId(),
-                vehicle.getNombre(),
-                vehicle.getCapacidadCantidad(),
-                vehicle.getCapacidadVolumen(),
-                vehicle.getCapacidadPeso(),
-                depot,
-                vehicle.getZona(),
-                vehicle.getConductor(),
-                vehicle.getColor()
-            );
+    public OptimizeRouteResponse reoptimizeRoutePlan(Long routePlanId, ReoptimizeRouteRequest request) {
+        long pipelineStart = System.nanoTime();
+        Set<Long> dispatchedVehicleIds = request.getDispatchedVehicleIds() != null
+            ? new HashSet<>(request.getDispatchedVehicleIds())
+            : Set.of();
+        Set<Long> requestedOrderIds = request.getOrderIds() != null && !request.getOrderIds().isEmpty()
+            ? new HashSet<>(request.getOrderIds())
+            : null;
+
+        // 1-2. Pedidos, vehículos y asignaciones actuales del plan, y pedidos pendientes nuevos de la misma fecha
+        ReoptimizationInput input = readOnlyTransaction().execute(status -> {
+            RoutePlan routePlan = routePlanRepository.findById(routePlanId)
+                .orElseThrow(() -> new ResourceNotFoundException("Plan de rutas no encontrado: " + routePlanId));
+
+            if (routePlan.getEstado() != RoutePlan.Estado.OPTIMIZED) {
+                throw new BusinessException("Solo se pueden re-optimizar planes en estado OPTIMIZED");
+            }
+            List<StopAssignment> assignments = routeStopRepository.findAssignmentsByRoutePlanId(routePlanId);
+            log.info("Re-optimizando plan {} ({} paradas)", routePlanId, assignments.size());
+
+            Map<Long, OrderSnapshot> ordersById = new LinkedHashMap<>();
+            Map<Long, VehicleSnapshot> vehiclesById = new LinkedHashMap<>();
+            routeStopRepository.findOrderSnapshotsByRoutePlanId(routePlanId)
+                .forEach(order -> ordersById.put(order.orderId(), order));
+            routeStopRepository.findVehicleSnapshotsByRoutePlanId(routePlanId)
+                .forEach(vehicle -> vehiclesById.put(vehicle.vehicleId(), vehicle));
+            if (request.getVehicleIds() != null && !request.getVehicleIds().isEmpty()) {
+                vehicleRepository.findSnapshotsByIdIn(request.getVehicleIds())
+                    .forEach(vehicle -> vehiclesById.putIfAbsent(vehicle.vehicleId(), vehicle));
+            }
+            if (vehiclesById.isEmpty()) {
+                throw new BusinessException("No hay vehículos seleccionados");
+            }
 
-            vehicleInfos.add(vehicleInfo);
+            Instant startOfDay = routePlan.getFecha();
+            Instant endOfDay = startOfDay.plus(1, ChronoUnit.DAYS);
+            int newOrders = 0;
+            for (OrderSnapshot order : orderRepository.findPendingSnapshotsBetween(startOfDay, endOfDay)) {
+                if (!ordersById.containsKey(order.orderId())
+                        && (requestedOrderIds == null || requestedOrderIds.contains(order.orderId()))) {
+                    ordersById.put(order.orderId(), order);
+                    newOrders++;
+                }
+            }
+            return new ReoptimizationInput(startOfDay, routePlan.getUpdatedAt(),
+                new OptimizationSnapshot(new ArrayList<>(ordersById.values()), new ArrayList<>(vehiclesById.values())),
+                assignments, newOrders);
+        });
+        OptimizationSnapshot snapshot = input.snapshot();
+
+        // 3. Solución inicial con la asignación actual
+        VehicleRoutingSolution problem = routingProblemFactory.buildProblem(snapshot);
+        Map<Long, VehicleInfo> vehicleInfoById = problem.getVehicles().stream()
+            .collect(Collectors.toMap(VehicleInfo::getVehicleId, vehicleInfo -> vehicleInfo));
+        Map<Long, StopAssignment> assignmentByOrderId = input.assignments().stream()
+            .collect(Collectors.toMap(StopAssignment::orderId, assignment -> assignment));
+        Map<Long, Integer> fixedSequence = new HashMap<>();
+        for (Visit visit : problem.getVisits()) {
+            StopAssignment assignment = assignmentByOrderId.get(visit.getOrderId());
+            if (assignment == null) {
+                continue;
+            }
+            visit.setVehicle(vehicleInfoById.get(assignment.vehicleId()));
+            if (dispatchedVehicleIds.contains(assignment.vehicleId())) {
+                visit.setPinned(true);
+                fixedSequence.put(visit.getOrderId(), assignment.secuencia());
+            }
         }
+        closeDispatchedVehicles(problem, dispatchedVehicleIds);
+        log.info("Warm start: {} visitas asignadas ({} fijas), {} pedidos nuevos",
+            assignmentByOrderId.size(), fixedSequence.size(), input.newOrders());
+
+        // Transición OPTIMIZED -> OPTIMIZING, verificando que nadie lo cambió desde el snapshot
+        transactionTemplate.executeWithoutResult(status -> {
+            RoutePlan managedPlan = routePlanRepository.findByIdForUpdate(routePlanId)
+                .orElseThrow(() -> new ResourceNotFoundException("Plan de rutas no encontrado: " + routePlanId));
+            if (managedPlan.getEstado() != RoutePlan.Estado.OPTIMIZED) {
+                throw new BusinessException("Solo se pueden re-optimizar planes en estado OPTIMIZED");
+            }
+            if (!managedPlan.getUpdatedAt().equals(input.planUpdatedAt())) {
+                // Por ejemplo, una inserción urgente: el warm start ya no refleja las paradas del plan
+                throw new BusinessException("El plan " + routePlanId + " cambió durante la re-optimización; vuelva a intentarlo");
+            }
+            managedPlan.markAsOptimizing();
+            routePlanRepository.save(managedPlan);
+        });
+        OptimizeRouteResponse.TimingsDTO timings = new OptimizeRouteResponse.TimingsDTO();
+        timings.setLoadMs(elapsedMs(pipelineStart));
 
-        // Crear Visit para cada orden
-        List<Visit> visits = new ArrayList<>();
-        for (Order order : orders) {
-            Customer customer = order.getCustomer();
-            
-            Location location = new Location(
-                customer.getLatitud(),
-                customer.getLongitud(),
-                customer.getId(),
-                customer.getNombre(),
-                customer.getZona(), // zona del cliente
-                Objects.requireNonNullElse(order.getTiempoServicioEstimadoMin(), 10),
-                order.getCantidad()
-            );
-
-            Visit visit = new Visit(
-                order.getId(),
-                order.getId(),
-                location,
-                order.getCantidad(),
-                order.getVolumen(),
-                order.getPeso(),
-                order.getPrioridad()
-            );
-
-            visits.add(visit);
+        RoutePlan routePlan;
+        VehicleRoutingSolution solution;
+        List<PlannedStop> allStops;
+        try {
+            // 4. Resolver solo la diferencia
+            long stageStart = System.nanoTime();
+            solution = solve(routePlanId, problem);
+            timings.setSolveMs(elapsedMs(stageStart));
+
+            // 5. Reemplazar las paradas del plan
+            stageStart = System.nanoTime();
+            allStops = routeStopExtractor.extractRouteStops(input.startOfDay(), solution, snapshot, fixedSequence);
+            timings.setExtractMs(elapsedMs(stageStart));
+
+            stageStart = System.nanoTime();
+            int solveSeconds = (int) TimeUnit.MILLISECONDS.toSeconds(timings.getSolveMs());
+            routePlan = transactionTemplate.execute(status ->
+                completePlan(routePlanId, true, allStops, solution, solveSeconds));
+            timings.setWriteMs(elapsedMs(stageStart));
+        } catch (RuntimeException e) {
+            routePlanRecoveryService.releaseFailedPlan(routePlanId);
+            throw e;
         }
 
-        // Crear solución inicial sin asignación
-        VehicleRoutingSolution solution = new VehicleRoutingSolution();
-        solution.setVehicles(vehicleInfos);
-        solution.setVisits(visits);
-
-        return solution;
+        log.info("Re-optimización completada: {} km, score: {}", routePlan.getKmsTotales(), solution.getScore());
+        OptimizeRouteResponse response = buildResponse(routePlan, allStops, snapshot.vehicles());
+        response.setUnassignedOrderIds(unassignedOrderIds(solution));
+        timings.setTotalMs(elapsedMs(pipelineStart));
+        response.setTimings(timings);
+        return response;
     }
 
     /**
-     * Extrae los stops optimizados y calcula distancias REALES con OSRM
+     * Cancela un plan (soft delete): queda CANCELLED y, si estaba optimizado, sus pedidos vuelven
+     * a PENDIENTE con un solo UPDATE para entrar en la próxima optimización de la fecha.
      */
-    private List<RouteStop> extractRouteStopsWithOSRM(
-            RoutePlan routePlan,
-            VehicleRoutingSolution solution,
-            List<Order> orders,
-            List<Vehicle> vehicles) {
-
-        List<RouteStop> allStops = new ArrayList<>();
-
-        // Agrupar visitas por vehículo
-        Map<Long, List<Visit>> visitsByVehicle = solution.getVisits().stream()
-            .filter(visit -> visit.getVehicle() != null)
-            .collect(Collectors.groupingBy(visit -> visit.getVehicle().getVehicleId()));
-
-        for (Map.Entry<Long, List<Visit>> entry : visitsByVehicle.entrySet()) {
-            Long vehicleId = entry.getKey();
-            List<Visit> vehicleVisits = entry.getValue();
-
-            // Encontrar vehículo
-            Vehicle vehicle = vehicles.stream()
-                .filter(v -> v.getId().equals(vehicleId))
-                .findFirst()
-                .orElse(null);
-
-            if (vehicle == null) continue;
-
-            // Ordenar visitas por cadena (previousVisit)
-            List<Visit> orderedVisits = orderVisitsByChain(vehicleVisits);
-
-            // Crear stops con distancias OSRM reales
-            DistanceMatrixService.Location currentLocation = new DistanceMatrixService.Location(
-                vehicle.getDepotLatitud(), vehicle.getDepotLongitud()
-            );
-            Instant currentTime = routePlan.getFecha();
-
-            for (int i = 0; i < orderedVisits.size(); i++) {
-                Visit visit = orderedVisits.get(i);
-                
-                // Encontrar orden correspondiente
-                Order order = orders.stream()
-                    .filter(o -> o.getId().equals(visit.getOrderId()))
-                    .findFirst()
-                    .orElse(null);
-
-                if (order == null) continue;
-
-                Customer customer = order.getCustomer();
-                DistanceMatrixService.Location customerLocation = new DistanceMatrixService.Location(
-                    customer.getLatitud(), customer.getLongitud()
-                );
-
-                // Obtener distancia y tiempo REAL desde OSRM
-                RouteInfo routeInfo = distanceMatrixService.getRouteInfo(currentLocation, customerLocation);
-
-                // Calcular llegada
-                currentTime = currentTime.plusSeconds(routeInfo.getDurationSeconds());
-
-                RouteStop stop = new RouteStop();
-                stop.setRoutePlan(routePlan);
-                stop.setOrder(order);
-                stop.setVehicle(vehicle);
-                stop.setSecuencia(i + 1);
-                stop.setEta(currentTime);
-                stop.setDistanciaKmDesdeAnterior(BigDecimal.valueOf(routeInfo.getDistanceMeters() / 1000.0));
-                stop.setTiempoViajeMínDesdeAnterior((int) (routeInfo.getDurationSeconds() / 60));
-
-                // Tiempo de servicio
-                int serviceTime = Objects.requireNonNullElse(order.getTiempoServicioEstimadoMin(), 10);
-                currentTime = currentTime.plusSeconds(serviceTime * 60L);
-                stop.setEtd(currentTime);
+    public void cancelRoutePlan(Long routePlanId) {
+        transactionTemplate.executeWithoutResult(status -> {
+            RoutePlan routePlan = routePlanRepository.findById(routePlanId)
+                .orElseThrow(() -> new ResourceNotFoundException("Plan de rutas no encontrado: " + routePlanId));
+            if (routePlan.getEstado() == RoutePlan.Estado.OPTIMIZING) {
+                throw new BusinessException("No se puede cancelar un plan mientras se optimiza");
+            }
+            if (routePlan.getEstado() == RoutePlan.Estado.OPTIMIZED) {
+                int released = orderRepository.markPendingByRoutePlanId(routePlanId, Instant.now());
+                log.info("Plan {} cancelado: {} pedidos vuelven a PENDIENTE", routePlanId, released);
+            }
+            routePlan.markAsCancelled();
+            routePlanRepository.save(routePlan);
+        });
+    }
 
-                allStops.add(stop);
-                currentLocation = customerLocation;
+    /**
+     * Un vehículo despachado ya no puede cargar más: su capacidad se reduce a la carga que lleva,
+     * así cualquier pedido nuevo asignado a él viola la restricción de capacidad.
+     */
+    private void closeDispatchedVehicles(VehicleRoutingSolution problem, Set<Long> dispatchedVehicleIds) {
+        for (VehicleInfo vehicle : problem.getVehicles()) {
+            if (!dispatchedVehicleIds.contains(vehicle.getVehicleId())) {
+                continue;
             }
+            BigDecimal cantidad = BigDecimal.ZERO;
+            BigDecimal volumen = BigDecimal.ZERO;
+            BigDecimal peso = BigDecimal.ZERO;
+            for (Visit visit : problem.getVisits()) {
+                if (visit.isPinned() && visit.getVehicle() == vehicle) {
+                    cantidad = cantidad.add(Objects.requireNonNullElse(visit.getCantidad(), BigDecimal.ZERO));
+                    volumen = volumen.add(Objects.requireNonNullElse(visit.getVolumen(), BigDecimal.ZERO));
+                    peso = peso.add(Objects.requireNonNullElse(visit.getPeso(), BigDecimal.ZERO));
+                }
+            }
+            vehicle.setCapacidadCantidad(cantidad);
+            vehicle.setCapacidadVolumen(volumen);
+            vehicle.setCapacidadPeso(peso);
         }
+    }
 
-        return allStops;
+    /**
+     * Resuelve el problema con el SolverManager del perfil que corresponde a su tamaño,
+     * o con el portfolio (si está habilitado) para el perfil MEDIUM.
+     */
+    private VehicleRoutingSolution solve(Long problemId, VehicleRoutingSolution problem) {
+        // Chequeo rápido de capacidad: si la demanda supera a la flota, el mejor resultado
+        // posible deja pedidos afuera y el solve termina por tiempo sin mejora
+        int unassignedLowerBound = routingProblemFactory.unassignedLowerBound(problem);
+        if (unassignedLowerBound > 0) {
+            log.warn("La demanda supera la capacidad de la flota: al menos {} de {} pedidos quedarán sin asignar",
+                unassignedLowerBound, problem.getVisits().size());
+        }
+        try {
+            VehicleRoutingSolution solution;
+            SolverProfile profile = solverProfiles.select(problem);
+            if (profile == SolverProfile.MEDIUM && portfolioSolverService.isEnabled()) {
+                solution = portfolioSolverService.solve(problemId, problem);
+            } else {
+                solution = solverProfiles.solve(profile, problemId, problem);
+            }
+            log.info("OptaPlanner finalizado. Score: {}", solution.getScore());
+            return solution;
+        } catch (InterruptedException | ExecutionException e) {
+            log.error("Error en OptaPlanner", e);
+            throw new BusinessException("Error al optimizar rutas: " + e.getMessage());
+        }
     }
 
     /**
-     * Ordena visitas por proximidad geográfica (algoritmo nearest neighbor)
-     * Ya que no usamos chained variables, ordenamos por distancia desde el depot.
+     * Calcula las métricas, guarda los stops y marca el plan como optimizado (y sus pedidos como PLANIFICADO).
+     * Corre dentro de la transacción de escritura final, sobre el plan recién leído. Falla (y revierte)
+     * si algún pedido ya no está PENDIENTE, es decir, si otra optimización concurrente lo planificó.
+     * Los stops se insertan con RouteStopBulkWriter (JDBC batch), no como entidades.
+     *
+     * @param replaceStops borra antes las paradas anteriores (re-optimización)
      */
-    private List<Visit> orderVisitsByChain(List<Visit> visits) {
-        if (visits.isEmpty()) {
-            return new ArrayList<>();
+    private RoutePlan completePlan(Long routePlanId, boolean replaceStops, List<PlannedStop> allStops,
+                                   VehicleRoutingSolution solution, int solveSeconds) {
+        RoutePlan routePlan = (replaceStops
+                ? routePlanRepository.findByIdWithStops(routePlanId)
+                : routePlanRepository.findById(routePlanId))
+            .orElseThrow(() -> new ResourceNotFoundException("Plan de rutas no encontrado: " + routePlanId));
+        Instant now = Instant.now();
+        if (replaceStops) {
+            // Los pedidos que salgan del plan vuelven a PENDIENTE; los que quedan se marcan de nuevo abajo
+            orderRepository.markPendingByRoutePlanId(routePlanId, now);
+            // Borrar antes de insertar por la restricción única plan/pedido
+            routePlan.getStops().clear();
+            routeStopRepository.flush();
         }
 
-        // SIMPLIFICADO: Ya que OptaPlanner solo asigna vehículos (no secuencia),
-        // ordenamos las visitas por proximidad desde el depot del vehículo.
-        
-        // Obtener depot del vehículo (todas las visitas tienen el mismo vehículo aquí)
-        VehicleInfo vehicle = visits.get(0).getVehicle();
-        if (vehicle == null) {
-            return visits; // Sin vehículo asignado, devolver como está
+        // Calcular métricas
+        BigDecimal totalKm = BigDecimal.ZERO;
+        BigDecimal totalCost = BigDecimal.ZERO;
+        int totalTimeMin = 0;
+        Set<Long> vehicleIds = new HashSet<>();
+        for (PlannedStop stop : allStops) {
+            BigDecimal km = Objects.requireNonNullElse(stop.distanciaKmDesdeAnterior(), BigDecimal.ZERO);
+            totalKm = totalKm.add(km);
+            totalCost = totalCost.add(km.multiply(Objects.requireNonNullElse(stop.vehicle().costoKm(), BigDecimal.ZERO)));
+            totalTimeMin += stop.tiempoViajeMinDesdeAnterior();
+            vehicleIds.add(stop.vehicle().vehicleId());
         }
 
-        Location depot = vehicle.getDepot();
-        List<Visit> ordered = new ArrayList<>();
-        List<Visit> remaining = new ArrayList<>(visits);
-        
-        // Algoritmo Nearest Neighbor: desde depot, siempre elegir la visita más cercana
-        Location currentLocation = depot;
-        
-        while (!remaining.isEmpty()) {
-            // Encontrar la visita más cercana a la ubicación actual
-            Visit nearest = null;
-            double minDistance = Double.MAX_VALUE;
-            
-            for (Visit visit : remaining) {
-                double distance = calculateHaversineDistance(
-                    currentLocation.getLatitud(),
-                    currentLocation.getLongitud(),
-                    visit.getLocation().getLatitud(),
-                    visit.getLocation().getLongitud()
-                );
-                
-                if (distance < minDistance) {
-                    minDistance = distance;
-                    nearest = visit;
-                }
-            }
-            
-            if (nearest != null) {
-                ordered.add(nearest);
-                remaining.remove(nearest);
-                currentLocation = nearest.getLocation();
-            } else {
-                break; // No debería ocurrir, pero por seguridad
-            }
+        // Guardar stops y sacar sus pedidos de PENDIENTE para que la próxima optimización de la fecha no los repita.
+        // El UPDATE solo toma pedidos que siguen PENDIENTE: si otra optimización de la misma fecha ya
+        // planificó alguno, se revierte toda la transacción en vez de dejar el pedido en dos planes
+        routeStopBulkWriter.insert(routePlanId, allStops);
+        int planned = orderRepository.markPlannedByRoutePlanId(routePlanId, now);
+        if (planned != allStops.size()) {
+            throw new BusinessException((allStops.size() - planned) + " pedidos del plan " + routePlanId
+                + " ya fueron planificados por otra optimización; vuelva a optimizar la fecha");
         }
-        
-        log.debug("Ordenadas {} visitas para vehículo {} usando nearest neighbor", 
-            ordered.size(), vehicle.getVehicleName());
-        
-        return ordered;
+        log.debug("Plan {}: {} pedidos pasan a PLANIFICADO", routePlanId, planned);
+
+        // Actualizar plan
+        routePlan.markAsOptimized();
+        routePlan.setKmsTotales(totalKm);
+        routePlan.setTiempoEstimadoMin(totalTimeMin);
+        routePlan.setCostoTotal(totalCost);
+        routePlan.setVehiculosUtilizados(vehicleIds.size());
+        routePlan.setPedidosAsignados(allStops.size());
+        routePlan.setPedidosNoAsignados(unassignedOrderIds(solution).size());
+        routePlan.setScore(solution.getScore().toString());
+        routePlan.setTiempoOptimizacionSeg(solveSeconds);
+        return routePlanRepository.save(routePlan);
+    }
+
+    private static long elapsedMs(long startNanos) {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+    }
+
+    private TransactionTemplate readOnlyTransaction() {
+        TransactionTemplate readOnly = new TransactionTemplate(transactionTemplate.getTransactionManager());
+        readOnly.setReadOnly(true);
+        return readOnly;
+    }
+
+    private record ReoptimizationInput(Instant startOfDay, Instant planUpdatedAt, OptimizationSnapshot snapshot,
+                                       List<StopAssignment> assignments, int newOrders) {
     }
-    
+
     /**
-     * Calcula distancia Haversine entre dos puntos (en km)
+     * Pedidos que el solver dejó sin vehículo (días en que la demanda supera a la flota).
      */
-    private double calculateHaversineDistance(BigDecimal lat1, BigDecimal lon1, 
-                                              BigDecimal lat2, BigDecimal lon2) {
-        final int R = 6371; // Radio de la Tierra en km
-        
-        double latDistance = Math.toRadians(lat2.doubleValue() - lat1.doubleValue());
-        double lonDistance = Math.toRadians(lon2.doubleValue() - lon1.doubleValue());
-        
-        double a = Math.sin(latDistance / 2) * Math.sin(latDistance / 2)
-                + Math.cos(Math.toRadians(lat1.doubleValue())) * Math.cos(Math.toRadians(lat2.doubleValue()))
-                * Math.sin(lonDistance / 2) * Math.sin(lonDistance / 2);
-        
-        double c = 2 * Math.atan2(Math.sqrt(a), Math.sqrt(1 - a));
-        
-        return R * c;
+    private static List<Long> unassignedOrderIds(VehicleRoutingSolution solution) {
+        return solution.getVisits().stream()
+            .filter(visit -> visit.getVehicle() == null)
+            .map(Visit::getOrderId)
+            .collect(Collectors.toList());
     }
 
-    private OptimizeRouteResponse buildResponse(RoutePlan routePlan, List<RouteStop> allStops, List<Vehicle> vehicles) {
+    private OptimizeRouteResponse buildResponse(RoutePlan routePlan, List<PlannedStop> allStops, List<VehicleSnapshot> vehicles) {
         OptimizeRouteResponse response = new OptimizeRouteResponse();
         response.setRoutePlanId(routePlan.getId());
         response.setStatus(routePlan.getEstado().name());
         response.setScore(routePlan.getScore());
+        response.setTiempoOptimizacionSeg(routePlan.getTiempoOptimizacionSeg());
 
         // Agrupar stops por vehículo
-        Map<Long, List<RouteStop>> stopsByVehicle = allStops.stream()
-            .collect(Collectors.groupingBy(stop -> stop.getVehicle().getId()));
+        Map<Long, List<PlannedStop>> stopsByVehicle = allStops.stream()
+            .collect(Collectors.groupingBy(stop -> stop.vehicle().vehicleId()));
 
         List<OptimizeRouteResponse.VehicleRouteDTO> routes = new ArrayList<>();
         
@@ -423,24 +473,22 @@ public class RouteOptimizationService {
         int totalServiceTime = 0;
         int totalWaitTime = 0;
 
-        for (Vehicle vehicle : vehicles) {
-            List<RouteStop> vehicleStops = stopsByVehicle.getOrDefault(vehicle.getId(), Collections.emptyList());
+        for (VehicleSnapshot vehicle : vehicles) {
+            List<PlannedStop> vehicleStops = stopsByVehicle.getOrDefault(vehicle.vehicleId(), Collections.emptyList());
             if (vehicleStops.isEmpty()) continue;
 
             // Calcular métricas del vehículo
             BigDecimal routeKm = vehicleStops.stream()
-                .map(RouteStop::getDistanciaKmDesdeAnterior)
+                .map(PlannedStop::distanciaKmDesdeAnterior)
                 .filter(Objects::nonNull)
                 .reduce(BigDecimal.ZERO, BigDecimal::add);
                 
             int routeTravelTime = vehicleStops.stream()
-                .map(RouteStop::getTiempoViajeMínDesdeAnterior)
-                .filter(Objects::nonNull)
-                .mapToInt(Integer::intValue)
+                .mapToInt(PlannedStop::tiempoViajeMinDesdeAnterior)
                 .sum();
                 
             int routeServiceTime = vehicleStops.stream()
-                .map(stop -> stop.getOrder().getTiempoServicioEstimadoMin())
+                .map(stop -> stop.order().tiempoServicioMin())
                 .filter(Objects::nonNull)
                 .mapToInt(Integer::intValue)
                 .sum();
@@ -448,13 +496,12 @@ public class RouteOptimizationService {
             int routeWaitTime = 0; // Por ahora, no calculamos esperas
 
             // Calcular retorno al depot
-            RouteStop lastStop = vehicleStops.get(vehicleStops.size() - 1);
-            Customer lastCustomer = lastStop.getOrder().getCustomer();
+            OrderSnapshot lastOrder = vehicleStops.get(vehicleStops.size() - 1).order();
             DistanceMatrixService.Location lastLocation = new DistanceMatrixService.Location(
-                lastCustomer.getLatitud(), lastCustomer.getLongitud()
+                lastOrder.latitud(), lastOrder.longitud()
             );
             DistanceMatrixService.Location depotLocation = new DistanceMatrixService.Location(
-                vehicle.getDepotLatitud(), vehicle.getDepotLongitud()
+                vehicle.depotLatitud(), vehicle.depotLongitud()
             );
             RouteInfo returnInfo = distanceMatrixService.getRouteInfo(lastLocation, depotLocation);
             
@@ -466,16 +513,15 @@ public class RouteOptimizationService {
             
             // Empezar desde depot
             fullRouteCoordinates.add(Arrays.asList(
-                vehicle.getDepotLongitud().doubleValue(), 
-                vehicle.getDepotLatitud().doubleValue()
+                vehicle.depotLongitud().doubleValue(),
+                vehicle.depotLatitud().doubleValue()
             ));
             
             // Agregar geometrías de cada segmento
             DistanceMatrixService.Location currentLoc = depotLocation;
-            for (RouteStop stop : vehicleStops) {
-                Customer customer = stop.getOrder().getCustomer();
+            for (PlannedStop stop : vehicleStops) {
                 DistanceMatrixService.Location nextLoc = new DistanceMatrixService.Location(
-                    customer.getLatitud(), customer.getLongitud()
+                    stop.order().latitud(), stop.order().longitud()
                 );
                 
                 RouteInfo segmentInfo = distanceMatrixService.getRouteInfo(currentLoc, nextLoc);
@@ -495,11 +541,11 @@ public class RouteOptimizationService {
             }
 
             OptimizeRouteResponse.VehicleRouteDTO route = new OptimizeRouteResponse.VehicleRouteDTO();
-            route.setVehicleId(vehicle.getId());
-            route.setVehicleName(vehicle.getNombre());
-            route.setConductor(vehicle.getConductor());
-            route.setZona(vehicle.getZona());
-            route.setColor(vehicle.getColor());
+            route.setVehicleId(vehicle.vehicleId());
+            route.setVehicleName(vehicle.nombre());
+            route.setConductor(vehicle.conductor());
+            route.setZona(vehicle.zona());
+            route.setColor(vehicle.color());
             route.setTotalKm(routeKm.add(returnKm));
             route.setTotalTravelTimeMin(routeTravelTime + returnTimeMin);
             route.setTotalServiceTimeMin(routeServiceTime);
@@ -539,34 +585,34 @@ public class RouteOptimizationService {
         metrics.setTotalCost(routePlan.getCostoTotal());
         metrics.setVehiculosUtilizados(routePlan.getVehiculosUtilizados());
         metrics.setPedidosAsignados(routePlan.getPedidosAsignados());
-        metrics.setPedidosNoAsignados(0);
+        metrics.setPedidosNoAsignados(routePlan.getPedidosNoAsignados());
         response.setMetrics(metrics);
 
         return response;
     }
 
-    private OptimizeRouteResponse.StopDTO toStopDTO(RouteStop stop) {
-        Customer customer = stop.getOrder().getCustomer();
+    private OptimizeRouteResponse.StopDTO toStopDTO(PlannedStop stop) {
+        OrderSnapshot order = stop.order();
 
         OptimizeRouteResponse.StopDTO dto = new OptimizeRouteResponse.StopDTO();
-        dto.setOrderId(stop.getOrder().getId());
-        dto.setCustomerId(customer.getId());
-        dto.setCustomerName(customer.getNombre());
-        dto.setDireccion(customer.getDireccion());
-        dto.setSequence(stop.getSecuencia());
-        dto.setEta(stop.getEta().toString());
-        dto.setEtd(stop.getEtd().toString());
-        dto.setLatitude(customer.getLatitud().doubleValue());
-        dto.setLongitude(customer.getLongitud().doubleValue());
-        dto.setDistanceKmFromPrev(stop.getDistanciaKmDesdeAnterior());
-        dto.setTravelTimeMinFromPrev(stop.getTiempoViajeMínDesdeAnterior());
-        dto.setServiceTimeMin(Objects.requireNonNullElse(stop.getOrder().getTiempoServicioEstimadoMin(), 10));
+        dto.setOrderId(order.orderId());
+        dto.setCustomerId(order.customerId());
+        dto.setCustomerName(order.customerName());
+        dto.setDireccion(order.direccion());
+        dto.setSequence(stop.secuencia());
+        dto.setEta(stop.eta().toString());
+        dto.setEtd(stop.etd().toString());
+        dto.setLatitude(order.latitud().doubleValue());
+        dto.setLongitude(order.longitud().doubleValue());
+        dto.setDistanceKmFromPrev(stop.distanciaKmDesdeAnterior());
+        dto.setTravelTimeMinFromPrev(stop.tiempoViajeMinDesdeAnterior());
+        dto.setServiceTimeMin(Objects.requireNonNullElse(order.tiempoServicioMin(), 10));
         dto.setWaitTimeMin(0); // Por ahora no hay esperas
-        dto.setCantidad(stop.getOrder().getCantidad());
-        dto.setVolumen(stop.getOrder().getVolumen());
-        dto.setPeso(stop.getOrder().getPeso());
-        dto.setVehicleId(stop.getVehicle().getId());
-        dto.setVehiclePatente(stop.getVehicle().getPatente());
+        dto.setCantidad(order.cantidad());
+        dto.setVolumen(order.volumen());
+        dto.setPeso(order.peso());
+        dto.setVehicleId(stop.vehicle().vehicleId());
+        dto.setVehiclePatente(stop.vehicle().patente());
 
         return dto;
     }
@@ -0,0 +1,76 @@
+package com.customer.rutaOptima.service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.customer.rutaOptima.domain.RoutePlan;
+import com.customer.rutaOptima.persistence.RoutePlanRepository;
+import com.customer.rutaOptima.persistence.RouteStopRepository;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Saca de OPTIMIZING a los planes cuyo solve no terminó (error o caída del proceso).
+ * Las paradas se escriben en una sola transacción al final del pipeline, así que un plan
+ * interrumpido conserva exactamente lo que tenía antes de empezar:
+ * - Sin paradas (optimización nueva): queda FAILED.
+ * - Con paradas (re-optimización): vuelve a OPTIMIZED con sus rutas anteriores.
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class RoutePlanRecoveryService {
+
+    private final RoutePlanRepository routePlanRepository;
+    private final RouteStopRepository routeStopRepository;
+
+    // Mayor que la duración máxima de un solve más la extracción con OSRM, para no tocar
+    // planes que otra instancia todavía está optimizando
+    @Value("${app.optimization.stale-plan-timeout:PT5M}")
+    private Duration stalePlanTimeout;
+
+    /**
+     * Al arrancar, recupera los planes que quedaron en OPTIMIZING por una caída a mitad de un solve.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional
+    public void recoverStalePlans() {
+        List<RoutePlan> stalePlans = routePlanRepository.findByEstadoAndUpdatedAtBefore(
+            RoutePlan.Estado.OPTIMIZING, Instant.now().minus(stalePlanTimeout));
+        for (RoutePlan routePlan : stalePlans) {
+            release(routePlan);
+        }
+        if (!stalePlans.isEmpty()) {
+            log.warn("Recuperados {} planes que quedaron en OPTIMIZING", stalePlans.size());
+        }
+    }
+
+    /**
+     * Libera un plan cuya optimización falló, en su propia transacción.
+     */
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public void releaseFailedPlan(Long routePlanId) {
+        routePlanRepository.findById(routePlanId)
+            .filter(routePlan -> routePlan.getEstado() == RoutePlan.Estado.OPTIMIZING)
+            .ifPresent(this::release);
+    }
+
+    private void release(RoutePlan routePlan) {
+        if (routeStopRepository.existsByRoutePlanId(routePlan.getId())) {
+            routePlan.markAsOptimized();
+        } else {
+            routePlan.markAsFailed();
+        }
+        routePlanRepository.save(routePlan);
+        log.info("Plan {} liberado como {}", routePlan.getId(), routePlan.getEstado());
+    }
+}
@@ -0,0 +1,334 @@
+package com.customer.rutaOptima.service;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import org.optaplanner.core.api.solver.SolverFactory;
+import org.optaplanner.core.config.solver.SolverConfig;
+import org.optaplanner.core.config.solver.termination.TerminationConfig;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.customer.rutaOptima.api.dto.RouteRepairRequest;
+import com.customer.rutaOptima.config.exception.BusinessException;
+import com.customer.rutaOptima.config.exception.ResourceNotFoundException;
+import com.customer.rutaOptima.domain.Customer;
+import com.customer.rutaOptima.domain.Order;
+import com.customer.rutaOptima.domain.RoutePlan;
+import com.customer.rutaOptima.domain.RouteStop;
+import com.customer.rutaOptima.domain.Vehicle;
+import com.customer.rutaOptima.optimization.domain.VehicleInfo;
+import com.customer.rutaOptima.optimization.domain.VehicleRoutingSolution;
+import com.customer.rutaOptima.optimization.domain.Visit;
+import com.customer.rutaOptima.optimization.solver.RoutingCosts;
+import com.customer.rutaOptima.persistence.OrderRepository;
+import com.customer.rutaOptima.persistence.RoutePlanRepository;
+import com.customer.rutaOptima.persistence.RouteStopRepository;
+import com.customer.rutaOptima.persistence.VehicleRepository;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Reparación local de un plan ante una disrupción (vehículo averiado, pedidos cancelados).
+ * En lugar de re-optimizar toda la flota, arma un sub-problema con las rutas afectadas y las
+ * de los vehículos vecinos (paradas o depot dentro del radio), lo resuelve con un límite de
+ * tiempo corto partiendo de la asignación actual y reemplaza solo esas rutas en el plan.
+ */
+@Service
+@Slf4j
+public class RouteRepairService {
+
+    private final RoutePlanRepository routePlanRepository;
+    private final RouteStopRepository routeStopRepository;
+    private final OrderRepository orderRepository;
+    private final RoutingProblemFactory routingProblemFactory;
+    private final RouteStopExtractor routeStopExtractor;
+    private final VehicleRepository vehicleRepository;
+    private final RoutePlanRecoveryService routePlanRecoveryService;
+    private final TransactionTemplate transactionTemplate;
+    private final SolverFactory<VehicleRoutingSolution> repairSolverFactory;
+
+    // Radio por defecto alrededor de las paradas afectadas
+    @Value("${app.optimization.repair.radius-km:3}")
+    private double defaultRadiusKm;
+
+    public RouteRepairService(RoutePlanRepository routePlanRepository,
+                              RouteStopRepository routeStopRepository,
+                              OrderRepository orderRepository,
+                              RoutingProblemFactory routingProblemFactory,
+                              RouteStopExtractor routeStopExtractor,
+                              VehicleRepository vehicleRepository,
+                              RoutePlanRecoveryService routePlanRecoveryService,
+                              TransactionTemplate transactionTemplate,
+                              SolverConfig solverConfig,
+                              @Value("${app.optimization.repair.time-limit-seconds:5}") long timeLimitSeconds) {
+        this.routePlanRepository = routePlanRepository;
+        this.routeStopRepository = routeStopRepository;
+        this.orderRepository = orderRepository;
+        this.routingProblemFactory = routingProblemFactory;
+        this.routeStopExtractor = routeStopExtractor;
+        this.vehicleRepository = vehicleRepository;
+        this.routePlanRecoveryService = routePlanRecoveryService;
+        this.transactionTemplate = transactionTemplate;
+        // Misma configuración que el solve completo, con un límite de tiempo corto
+        this.repairSolverFactory = SolverFactory.create(solverConfig.copyConfig()
+            .withTerminationConfig(new TerminationConfig()
+                .withSpentLimit(Duration.ofSeconds(timeLimitSeconds))));
+    }
+
+    /**
+     * Mismas etapas que la optimización completa (ver RouteOptimizationService): el sub-problema
+     * se arma en una transacción de solo lectura, el solve y la extracción con OSRM corren sin
+     * transacción (sin retener una conexión del pool) y las rutas se reemplazan en una transacción
+     * corta al final. Mientras tanto el plan queda en OPTIMIZING; si algo falla vuelve a OPTIMIZED
+     * sin cambios (ver RoutePlanRecoveryService).
+     */
+    public RoutePlan repair(Long routePlanId, RouteRepairRequest request) {
+        // 1-4. Sub-problema (solo lectura)
+        RepairProblem repairProblem = readOnlyTransaction().execute(status -> buildRepairProblem(routePlanId, request));
+
+        // Transición OPTIMIZED -> OPTIMIZING, verificando que nadie lo cambió desde el snapshot
+        transactionTemplate.executeWithoutResult(status -> {
+            RoutePlan managedPlan = routePlanRepository.findByIdForUpdate(routePlanId)
+                .orElseThrow(() -> new ResourceNotFoundException("Plan de rutas no encontrado: " + routePlanId));
+            if (managedPlan.getEstado() != RoutePlan.Estado.OPTIMIZED) {
+                throw new BusinessException("Solo se pueden reparar planes en estado OPTIMIZED");
+            }
+            if (!managedPlan.getUpdatedAt().equals(repairProblem.planUpdatedAt())) {
+                // Por ejemplo, una inserción urgente: el sub-problema ya no refleja las rutas del plan
+                throw new BusinessException("El plan " + routePlanId + " cambió durante la reparación; vuelva a intentarlo");
+            }
+            managedPlan.markAsOptimizing();
+            routePlanRepository.save(managedPlan);
+        });
+
+        try {
+            // 5. Resolver con límite de tiempo corto y extraer las paradas nuevas (sin transacción)
+            long start = System.currentTimeMillis();
+            VehicleRoutingSolution solution = repairSolverFactory.buildSolver().solve(repairProblem.problem());
+            log.info("Reparación plan {}: score del sub-problema {} en {} ms",
+                routePlanId, solution.getScore(), System.currentTimeMillis() - start);
+            List<PlannedStop> plannedStops = routeStopExtractor.extractRouteStops(
+                repairProblem.fecha(), solution, repairProblem.snapshot(), Map.of());
+
+            // 6. Reemplazar solo las rutas afectadas
+            return transactionTemplate.execute(status ->
+                replaceRoutes(routePlanId, repairProblem, solution, plannedStops));
+        } catch (RuntimeException e) {
+            routePlanRecoveryService.releaseFailedPlan(routePlanId);
+            throw e;
+        }
+    }
+
+    private RepairProblem buildRepairProblem(Long routePlanId, RouteRepairRequest request) {
+        RoutePlan routePlan = routePlanRepository.findById(routePlanId)
+            .orElseThrow(() -> new ResourceNotFoundException("Plan de rutas no encontrado: " + routePlanId));
+        if (routePlan.getEstado() != RoutePlan.Estado.OPTIMIZED) {
+            throw new BusinessException("Solo se pueden reparar planes en estado OPTIMIZED");
+        }
+
+        Long removedVehicleId = request.getRemovedVehicleId();
+        Set<Long> cancelledOrderIds = request.getCancelledOrderIds() != null
+            ? new HashSet<>(request.getCancelledOrderIds())
+            : Set.of();
+        if (removedVehicleId == null && cancelledOrderIds.isEmpty()) {
+            throw new BusinessException("Debe indicar un vehículo fuera de servicio o pedidos cancelados");
+        }
+        double radiusKm = request.getRadiusKm() != null ? request.getRadiusKm() : defaultRadiusKm;
+
+        // 1. Rutas actuales por vehículo (con pedido, cliente y vehículo cargados)
+        Map<Long, List<RouteStop>> routes = new LinkedHashMap<>();
+        for (RouteStop stop : routeStopRepository.findByRoutePlanIdWithDetails(routePlanId)) {
+            routes.computeIfAbsent(stop.getVehicle().getId(), id -> new ArrayList<>()).add(stop);
+        }
+        if (removedVehicleId != null && !routes.containsKey(removedVehicleId)) {
+            throw new BusinessException("El vehículo " + removedVehicleId + " no tiene paradas en el plan " + routePlanId);
+        }
+
+        // 2. Paradas afectadas directamente por la disrupción
+        List<RouteStop> disrupted = new ArrayList<>();
+        Set<Long> affectedVehicleIds = new LinkedHashSet<>();
+        for (Map.Entry<Long, List<RouteStop>> entry : routes.entrySet()) {
+            for (RouteStop stop : entry.getValue()) {
+                boolean removed = entry.getKey().equals(removedVehicleId);
+                if (removed || cancelledOrderIds.contains(stop.getOrder().getId())) {
+                    disrupted.add(stop);
+                    if (!removed) {
+                        affectedVehicleIds.add(entry.getKey());
+                    }
+                }
+            }
+        }
+        if (disrupted.isEmpty()) {
+            throw new BusinessException("Ninguno de los pedidos cancelados está en el plan " + routePlanId);
+        }
+
+        // 3. Vehículos vecinos: alguna parada o el depot dentro del radio de una parada afectada
+        double[][] points = new double[disrupted.size()][];
+        for (int i = 0; i < points.length; i++) {
+            Customer customer = disrupted.get(i).getOrder().getCustomer();
+            points[i] = new double[] { customer.getLatitud().doubleValue(), customer.getLongitud().doubleValue() };
+        }
+        for (Map.Entry<Long, List<RouteStop>> entry : routes.entrySet()) {
+            if (entry.getKey().equals(removedVehicleId) || affectedVehicleIds.contains(entry.getKey())) {
+                continue;
+            }
+            Vehicle vehicle = entry.getValue().get(0).getVehicle();
+            boolean near = isNear(points, vehicle.getDepotLatitud().doubleValue(), vehicle.getDepotLongitud().doubleValue(), radiusKm);
+            for (int i = 0; i < entry.getValue().size() && !near; i++) {
+                Customer customer = entry.getValue().get(i).getOrder().getCustomer();
+                near = isNear(points, customer.getLatitud().doubleValue(), customer.getLongitud().doubleValue(), radiusKm);
+            }
+            if (near) {
+                affectedVehicleIds.add(entry.getKey());
+            }
+        }
+        if (affectedVehicleIds.isEmpty()) {
+            throw new BusinessException("No hay vehículos dentro de " + radiusKm + " km para reubicar las paradas afectadas");
+        }
+
+        // 4. Sub-problema: rutas afectadas (sin cancelados) + paradas del vehículo removido sin asignar
+        List<Vehicle> vehicles = new ArrayList<>();
+        List<Order> orders = new ArrayList<>();
+        Map<Long, Long> currentVehicleByOrderId = new LinkedHashMap<>();
+        for (Long vehicleId : affectedVehicleIds) {
+            List<RouteStop> route = routes.get(vehicleId);
+            vehicles.add(route.get(0).getVehicle());
+            for (RouteStop stop : route) {
+                if (!cancelledOrderIds.contains(stop.getOrder().getId())) {
+                    orders.add(stop.getOrder());
+                    currentVehicleByOrderId.put(stop.getOrder().getId(), vehicleId);
+                }
+            }
+        }
+        if (removedVehicleId != null) {
+            for (RouteStop stop : routes.get(removedVehicleId)) {
+                if (!cancelledOrderIds.contains(stop.getOrder().getId())) {
+                    orders.add(stop.getOrder());
+                }
+            }
+        }
+
+        VehicleRoutingSolution problem = routingProblemFactory.buildProblem(orders, vehicles);
+        Map<Long, VehicleInfo> vehicleInfoById = problem.getVehicles().stream()
+            .collect(Collectors.toMap(VehicleInfo::getVehicleId, vehicleInfo -> vehicleInfo));
+        for (Visit visit : problem.getVisits()) {
+            Long vehicleId = currentVehicleByOrderId.get(visit.getOrderId());
+            if (vehicleId != null) {
+                visit.setVehicle(vehicleInfoById.get(vehicleId));
+            }
+        }
+        log.info("Reparación plan {}: sub-problema de {} visitas y {} vehículos (de {} rutas), radio {} km",
+            routePlanId, problem.getVisits().size(), vehicles.size(), routes.size(), radiusKm);
+
+        Set<Long> replacedVehicleIds = new HashSet<>(affectedVehicleIds);
+        if (removedVehicleId != null) {
+            replacedVehicleIds.add(removedVehicleId);
+        }
+        return new RepairProblem(routePlan.getFecha(), routePlan.getUpdatedAt(), problem,
+            OptimizationSnapshot.of(orders, vehicles), replacedVehicleIds, cancelledOrderIds);
+    }
+
+    /**
+     * Reemplaza en el plan las rutas de los vehículos reparados y quita los pedidos cancelados
+     * (borrar antes de insertar por la restricción única plan/pedido), y vuelve a OPTIMIZED.
+     * Los pedidos cancelados que estaban en el plan pasan a CANCELADO en la misma transacción,
+     * para que no queden PLANIFICADO sin parada ni vuelvan a entrar en otra optimización.
+     */
+    private RoutePlan replaceRoutes(Long routePlanId, RepairProblem repairProblem,
+                                    VehicleRoutingSolution solution, List<PlannedStop> plannedStops) {
+        RoutePlan routePlan = routePlanRepository.findByIdWithStops(routePlanId)
+            .orElseThrow(() -> new ResourceNotFoundException("Plan de rutas no encontrado: " + routePlanId));
+        List<Long> unassignedOrderIds = solution.getVisits().stream()
+            .filter(visit -> visit.getVehicle() == null)
+            .map(Visit::getOrderId)
+            .collect(Collectors.toList());
+        if (!unassignedOrderIds.isEmpty()) {
+            log.warn("Reparación plan {}: {} pedidos no entran en los vehículos vecinos y quedan sin asignar",
+                routePlanId, unassignedOrderIds.size());
+            routePlan.setPedidosNoAsignados(
+                Objects.requireNonNullElse(routePlan.getPedidosNoAsignados(), 0) + unassignedOrderIds.size());
+            // Salen del plan: vuelven a PENDIENTE para la próxima optimización de la fecha
+            orderRepository.markPendingByIdIn(unassignedOrderIds, Instant.now());
+        }
+
+        List<Long> cancelledInPlan = routePlan.getStops().stream()
+            .map(stop -> stop.getOrder().getId())
+            .filter(repairProblem.cancelledOrderIds()::contains)
+            .collect(Collectors.toList());
+        if (!cancelledInPlan.isEmpty()) {
+            orderRepository.markCancelledByIdIn(cancelledInPlan, Instant.now());
+        }
+
+        routePlan.getStops().removeIf(stop -> repairProblem.replacedVehicleIds().contains(stop.getVehicle().getId())
+            || repairProblem.cancelledOrderIds().contains(stop.getOrder().getId()));
+        routeStopRepository.flush();
+        List<RouteStop> newStops = plannedStops.stream()
+            .map(stop -> stop.toRouteStop(routePlan,
+                orderRepository.getReferenceById(stop.order().orderId()),
+                vehicleRepository.getReferenceById(stop.vehicle().vehicleId())))
+            .collect(Collectors.toList());
+        routeStopRepository.saveAll(newStops);
+        routePlan.getStops().addAll(newStops);
+
+        updateMetrics(routePlan);
+        routePlan.markAsOptimized();
+        return routePlanRepository.save(routePlan);
+    }
+
+    /**
+     * Recalcula las métricas del plan con el mismo criterio que la optimización completa.
+     */
+    private void updateMetrics(RoutePlan routePlan) {
+        BigDecimal totalKm = BigDecimal.ZERO;
+        BigDecimal totalCost = BigDecimal.ZERO;
+        int totalTimeMin = 0;
+        Set<Long> vehicleIds = new HashSet<>();
+        for (RouteStop stop : routePlan.getStops()) {
+            BigDecimal km = Objects.requireNonNullElse(stop.getDistanciaKmDesdeAnterior(), BigDecimal.ZERO);
+            totalKm = totalKm.add(km);
+            totalCost = totalCost.add(km.multiply(Objects.requireNonNullElse(stop.getVehicle().getCostoKm(), BigDecimal.ZERO)));
+            totalTimeMin += Objects.requireNonNullElse(stop.getTiempoViajeMínDesdeAnterior(), 0);
+            vehicleIds.add(stop.getVehicle().getId());
+        }
+        routePlan.setKmsTotales(totalKm);
+        routePlan.setTiempoEstimadoMin(totalTimeMin);
+        routePlan.setCostoTotal(totalCost);
+        routePlan.setVehiculosUtilizados(vehicleIds.size());
+        routePlan.setPedidosAsignados(routePlan.getStops().size());
+    }
+
+    private TransactionTemplate readOnlyTransaction() {
+        TransactionTemplate readOnly = new TransactionTemplate(transactionTemplate.getTransactionManager());
+        readOnly.setReadOnly(true);
+        return readOnly;
+    }
+
+    private static boolean isNear(double[][] points, double lat, double lon, double radiusKm) {
+        for (double[] point : points) {
+            if (RoutingCosts.haversineKm(point[0], point[1], lat, lon) <= radiusKm) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Sub-problema armado en la transacción de solo lectura, con lo necesario para escribir el resultado.
+     */
+    private record RepairProblem(Instant fecha, Instant planUpdatedAt, VehicleRoutingSolution problem,
+                                 OptimizationSnapshot snapshot, Set<Long> replacedVehicleIds,
+                                 Set<Long> cancelledOrderIds) {
+    }
+}
@@ -0,0 +1,104 @@
+package com.customer.rutaOptima.service;
+
+import java.sql.Types;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PrimitiveIterator;
+import java.util.stream.LongStream;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Inserta las paradas de un plan con JDBC batch, sin pasar por el contexto de persistencia.
+ * Con reWriteBatchedInserts (ver application.yml) el driver de PostgreSQL reescribe cada lote
+ * como INSERTs multi-fila, así un plan de miles de paradas se escribe en pocos round trips.
+ * Los ids se toman de route_stop_id_seq en bloques de ID_BLOCK_SIZE, igual que el optimizador
+ * pooled de Hibernate para RouteStop (la secuencia avanza de a 50, ver V6): cada nextval reserva
+ * los ids (valor - 49 .. valor), así un plan de n paradas consume n ids y ceil(n / 50) nextval,
+ * en lugar de 50 ids por fila con el DEFAULT de la columna.
+ * Debe correr dentro de la transacción de escritura del plan (comparte la conexión con JPA).
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class RouteStopBulkWriter {
+
+    private static final int BATCH_SIZE = 1000;
+
+    // Igual al allocationSize de RouteStop y al INCREMENT BY de route_stop_id_seq
+    static final int ID_BLOCK_SIZE = 50;
+
+    private static final String NEXT_ID_BLOCKS_SQL =
+        "SELECT nextval('route_stop_id_seq') FROM generate_series(1, ?)";
+
+    private static final String INSERT_SQL = """
+        INSERT INTO route_stop (id, route_plan_id, vehicle_id, order_id, secuencia, eta, etd,
+                                distancia_km_desde_anterior, tiempo_viaje_min_desde_anterior,
+                                carga_acumulada_cantidad, carga_acumulada_volumen, carga_acumulada_peso,
+                                tiempo_espera_min, created_at)
+        VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, 0, ?)
+        """;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Inserta las paradas del plan. Devuelve la cantidad de filas escritas.
+     */
+    public int insert(Long routePlanId, List<PlannedStop> stops) {
+        if (stops.isEmpty()) {
+            return 0;
+        }
+        long start = System.nanoTime();
+        OffsetDateTime createdAt = OffsetDateTime.now(ZoneOffset.UTC);
+        PrimitiveIterator.OfLong ids = allocateIds(stops.size()).iterator();
+        jdbcTemplate.batchUpdate(INSERT_SQL, stops, BATCH_SIZE, (ps, stop) -> {
+            ps.setLong(1, ids.nextLong());
+            ps.setLong(2, routePlanId);
+            ps.setLong(3, stop.vehicle().vehicleId());
+            ps.setLong(4, stop.order().orderId());
+            ps.setInt(5, stop.secuencia());
+            ps.setObject(6, toOffsetDateTime(stop.eta()), Types.TIMESTAMP_WITH_TIMEZONE);
+            ps.setObject(7, toOffsetDateTime(stop.etd()), Types.TIMESTAMP_WITH_TIMEZONE);
+            ps.setBigDecimal(8, stop.distanciaKmDesdeAnterior());
+            ps.setInt(9, stop.tiempoViajeMinDesdeAnterior());
+            ps.setBigDecimal(10, stop.cargaAcumuladaCantidad());
+            ps.setBigDecimal(11, stop.cargaAcumuladaVolumen());
+            ps.setBigDecimal(12, stop.cargaAcumuladaPeso());
+            ps.setObject(13, createdAt, Types.TIMESTAMP_WITH_TIMEZONE);
+        });
+        log.debug("Plan {}: {} paradas insertadas en {} ms",
+            routePlanId, stops.size(), (System.nanoTime() - start) / 1_000_000);
+        return stops.size();
+    }
+
+    /**
+     * Reserva count ids con un solo round trip: ceil(count / ID_BLOCK_SIZE) nextval, cada uno
+     * con su bloque (valor - ID_BLOCK_SIZE + 1 .. valor).
+     * En una secuencia recién creada el primer nextval devuelve el valor inicial (1), que no es
+     * el extremo de un bloque: igual que el optimizador pooled de Hibernate, ese valor reserva
+     * solo su propio id y se pide un nextval más para completar.
+     */
+    private LongStream allocateIds(int count) {
+        int blocks = (count + ID_BLOCK_SIZE - 1) / ID_BLOCK_SIZE;
+        List<Long> highs = new ArrayList<>(jdbcTemplate.queryForList(NEXT_ID_BLOCKS_SQL, Long.class, blocks));
+        if (highs.stream().anyMatch(high -> high < ID_BLOCK_SIZE)) {
+            highs.addAll(jdbcTemplate.queryForList(NEXT_ID_BLOCKS_SQL, Long.class, 1));
+        }
+        return highs.stream()
+            .flatMapToLong(high -> high < ID_BLOCK_SIZE
+                ? LongStream.of(high)
+                : LongStream.rangeClosed(high - ID_BLOCK_SIZE + 1, high))
+            .limit(count);
+    }
+
+    private static OffsetDateTime toOffsetDateTime(Instant instant) {
+        return instant != null ? instant.atOffset(ZoneOffset.UTC) : null;
+    }
+}
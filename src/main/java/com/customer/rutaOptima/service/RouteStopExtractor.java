@@ -0,0 +1,199 @@
+package com.customer.rutaOptima.service;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.stream.Collectors;
+
+import org.springframework.stereotype.Component;
+
+import com.customer.rutaOptima.optimization.domain.Location;
+import com.customer.rutaOptima.optimization.domain.VehicleInfo;
+import com.customer.rutaOptima.optimization.domain.VehicleRoutingSolution;
+import com.customer.rutaOptima.optimization.domain.Visit;
+import com.customer.rutaOptima.optimization.solver.RoutingCosts;
+import com.customer.rutaOptima.optimization.solver.TspSequencer;
+import com.customer.rutaOptima.persistence.OrderRepository;
+import com.customer.rutaOptima.persistence.projection.OrderSnapshot;
+import com.customer.rutaOptima.persistence.projection.VehicleSnapshot;
+import com.customer.rutaOptima.service.DistanceMatrixService.RouteInfo;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Convierte una solución de OptaPlanner en paradas: ordena las visitas de cada vehículo
+ * y calcula distancias y tiempos reales con OSRM.
+ * Compartido por la optimización completa, la re-optimización y la reparación local.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class RouteStopExtractor {
+
+    private final OrderRepository orderRepository;
+    private final DistanceMatrixService distanceMatrixService;
+
+    /**
+     * Extrae los stops optimizados y calcula distancias REALES con OSRM.
+     * Trabaja solo sobre el snapshot: no accede a entidades ni necesita una transacción.
+     *
+     * @param startTime hora de salida de los vehículos (inicio del día del plan)
+     */
+    public List<PlannedStop> extractRouteStops(
+            Instant startTime,
+            VehicleRoutingSolution solution,
+            OptimizationSnapshot snapshot,
+            Map<Long, Integer> fixedSequence) {
+
+        List<PlannedStop> allStops = new ArrayList<>();
+
+        // Los pedidos agregados durante el solve (problem changes) se cargan aparte por proyección
+        List<Long> missingOrderIds = solution.getVisits().stream()
+            .map(Visit::getOrderId)
+            .filter(orderId -> !snapshot.containsOrder(orderId))
+            .collect(Collectors.toList());
+        OptimizationSnapshot completeSnapshot = missingOrderIds.isEmpty()
+            ? snapshot
+            : snapshot.withOrders(orderRepository.findSnapshotsByIdIn(missingOrderIds));
+
+        // Agrupar visitas por vehículo
+        Map<Long, List<Visit>> visitsByVehicle = solution.getVisits().stream()
+            .filter(visit -> visit.getVehicle() != null)
+            .collect(Collectors.groupingBy(visit -> visit.getVehicle().getVehicleId()));
+
+        // Secuenciar cada vehículo en paralelo: las fijas conservan su secuencia original, el resto por TSP
+        Map<Long, List<Visit>> orderedByVehicle = visitsByVehicle.entrySet().parallelStream()
+            .collect(Collectors.toMap(Map.Entry::getKey, entry -> orderVisits(entry.getValue(), fixedSequence)));
+
+        for (Map.Entry<Long, List<Visit>> entry : orderedByVehicle.entrySet()) {
+            VehicleSnapshot vehicle = completeSnapshot.vehicle(entry.getKey());
+            if (vehicle == null) continue;
+
+            List<Visit> orderedVisits = entry.getValue();
+
+            // Crear stops con distancias OSRM reales
+            DistanceMatrixService.Location currentLocation = new DistanceMatrixService.Location(
+                vehicle.depotLatitud(), vehicle.depotLongitud()
+            );
+            Instant currentTime = startTime;
+            BigDecimal cargaCantidad = BigDecimal.ZERO;
+            BigDecimal cargaVolumen = BigDecimal.ZERO;
+            BigDecimal cargaPeso = BigDecimal.ZERO;
+            int secuencia = 0;
+
+            for (Visit visit : orderedVisits) {
+                // Encontrar orden correspondiente
+                OrderSnapshot order = completeSnapshot.order(visit.getOrderId());
+
+                if (order == null) continue;
+
+                DistanceMatrixService.Location customerLocation = new DistanceMatrixService.Location(
+                    order.latitud(), order.longitud()
+                );
+
+                // Obtener distancia y tiempo REAL desde OSRM
+                RouteInfo routeInfo = distanceMatrixService.getRouteInfo(currentLocation, customerLocation);
+
+                // Calcular llegada
+                currentTime = currentTime.plusSeconds(routeInfo.getDurationSeconds());
+                Instant eta = currentTime;
+
+                // Tiempo de servicio
+                int serviceTime = Objects.requireNonNullElse(order.tiempoServicioMin(), 10);
+                currentTime = currentTime.plusSeconds(serviceTime * 60L);
+
+                // Carga acumulada del vehículo hasta esta parada
+                cargaCantidad = cargaCantidad.add(Objects.requireNonNullElse(order.cantidad(), BigDecimal.ZERO));
+                cargaVolumen = cargaVolumen.add(Objects.requireNonNullElse(order.volumen(), BigDecimal.ZERO));
+                cargaPeso = cargaPeso.add(Objects.requireNonNullElse(order.peso(), BigDecimal.ZERO));
+
+                allStops.add(new PlannedStop(
+                    order,
+                    vehicle,
+                    ++secuencia,
+                    eta,
+                    currentTime,
+                    BigDecimal.valueOf(routeInfo.getDistanceMeters() / 1000.0),
+                    (int) (routeInfo.getDurationSeconds() / 60),
+                    cargaCantidad,
+                    cargaVolumen,
+                    cargaPeso));
+                currentLocation = customerLocation;
+            }
+        }
+
+        return allStops;
+    }
+
+    /**
+     * Las visitas fijadas conservan su secuencia original como prefijo de la ruta; el resto se
+     * secuencia por TSP partiendo de la última fijada (o del depot si no hay ninguna).
+     */
+    private List<Visit> orderVisits(List<Visit> vehicleVisits, Map<Long, Integer> fixedSequence) {
+        List<Visit> orderedVisits = new ArrayList<>(vehicleVisits.size());
+        List<Visit> remaining = new ArrayList<>();
+        for (Visit visit : vehicleVisits) {
+            (fixedSequence.containsKey(visit.getOrderId()) ? orderedVisits : remaining).add(visit);
+        }
+        orderedVisits.sort(Comparator.comparing(visit -> fixedSequence.get(visit.getOrderId())));
+        if (remaining.isEmpty()) {
+            return orderedVisits;
+        }
+        Location start = orderedVisits.isEmpty()
+            ? remaining.get(0).getVehicle().getDepot()
+            : orderedVisits.get(orderedVisits.size() - 1).getLocation();
+        orderedVisits.addAll(sequenceVisits(remaining, start));
+        return orderedVisits;
+    }
+
+    /**
+     * Ordena las visitas del vehículo con TspSequencer (Held-Karp exacto hasta 12 paradas,
+     * 2-opt/Or-opt por encima) sobre distancias Haversine desde y hacia el punto de partida
+     * (el depot, o la última parada fijada).
+     */
+    private List<Visit> sequenceVisits(List<Visit> visits, Location start) {
+        VehicleInfo vehicle = visits.get(0).getVehicle();
+        if (start == null || visits.stream().anyMatch(visit -> visit.getLocation() == null)) {
+            return visits;
+        }
+
+        long startNanos = System.nanoTime();
+        int m = visits.size() + 1;
+        double[] lat = new double[m];
+        double[] lon = new double[m];
+        lat[0] = start.getLatitud().doubleValue();
+        lon[0] = start.getLongitud().doubleValue();
+        for (int i = 1; i < m; i++) {
+            Location location = visits.get(i - 1).getLocation();
+            lat[i] = location.getLatitud().doubleValue();
+            lon[i] = location.getLongitud().doubleValue();
+        }
+        double[][] distance = new double[m][m];
+        for (int a = 0; a < m; a++) {
+            for (int b = a + 1; b < m; b++) {
+                distance[a][b] = RoutingCosts.haversineKm(lat[a], lon[a], lat[b], lon[b]);
+                distance[b][a] = distance[a][b];
+            }
+        }
+
+        int[] order = TspSequencer.sequence(distance);
+        List<Visit> ordered = new ArrayList<>(order.length);
+        for (int node : order) {
+            ordered.add(visits.get(node - 1));
+        }
+
+        if (log.isDebugEnabled()) {
+            log.debug("Secuencia vehículo {}: {} paradas, {} km (nearest neighbour: {} km) en {} ms",
+                vehicle.getVehicleName(), visits.size(),
+                String.format("%.2f", TspSequencer.tourLength(distance, order)),
+                String.format("%.2f", TspSequencer.tourLength(distance, TspSequencer.nearestNeighbour(distance))),
+                (System.nanoTime() - startNanos) / 1_000_000);
+        }
+        return ordered;
+    }
+}
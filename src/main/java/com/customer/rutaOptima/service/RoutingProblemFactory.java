@@ -0,0 +1,150 @@
+package com.customer.rutaOptima.service;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.Function;
+
+import org.springframework.stereotype.Component;
+
+import com.customer.rutaOptima.domain.Order;
+import com.customer.rutaOptima.domain.Vehicle;
+import com.customer.rutaOptima.optimization.domain.Location;
+import com.customer.rutaOptima.optimization.domain.VehicleInfo;
+import com.customer.rutaOptima.optimization.domain.VehicleRoutingSolution;
+import com.customer.rutaOptima.optimization.domain.Visit;
+import com.customer.rutaOptima.persistence.projection.OrderSnapshot;
+import com.customer.rutaOptima.persistence.projection.VehicleSnapshot;
+
+/**
+ * Convierte pedidos y vehículos en el modelo de planificación de OptaPlanner.
+ * Compartido por la optimización completa y por los cambios sobre un solve en curso.
+ */
+@Component
+public class RoutingProblemFactory {
+
+    /**
+     * Construye el problema de optimización para OptaPlanner
+     */
+    public VehicleRoutingSolution buildProblem(List<Order> orders, List<Vehicle> vehicles) {
+        return buildProblem(OptimizationSnapshot.of(orders, vehicles));
+    }
+
+    /**
+     * Construye el problema a partir del snapshot cargado por proyección
+     */
+    public VehicleRoutingSolution buildProblem(OptimizationSnapshot snapshot) {
+        // Crear VehicleInfo para cada vehículo
+        List<VehicleInfo> vehicleInfos = new ArrayList<>(snapshot.vehicles().size());
+        for (VehicleSnapshot vehicle : snapshot.vehicles()) {
+            vehicleInfos.add(toVehicleInfo(vehicle));
+        }
+
+        // Crear Visit para cada orden
+        List<Visit> visits = new ArrayList<>(snapshot.orders().size());
+        for (OrderSnapshot order : snapshot.orders()) {
+            visits.add(toVisit(order));
+        }
+
+        // Crear solución inicial sin asignación
+        VehicleRoutingSolution solution = new VehicleRoutingSolution();
+        solution.setVehicles(vehicleInfos);
+        solution.setVisits(visits);
+
+        return solution;
+    }
+
+    /**
+     * Cota inferior rápida de visitas que quedarán sin asignar: por cada dimensión de capacidad,
+     * cuántas de las visitas más grandes hay que sacar para que la demanda total entre en la
+     * capacidad total de la flota. Un vehículo sin capacidad definida en una dimensión la vuelve ilimitada.
+     */
+    public int unassignedLowerBound(VehicleRoutingSolution problem) {
+        return Math.max(
+            unassignedLowerBound(problem, VehicleInfo::getCapacidadCantidad, Visit::getCantidad),
+            Math.max(
+                unassignedLowerBound(problem, VehicleInfo::getCapacidadVolumen, Visit::getVolumen),
+                unassignedLowerBound(problem, VehicleInfo::getCapacidadPeso, Visit::getPeso)));
+    }
+
+    private int unassignedLowerBound(VehicleRoutingSolution problem,
+                                     Function<VehicleInfo, BigDecimal> capacity,
+                                     Function<Visit, BigDecimal> demand) {
+        BigDecimal totalCapacity = BigDecimal.ZERO;
+        for (VehicleInfo vehicle : problem.getVehicles()) {
+            BigDecimal value = capacity.apply(vehicle);
+            if (value == null) {
+                return 0;
+            }
+            totalCapacity = totalCapacity.add(value);
+        }
+        List<BigDecimal> demands = new ArrayList<>(problem.getVisits().size());
+        BigDecimal totalDemand = BigDecimal.ZERO;
+        for (Visit visit : problem.getVisits()) {
+            BigDecimal value = Objects.requireNonNullElse(demand.apply(visit), BigDecimal.ZERO);
+            demands.add(value);
+            totalDemand = totalDemand.add(value);
+        }
+        if (totalDemand.compareTo(totalCapacity) <= 0) {
+            return 0;
+        }
+        demands.sort(Comparator.reverseOrder());
+        int removed = 0;
+        while (totalDemand.compareTo(totalCapacity) > 0) {
+            totalDemand = totalDemand.subtract(demands.get(removed++));
+        }
+        return removed;
+    }
+
+    public VehicleInfo toVehicleInfo(VehicleSnapshot vehicle) {
+        Location depot = new Location(
+            vehicle.depotLatitud(),
+            vehicle.depotLongitud(),
+            null, // customerId
+            "Depot " + vehicle.nombre(),
+            vehicle.zona(), // zona del vehículo
+            0, // tiempoServicio
+            BigDecimal.ZERO // demanda
+        );
+
+        return new VehicleInfo(
+            vehicle.vehicleId(),
+            vehicle.nombre(),
+            vehicle.capacidadCantidad(),
+            vehicle.capacidadVolumen(),
+            vehicle.capacidadPeso(),
+            depot,
+            vehicle.zona(),
+            vehicle.conductor(),
+            vehicle.color()
+        );
+    }
+
+    public Visit toVisit(Order order) {
+        return toVisit(OrderSnapshot.from(order));
+    }
+
+    public Visit toVisit(OrderSnapshot order) {
+        Location location = new Location(
+            order.latitud(),
+            order.longitud(),
+            order.customerId(),
+            order.customerName(),
+            order.zona(), // zona del cliente
+            Objects.requireNonNullElse(order.tiempoServicioMin(), 10),
+            order.cantidad()
+        );
+
+        return new Visit(
+            order.orderId(),
+            order.orderId(),
+            location,
+            order.cantidad(),
+            order.volumen(),
+            order.peso(),
+            order.prioridad()
+        );
+    }
+}
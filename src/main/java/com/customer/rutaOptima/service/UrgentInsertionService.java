@@ -0,0 +1,260 @@
+package com.customer.rutaOptima.service;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.customer.rutaOptima.api.dto.UrgentInsertionResponse;
+import com.customer.rutaOptima.config.exception.BusinessException;
+import com.customer.rutaOptima.config.exception.ResourceNotFoundException;
+import com.customer.rutaOptima.domain.Customer;
+import com.customer.rutaOptima.domain.Order;
+import com.customer.rutaOptima.domain.RoutePlan;
+import com.customer.rutaOptima.domain.RouteStop;
+import com.customer.rutaOptima.domain.Vehicle;
+import com.customer.rutaOptima.optimization.solver.RoutingCosts;
+import com.customer.rutaOptima.persistence.OrderRepository;
+import com.customer.rutaOptima.persistence.RoutePlanRepository;
+import com.customer.rutaOptima.persistence.RouteStopRepository;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Inserción de un pedido urgente en un plan ya optimizado, sin correr el solver.
+ * Evalúa todas las posiciones de todos los vehículos con costo delta O(1)
+ * (d(anterior, nuevo) + d(nuevo, siguiente) - d(anterior, siguiente)) y persiste la más barata
+ * que respeta capacidad y zona. Solo se recalculan las paradas del vehículo afectado.
+ * Los tramos nuevos se estiman con Haversine y la velocidad del vehículo; la próxima
+ * re-optimización los reemplaza por distancias OSRM.
+ * Solo admite pedidos PENDIENTE con fecha de entrega en el día del plan. El plan y el pedido se
+ * bloquean (PESSIMISTIC_WRITE) durante la inserción.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class UrgentInsertionService {
+
+    private final RoutePlanRepository routePlanRepository;
+    private final RouteStopRepository routeStopRepository;
+    private final OrderRepository orderRepository;
+
+    @Transactional
+    public UrgentInsertionResponse insertUrgentOrder(Long routePlanId, Long orderId) {
+        long start = System.nanoTime();
+
+        // Plan y pedido bloqueados hasta el commit: las paradas se leen después del lock, así dos
+        // inserciones (o una inserción y el paso a OPTIMIZING de otra operación) no se pisan
+        RoutePlan routePlan = routePlanRepository.findByIdForUpdate(routePlanId)
+            .orElseThrow(() -> new ResourceNotFoundException("Plan de rutas no encontrado: " + routePlanId));
+        if (routePlan.getEstado() != RoutePlan.Estado.OPTIMIZED) {
+            throw new BusinessException("Solo se pueden insertar pedidos en planes en estado OPTIMIZED");
+        }
+        Order order = orderRepository.findByIdForUpdate(orderId)
+            .orElseThrow(() -> new ResourceNotFoundException("Pedido no encontrado: " + orderId));
+        if (!"PENDIENTE".equals(order.getEstado())) {
+            throw new BusinessException("Solo se pueden insertar pedidos en estado PENDIENTE");
+        }
+        Instant startOfDay = routePlan.getFecha();
+        Instant endOfDay = startOfDay.plus(1, ChronoUnit.DAYS);
+        if (order.getFechaEntrega().isBefore(startOfDay) || !order.getFechaEntrega().isBefore(endOfDay)) {
+            throw new BusinessException("El pedido " + orderId + " no es de la fecha del plan " + routePlanId);
+        }
+
+        // Paradas del plan agrupadas por vehículo, en orden de secuencia
+        Map<Long, List<RouteStop>> routes = new LinkedHashMap<>();
+        for (RouteStop stop : routeStopRepository.findByRoutePlanIdWithDetails(routePlanId)) {
+            if (stop.getOrder().getId().equals(orderId)) {
+                throw new BusinessException("El pedido " + orderId + " ya está en el plan " + routePlanId);
+            }
+            routes.computeIfAbsent(stop.getVehicle().getId(), id -> new ArrayList<>()).add(stop);
+        }
+        if (routes.isEmpty()) {
+            throw new BusinessException("El plan " + routePlanId + " no tiene rutas");
+        }
+
+        // Evaluar todas las posiciones factibles
+        Customer customer = order.getCustomer();
+        double lat = customer.getLatitud().doubleValue();
+        double lon = customer.getLongitud().doubleValue();
+        List<RouteStop> bestRoute = null;
+        int bestPosition = -1;
+        double bestDelta = Double.MAX_VALUE;
+        for (List<RouteStop> route : routes.values()) {
+            Vehicle vehicle = route.get(0).getVehicle();
+            if (!isZoneCompatible(vehicle, customer) || !fitsCapacity(vehicle, route, order)) {
+                continue;
+            }
+            int n = route.size();
+            double[] lats = new double[n + 1];
+            double[] lons = new double[n + 1];
+            lats[0] = vehicle.getDepotLatitud().doubleValue();
+            lons[0] = vehicle.getDepotLongitud().doubleValue();
+            for (int i = 0; i < n; i++) {
+                Customer stopCustomer = route.get(i).getOrder().getCustomer();
+                lats[i + 1] = stopCustomer.getLatitud().doubleValue();
+                lons[i + 1] = stopCustomer.getLongitud().doubleValue();
+            }
+            // Posición p: entre el punto p (depot o parada p) y el p + 1 (o el depot al final)
+            for (int p = 0; p <= n; p++) {
+                int next = p < n ? p + 1 : 0;
+                double delta = RoutingCosts.haversineKm(lats[p], lons[p], lat, lon)
+                    + RoutingCosts.haversineKm(lat, lon, lats[next], lons[next])
+                    - RoutingCosts.haversineKm(lats[p], lons[p], lats[next], lons[next]);
+                if (delta < bestDelta) {
+                    bestDelta = delta;
+                    bestRoute = route;
+                    bestPosition = p;
+                }
+            }
+        }
+        if (bestRoute == null) {
+            throw new BusinessException("No hay un vehículo del plan con capacidad y zona compatibles para el pedido " + orderId);
+        }
+
+        RouteStop inserted = insert(routePlan, bestRoute, bestPosition, order);
+        order.setEstado("PLANIFICADO");
+        long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+        log.info("Pedido urgente {} insertado en plan {}: vehículo {}, secuencia {}, +{} km ({} ms)",
+            orderId, routePlanId, inserted.getVehicle().getId(), inserted.getSecuencia(),
+            String.format("%.2f", bestDelta), elapsedMs);
+
+        return UrgentInsertionResponse.builder()
+            .routePlanId(routePlanId)
+            .orderId(orderId)
+            .vehicleId(inserted.getVehicle().getId())
+            .vehiclePatente(inserted.getVehicle().getPatente())
+            .secuencia(inserted.getSecuencia())
+            .eta(inserted.getEta())
+            .etd(inserted.getEtd())
+            .deltaKm(BigDecimal.valueOf(bestDelta).setScale(2, RoundingMode.HALF_UP))
+            .deltaTimeMin(travelMinutes(bestDelta, inserted.getVehicle()))
+            .elapsedMs(elapsedMs)
+            .build();
+    }
+
+    /**
+     * Inserta la parada en la posición indicada y recalcula secuencia, ETA/ETD y cargas
+     * acumuladas del vehículo afectado, además de las métricas del plan.
+     */
+    private RouteStop insert(RoutePlan routePlan, List<RouteStop> route, int position, Order order) {
+        Vehicle vehicle = route.get(0).getVehicle();
+        RouteStop previous = position > 0 ? route.get(position - 1) : null;
+        RouteStop next = position < route.size() ? route.get(position) : null;
+
+        Customer customer = order.getCustomer();
+        Customer previousCustomer = previous != null ? previous.getOrder().getCustomer() : null;
+        double legInKm = previousCustomer != null
+            ? haversineKm(previousCustomer, customer)
+            : RoutingCosts.haversineKm(vehicle.getDepotLatitud().doubleValue(), vehicle.getDepotLongitud().doubleValue(),
+                customer.getLatitud().doubleValue(), customer.getLongitud().doubleValue());
+        int legInMin = travelMinutes(legInKm, vehicle);
+
+        RouteStop stop = new RouteStop();
+        stop.setRoutePlan(routePlan);
+        stop.setOrder(order);
+        stop.setVehicle(vehicle);
+        stop.setSecuencia(position + 1);
+        stop.setDistanciaKmDesdeAnterior(BigDecimal.valueOf(legInKm).setScale(2, RoundingMode.HALF_UP));
+        stop.setTiempoViajeMínDesdeAnterior(legInMin);
+        Instant departure = previous != null ? previous.getEtd() : routePlan.getFecha();
+        stop.setEta(departure.plus(Duration.ofMinutes(legInMin)));
+        stop.setEtd(stop.getEta().plus(Duration.ofMinutes(serviceMinutes(order))));
+
+        BigDecimal deltaKm = stop.getDistanciaKmDesdeAnterior();
+        int deltaMin = legInMin;
+
+        if (next != null) {
+            // El tramo siguiente pasa a salir desde el pedido nuevo y el resto se desplaza
+            double legOutKm = haversineKm(customer, next.getOrder().getCustomer());
+            int legOutMin = travelMinutes(legOutKm, vehicle);
+            BigDecimal legOut = BigDecimal.valueOf(legOutKm).setScale(2, RoundingMode.HALF_UP);
+            deltaKm = deltaKm.add(legOut).subtract(Objects.requireNonNullElse(next.getDistanciaKmDesdeAnterior(), BigDecimal.ZERO));
+            deltaMin += legOutMin - Objects.requireNonNullElse(next.getTiempoViajeMínDesdeAnterior(), 0);
+            next.setDistanciaKmDesdeAnterior(legOut);
+            next.setTiempoViajeMínDesdeAnterior(legOutMin);
+
+            Duration shift = Duration.between(next.getEta(), stop.getEtd().plus(Duration.ofMinutes(legOutMin)));
+            for (int i = position; i < route.size(); i++) {
+                RouteStop following = route.get(i);
+                following.setSecuencia(following.getSecuencia() + 1);
+                following.setEta(following.getEta().plus(shift));
+                following.setEtd(following.getEtd().plus(shift));
+            }
+        }
+
+        route.add(position, stop);
+        recalculateLoads(route);
+        routeStopRepository.save(stop);
+
+        routePlan.setKmsTotales(Objects.requireNonNullElse(routePlan.getKmsTotales(), BigDecimal.ZERO).add(deltaKm));
+        routePlan.setTiempoEstimadoMin(Objects.requireNonNullElse(routePlan.getTiempoEstimadoMin(), 0) + deltaMin);
+        routePlan.setCostoTotal(Objects.requireNonNullElse(routePlan.getCostoTotal(), BigDecimal.ZERO)
+            .add(deltaKm.multiply(Objects.requireNonNullElse(vehicle.getCostoKm(), BigDecimal.ZERO))));
+        routePlan.setPedidosAsignados(Objects.requireNonNullElse(routePlan.getPedidosAsignados(), 0) + 1);
+        routePlanRepository.save(routePlan);
+        return stop;
+    }
+
+    private void recalculateLoads(List<RouteStop> route) {
+        BigDecimal cantidad = BigDecimal.ZERO;
+        BigDecimal volumen = BigDecimal.ZERO;
+        BigDecimal peso = BigDecimal.ZERO;
+        for (RouteStop stop : route) {
+            Order order = stop.getOrder();
+            cantidad = cantidad.add(Objects.requireNonNullElse(order.getCantidad(), BigDecimal.ZERO));
+            volumen = volumen.add(Objects.requireNonNullElse(order.getVolumen(), BigDecimal.ZERO));
+            peso = peso.add(Objects.requireNonNullElse(order.getPeso(), BigDecimal.ZERO));
+            stop.setCargaAcumuladaCantidad(cantidad);
+            stop.setCargaAcumuladaVolumen(volumen);
+            stop.setCargaAcumuladaPeso(peso);
+        }
+    }
+
+    private boolean fitsCapacity(Vehicle vehicle, List<RouteStop> route, Order order) {
+        BigDecimal cantidad = Objects.requireNonNullElse(order.getCantidad(), BigDecimal.ZERO);
+        BigDecimal volumen = Objects.requireNonNullElse(order.getVolumen(), BigDecimal.ZERO);
+        BigDecimal peso = Objects.requireNonNullElse(order.getPeso(), BigDecimal.ZERO);
+        for (RouteStop stop : route) {
+            cantidad = cantidad.add(Objects.requireNonNullElse(stop.getOrder().getCantidad(), BigDecimal.ZERO));
+            volumen = volumen.add(Objects.requireNonNullElse(stop.getOrder().getVolumen(), BigDecimal.ZERO));
+            peso = peso.add(Objects.requireNonNullElse(stop.getOrder().getPeso(), BigDecimal.ZERO));
+        }
+        return fits(cantidad, vehicle.getCapacidadCantidad())
+            && fits(volumen, vehicle.getCapacidadVolumen())
+            && fits(peso, vehicle.getCapacidadPeso());
+    }
+
+    private static boolean fits(BigDecimal load, BigDecimal capacity) {
+        return capacity == null || load.compareTo(capacity) <= 0;
+    }
+
+    private static boolean isZoneCompatible(Vehicle vehicle, Customer customer) {
+        return vehicle.getZona() == null || customer.getZona() == null
+            || vehicle.getZona().equalsIgnoreCase(customer.getZona());
+    }
+
+    private static double haversineKm(Customer from, Customer to) {
+        return RoutingCosts.haversineKm(from.getLatitud().doubleValue(), from.getLongitud().doubleValue(),
+            to.getLatitud().doubleValue(), to.getLongitud().doubleValue());
+    }
+
+    private static int travelMinutes(double km, Vehicle vehicle) {
+        double speed = vehicle.getVelocidadKmh() != null ? vehicle.getVelocidadKmh().doubleValue() : 40.0;
+        return (int) Math.round(km / speed * 60);
+    }
+
+    private static int serviceMinutes(Order order) {
+        return Objects.requireNonNullElse(order.getTiempoServicioEstimadoMin(), 10);
+    }
+}
@@ -0,0 +1,153 @@
+package com.customer.rutaOptima.service.export;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Locale;
+
+import com.customer.rutaOptima.config.exception.BusinessException;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonFactoryBuilder;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.StreamWriteFeature;
+
+/**
+ * Formatos de exportación. Cada uno escribe las filas a medida que llegan, sin acumularlas:
+ * - NDJSON: un objeto JSON por línea.
+ * - CSV: encabezado con los nombres de columna y una línea por fila (RFC 4180).
+ * Los valores llegan ya normalizados por ExportService (String, Long, Integer, BigDecimal o null).
+ */
+public enum ExportFormat {
+
+    NDJSON("application/x-ndjson", "ndjson") {
+        @Override
+        public RowWriter open(OutputStream out, List<String> columns) throws IOException {
+            JsonGenerator generator = JSON_FACTORY.createGenerator(out);
+            return new RowWriter() {
+                @Override
+                public void write(Object[] values) throws IOException {
+                    generator.writeStartObject();
+                    for (int i = 0; i < values.length; i++) {
+                        generator.writeFieldName(columns.get(i));
+                        writeValue(generator, values[i]);
+                    }
+                    generator.writeEndObject();
+                    generator.writeRaw('\n');
+                }
+
+                @Override
+                public void flush() throws IOException {
+                    generator.flush();
+                }
+            };
+        }
+    },
+
+    CSV("text/csv", "csv") {
+        @Override
+        public RowWriter open(OutputStream out, List<String> columns) throws IOException {
+            Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+            writeLine(writer, columns.toArray());
+            return new RowWriter() {
+                @Override
+                public void write(Object[] values) throws IOException {
+                    writeLine(writer, values);
+                }
+
+                @Override
+                public void flush() throws IOException {
+                    writer.flush();
+                }
+            };
+        }
+    };
+
+    // Sin separador entre valores raíz: cada objeto ya termina con su propio salto de línea
+    private static final JsonFactory JSON_FACTORY = new JsonFactoryBuilder()
+        .disable(StreamWriteFeature.AUTO_CLOSE_TARGET)
+        .rootValueSeparator((String) null)
+        .build();
+
+    private final String contentType;
+    private final String extension;
+
+    ExportFormat(String contentType, String extension) {
+        this.contentType = contentType;
+        this.extension = extension;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    public String getExtension() {
+        return extension;
+    }
+
+    /**
+     * Abre un escritor de filas sobre la salida. No cierra la salida.
+     */
+    public abstract RowWriter open(OutputStream out, List<String> columns) throws IOException;
+
+    /**
+     * Formato pedido por el cliente (sin distinguir mayúsculas); NDJSON si no se indica.
+     */
+    public static ExportFormat parse(String format) {
+        if (format == null || format.isBlank()) {
+            return NDJSON;
+        }
+        try {
+            return valueOf(format.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new BusinessException("Formato de exportación no soportado: " + format + " (NDJSON o CSV)");
+        }
+    }
+
+    /**
+     * Escritor de filas de un formato.
+     */
+    public interface RowWriter {
+
+        void write(Object[] values) throws IOException;
+
+        void flush() throws IOException;
+    }
+
+    private static void writeValue(JsonGenerator generator, Object value) throws IOException {
+        if (value == null) {
+            generator.writeNull();
+        } else if (value instanceof BigDecimal decimal) {
+            generator.writeNumber(decimal);
+        } else if (value instanceof Long number) {
+            generator.writeNumber(number);
+        } else if (value instanceof Integer number) {
+            generator.writeNumber(number);
+        } else {
+            generator.writeString(value.toString());
+        }
+    }
+
+    private static void writeLine(Writer writer, Object[] values) throws IOException {
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) {
+                writer.write(',');
+            }
+            if (values[i] != null) {
+                writer.write(csvField(values[i] instanceof BigDecimal decimal ? decimal.toPlainString() : values[i].toString()));
+            }
+        }
+        writer.write("\r\n");
+    }
+
+    private static String csvField(String value) {
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+}
@@ -0,0 +1,131 @@
+package com.customer.rutaOptima.service.export;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Exportación de pedidos y paradas para conciliación, escrita directo a la respuesta.
+ * Lee con un cursor JDBC forward-only: dentro de una transacción (autocommit apagado) el driver
+ * de PostgreSQL trae las filas de a fetch-size, así la memoria no depende de la cantidad de filas.
+ * La primera fila se envía apenas llega para que el cliente empiece a recibir enseguida.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ExportService {
+
+    private static final String ORDERS_SQL = """
+        SELECT o.id, o.customer_id, c.nombre AS customer_nombre, o.fecha_entrega, o.estado,
+               o.cantidad, o.volumen, o.peso, o.prioridad, o.ventana_horaria_inicio, o.ventana_horaria_fin,
+               o.tiempo_servicio_estimado_min, o.created_at, o.updated_at
+        FROM orders o
+                 JOIN customer c ON c.id = o.customer_id
+        WHERE o.fecha_entrega >= ? AND o.fecha_entrega < ?
+        ORDER BY o.fecha_entrega, o.id
+        """;
+
+    private static final String ROUTE_STOPS_SQL = """
+        SELECT rs.id, rs.route_plan_id, rp.fecha AS plan_fecha, rp.estado AS plan_estado,
+               rs.vehicle_id, v.patente AS vehicle_patente, rs.order_id, rs.secuencia, rs.eta, rs.etd,
+               rs.distancia_km_desde_anterior, rs.tiempo_viaje_min_desde_anterior, rs.tiempo_espera_min,
+               rs.carga_acumulada_cantidad, rs.carga_acumulada_volumen, rs.carga_acumulada_peso
+        FROM route_stop rs
+                 JOIN route_plan rp ON rp.id = rs.route_plan_id
+                 JOIN vehicle v ON v.id = rs.vehicle_id
+        WHERE rp.fecha >= ? AND rp.fecha < ?
+        ORDER BY rs.route_plan_id, rs.vehicle_id, rs.secuencia
+        """;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Value("${app.export.fetch-size:1000}")
+    private int fetchSize;
+
+    /**
+     * Pedidos con fecha de entrega en [start, end), ordenados por fecha e id.
+     */
+    @Transactional(readOnly = true)
+    public long exportOrders(Instant start, Instant end, ExportFormat format, OutputStream out) {
+        return export(ORDERS_SQL, start, end, format, out);
+    }
+
+    /**
+     * Paradas de los planes con fecha en [start, end), por plan, vehículo y secuencia.
+     */
+    @Transactional(readOnly = true)
+    public long exportRouteStops(Instant start, Instant end, ExportFormat format, OutputStream out) {
+        return export(ROUTE_STOPS_SQL, start, end, format, out);
+    }
+
+    private long export(String sql, Instant start, Instant end, ExportFormat format, OutputStream out) {
+        long startNanos = System.nanoTime();
+        Long rows = jdbcTemplate.query(connection -> {
+            PreparedStatement ps = connection.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            ps.setFetchSize(fetchSize);
+            ps.setObject(1, start.atOffset(ZoneOffset.UTC), Types.TIMESTAMP_WITH_TIMEZONE);
+            ps.setObject(2, end.atOffset(ZoneOffset.UTC), Types.TIMESTAMP_WITH_TIMEZONE);
+            return ps;
+        }, rs -> {
+            try {
+                return writeRows(rs, format, out);
+            } catch (IOException e) {
+                // Típicamente el cliente cortó la descarga: se aborta la lectura del cursor
+                throw new UncheckedIOException(e);
+            }
+        });
+        log.info("Exportación {}: {} filas en {} ms", format, rows, (System.nanoTime() - startNanos) / 1_000_000);
+        return rows != null ? rows : 0;
+    }
+
+    private long writeRows(ResultSet rs, ExportFormat format, OutputStream out) throws SQLException, IOException {
+        ResultSetMetaData metaData = rs.getMetaData();
+        int columnCount = metaData.getColumnCount();
+        List<String> columns = new ArrayList<>(columnCount);
+        for (int i = 1; i <= columnCount; i++) {
+            columns.add(metaData.getColumnLabel(i));
+        }
+
+        ExportFormat.RowWriter writer = format.open(out, columns);
+        Object[] values = new Object[columnCount];
+        long rows = 0;
+        while (rs.next()) {
+            for (int i = 0; i < columnCount; i++) {
+                values[i] = normalize(rs.getObject(i + 1));
+            }
+            writer.write(values);
+            rows++;
+            // Primer byte enseguida; después, un flush por cada bloque leído del cursor
+            if (rows == 1 || rows % fetchSize == 0) {
+                writer.flush();
+            }
+        }
+        writer.flush();
+        return rows;
+    }
+
+    private static Object normalize(Object value) {
+        if (value instanceof Timestamp timestamp) {
+            return timestamp.toInstant().toString();
+        }
+        return value;
+    }
+}
@@ -0,0 +1,106 @@
+package com.customer.rutaOptima.service.importer;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Índice de grilla para encontrar clientes a menos de radiusMeters de un punto sin comparar
+ * contra todos: cada celda mide al menos el radio en ambos ejes, así los candidatos están en la
+ * celda del punto o en sus 8 vecinas. El ancho en longitud se calcula con la latitud más alejada
+ * del ecuador del lote, para que ninguna celda quede más angosta que el radio.
+ */
+final class CustomerGridIndex {
+
+    private static final double METERS_PER_DEGREE = 111_320.0;
+
+    private final double radiusMeters;
+    private final double cellLat;
+    private final double cellLon;
+    private final Map<Long, List<Point>> cells = new HashMap<>();
+    private final Map<Long, Point> byCustomerId = new HashMap<>();
+
+    /**
+     * Cliente indexado; customerId es null para los clientes nuevos del lote.
+     */
+    record Point(Long customerId, String codigoExterno, double lat, double lon) {
+    }
+
+    /**
+     * Vecino encontrado y su distancia en metros.
+     */
+    record Match(Point point, double distanceMeters) {
+    }
+
+    CustomerGridIndex(double radiusMeters, double maxAbsLatitude) {
+        this.radiusMeters = radiusMeters;
+        this.cellLat = radiusMeters / METERS_PER_DEGREE;
+        double cos = Math.max(Math.cos(Math.toRadians(Math.min(maxAbsLatitude, 89.0))), 0.01);
+        this.cellLon = radiusMeters / (METERS_PER_DEGREE * cos);
+    }
+
+    void add(Point point) {
+        cells.computeIfAbsent(cellKey(cellRow(point.lat()), cellColumn(point.lon())), key -> new ArrayList<>()).add(point);
+        if (point.customerId() != null) {
+            byCustomerId.put(point.customerId(), point);
+        }
+    }
+
+    /**
+     * Saca del índice la ubicación actual de un cliente existente (antes de moverlo).
+     */
+    Point remove(Long customerId) {
+        Point point = byCustomerId.remove(customerId);
+        if (point != null) {
+            List<Point> cell = cells.get(cellKey(cellRow(point.lat()), cellColumn(point.lon())));
+            if (cell != null) {
+                cell.remove(point);
+            }
+        }
+        return point;
+    }
+
+    /**
+     * El cliente indexado más cercano a menos del radio, o null.
+     */
+    Match nearest(double lat, double lon) {
+        long row = cellRow(lat);
+        long column = cellColumn(lon);
+        Match best = null;
+        for (long r = row - 1; r <= row + 1; r++) {
+            for (long c = column - 1; c <= column + 1; c++) {
+                List<Point> cell = cells.get(cellKey(r, c));
+                if (cell == null) {
+                    continue;
+                }
+                for (Point point : cell) {
+                    double distance = distanceMeters(lat, lon, point.lat(), point.lon());
+                    if (distance <= radiusMeters && (best == null || distance < best.distanceMeters())) {
+                        best = new Match(point, distance);
+                    }
+                }
+            }
+        }
+        return best;
+    }
+
+    private long cellRow(double lat) {
+        return (long) Math.floor(lat / cellLat);
+    }
+
+    private long cellColumn(double lon) {
+        return (long) Math.floor(lon / cellLon);
+    }
+
+    private static long cellKey(long row, long column) {
+        return (row << 32) ^ (column & 0xFFFFFFFFL);
+    }
+
+    // Aproximación equirectangular: suficiente para distancias de pocos cientos de metros
+    private static double distanceMeters(double lat1, double lon1, double lat2, double lon2) {
+        double dy = (lat2 - lat1) * METERS_PER_DEGREE;
+        double dx = (lon2 - lon1) * METERS_PER_DEGREE * Math.cos(Math.toRadians((lat1 + lat2) / 2));
+        return Math.sqrt(dx * dx + dy * dy);
+    }
+}
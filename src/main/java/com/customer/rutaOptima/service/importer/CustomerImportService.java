@@ -0,0 +1,271 @@
+package com.customer.rutaOptima.service.importer;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.customer.rutaOptima.api.dto.CustomerDTO;
+import com.customer.rutaOptima.api.dto.CustomerImportResponse;
+import com.customer.rutaOptima.api.dto.ImportRowError;
+import com.customer.rutaOptima.config.exception.BusinessException;
+import com.customer.rutaOptima.domain.Customer;
+import com.customer.rutaOptima.persistence.CustomerRepository;
+import com.customer.rutaOptima.persistence.projection.CustomerLocation;
+import com.customer.rutaOptima.service.CustomersChangedEvent;
+import com.customer.rutaOptima.service.importer.CustomerGridIndex.Match;
+import com.customer.rutaOptima.service.importer.CustomerGridIndex.Point;
+
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Importación masiva de clientes (altas desde planillas), con upsert por código externo:
+ * - Un código que ya existe actualiza ese cliente, solo si algún dato cambió.
+ * - Un cliente a menos de duplicate-radius-meters de otro (existente o anterior en el lote) se
+ *   rechaza como posible duplicado, salvo que el más cercano sea un cliente existente sin código
+ *   externo y no haya otro en el radio: en ese caso la fila lo adopta (le asigna el código y lo
+ *   actualiza). La búsqueda usa un índice de grilla sobre los clientes del área del lote, cargados
+ *   en una sola consulta.
+ * Las escrituras van en batch (JDBC) y se publica CustomersChangedEvent con los clientes actualizados.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class CustomerImportService {
+
+    private static final int IN_CHUNK_SIZE = 10_000;
+    private static final double METERS_PER_DEGREE = 111_320.0;
+
+    private final CustomerRepository customerRepository;
+    private final CustomerUpsertWriter customerUpsertWriter;
+    private final TransactionTemplate transactionTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+    private final Validator validator;
+
+    @Value("${app.import.max-rows:50000}")
+    private int maxRows;
+
+    @Value("${app.import.customer-duplicate-radius-meters:25}")
+    private double duplicateRadiusMeters;
+
+    public CustomerImportResponse importCustomers(List<CustomerDTO> customers) {
+        if (customers.size() > maxRows) {
+            throw new BusinessException("El lote supera el máximo de " + maxRows + " clientes");
+        }
+        long start = System.nanoTime();
+        CustomerImportResponse response = transactionTemplate.execute(status -> upsert(customers));
+        response.setElapsedMs((System.nanoTime() - start) / 1_000_000);
+        log.info("Importación de clientes: {} filas, {} insertados, {} actualizados, {} sin cambios, {} rechazados en {} ms",
+            response.getTotal(), response.getInsertados(), response.getActualizados(), response.getSinCambios(),
+            response.getRechazados(), response.getElapsedMs());
+        return response;
+    }
+
+    private CustomerImportResponse upsert(List<CustomerDTO> customers) {
+        List<ImportRowError> errors = new ArrayList<>();
+        Map<Integer, String> rowErrors = new HashMap<>();
+        for (int i = 0; i < customers.size(); i++) {
+            String error = validate(customers.get(i));
+            if (error != null) {
+                rowErrors.put(i, error);
+            }
+        }
+
+        Map<String, Customer> existing = findByCodigo(customers, rowErrors);
+        CustomerGridIndex grid = buildGrid(customers, rowErrors);
+
+        List<CustomerDTO> inserts = new ArrayList<>();
+        List<CustomerDTO> updates = new ArrayList<>();
+        Map<String, Integer> seenCodigos = new HashMap<>();
+        int unchanged = 0;
+        for (int i = 0; i < customers.size(); i++) {
+            int fila = i + 1;
+            if (rowErrors.containsKey(i)) {
+                errors.add(new ImportRowError(fila, rowErrors.get(i)));
+                continue;
+            }
+            CustomerDTO dto = customers.get(i);
+            Integer previous = seenCodigos.putIfAbsent(dto.getCodigoExterno(), fila);
+            if (previous != null) {
+                errors.add(new ImportRowError(fila, "Código externo " + dto.getCodigoExterno() + " repetido (fila " + previous + ")"));
+                continue;
+            }
+
+            Customer current = existing.get(dto.getCodigoExterno());
+            // El cliente no puede ser duplicado de sí mismo: se saca su ubicación actual antes de buscar
+            Point previousLocation = current != null ? grid.remove(current.getId()) : null;
+            double lat = dto.getLatitud().doubleValue();
+            double lon = dto.getLongitud().doubleValue();
+            Match match = grid.nearest(lat, lon);
+            Long adoptedId = null;
+            if (match != null && current == null && isAdoptable(match.point())) {
+                // Cliente existente sin código (alta manual): la fila le asigna el código en vez de duplicarlo,
+                // salvo que haya otro cliente dentro del radio
+                Point adopted = grid.remove(match.point().customerId());
+                match = grid.nearest(lat, lon);
+                if (match == null) {
+                    adoptedId = adopted.customerId();
+                } else {
+                    grid.add(adopted);
+                }
+            }
+            if (match != null) {
+                if (previousLocation != null) {
+                    grid.add(previousLocation);
+                }
+                errors.add(new ImportRowError(fila, String.format("Posible duplicado de %s a %.1f m",
+                    describe(match.point()), match.distanceMeters())));
+                continue;
+            }
+            Long customerId = current != null ? current.getId() : adoptedId;
+            grid.add(new Point(customerId, dto.getCodigoExterno(), lat, lon));
+
+            if (adoptedId != null) {
+                dto.setId(adoptedId);
+                updates.add(dto);
+                continue;
+            }
+            if (current == null) {
+                inserts.add(dto);
+            } else if (hasChanges(current, dto)) {
+                dto.setId(current.getId());
+                updates.add(dto);
+            } else {
+                unchanged++;
+            }
+        }
+
+        customerUpsertWriter.insert(inserts);
+        customerUpsertWriter.update(updates);
+        if (!updates.isEmpty() || !inserts.isEmpty()) {
+            // Las altas no tienen entradas cacheadas, pero cambian los listados de clientes
+            eventPublisher.publishEvent(new CustomersChangedEvent(
+                updates.stream().map(CustomerDTO::getId).collect(Collectors.toUnmodifiableSet())));
+        }
+
+        return CustomerImportResponse.builder()
+            .total(customers.size())
+            .insertados(inserts.size())
+            .actualizados(updates.size())
+            .sinCambios(unchanged)
+            .rechazados(errors.size())
+            .errores(errors)
+            .build();
+    }
+
+    private String validate(CustomerDTO dto) {
+        if (dto == null) {
+            return "Cliente vacío";
+        }
+        Set<ConstraintViolation<CustomerDTO>> violations = validator.validate(dto);
+        if (!violations.isEmpty()) {
+            return violations.stream()
+                .map(violation -> violation.getPropertyPath() + ": " + violation.getMessage())
+                .sorted()
+                .collect(Collectors.joining("; "));
+        }
+        if (dto.getCodigoExterno() == null || dto.getCodigoExterno().isBlank()) {
+            return "codigoExterno: es obligatorio en la importación";
+        }
+        return null;
+    }
+
+    /**
+     * Clientes existentes con los códigos del lote (una consulta IN por bloque).
+     */
+    private Map<String, Customer> findByCodigo(List<CustomerDTO> customers, Map<Integer, String> rowErrors) {
+        List<String> codigos = new ArrayList<>(new HashSet<>(validRows(customers, rowErrors).stream()
+            .map(CustomerDTO::getCodigoExterno)
+            .toList()));
+        Map<String, Customer> existing = new HashMap<>();
+        for (int from = 0; from < codigos.size(); from += IN_CHUNK_SIZE) {
+            for (Customer customer : customerRepository.findByCodigoExternoIn(
+                    codigos.subList(from, Math.min(from + IN_CHUNK_SIZE, codigos.size())))) {
+                existing.put(customer.getCodigoExterno(), customer);
+            }
+        }
+        return existing;
+    }
+
+    /**
+     * Grilla con los clientes existentes dentro del rectángulo que cubre el lote (más el radio).
+     */
+    private CustomerGridIndex buildGrid(List<CustomerDTO> customers, Map<Integer, String> rowErrors) {
+        List<CustomerDTO> valid = validRows(customers, rowErrors);
+        double minLat = 90;
+        double maxLat = -90;
+        double minLon = 180;
+        double maxLon = -180;
+        for (CustomerDTO dto : valid) {
+            minLat = Math.min(minLat, dto.getLatitud().doubleValue());
+            maxLat = Math.max(maxLat, dto.getLatitud().doubleValue());
+            minLon = Math.min(minLon, dto.getLongitud().doubleValue());
+            maxLon = Math.max(maxLon, dto.getLongitud().doubleValue());
+        }
+        double maxAbsLat = Math.min(89.0, Math.max(Math.abs(minLat), Math.abs(maxLat)) + 1);
+        CustomerGridIndex grid = new CustomerGridIndex(duplicateRadiusMeters, maxAbsLat);
+        if (valid.isEmpty()) {
+            return grid;
+        }
+
+        double marginLat = duplicateRadiusMeters / METERS_PER_DEGREE;
+        double marginLon = marginLat / Math.max(Math.cos(Math.toRadians(maxAbsLat)), 0.01);
+        List<CustomerLocation> locations = customerRepository.findLocationsWithin(
+            BigDecimal.valueOf(minLat - marginLat), BigDecimal.valueOf(maxLat + marginLat),
+            BigDecimal.valueOf(minLon - marginLon), BigDecimal.valueOf(maxLon + marginLon));
+        for (CustomerLocation location : locations) {
+            grid.add(new Point(location.id(), location.codigoExterno(),
+                location.latitud().doubleValue(), location.longitud().doubleValue()));
+        }
+        log.debug("Grilla de duplicados: {} clientes existentes en el área del lote", locations.size());
+        return grid;
+    }
+
+    private static List<CustomerDTO> validRows(List<CustomerDTO> customers, Map<Integer, String> rowErrors) {
+        List<CustomerDTO> valid = new ArrayList<>(customers.size());
+        for (int i = 0; i < customers.size(); i++) {
+            if (!rowErrors.containsKey(i)) {
+                valid.add(customers.get(i));
+            }
+        }
+        return valid;
+    }
+
+    private static boolean hasChanges(Customer current, CustomerDTO dto) {
+        return !Objects.equals(current.getNombre(), dto.getNombre())
+            || !Objects.equals(current.getDireccion(), dto.getDireccion())
+            || current.getLatitud().compareTo(dto.getLatitud()) != 0
+            || current.getLongitud().compareTo(dto.getLongitud()) != 0
+            || !Objects.equals(current.getVentanaHorariaInicio(), dto.getVentanaHorariaInicio())
+            || !Objects.equals(current.getVentanaHorariaFin(), dto.getVentanaHorariaFin())
+            || !Objects.equals(current.getTelefono(), dto.getTelefono())
+            || !Objects.equals(current.getEmail(), dto.getEmail())
+            || !Objects.equals(current.getZona(), dto.getZona())
+            || !Objects.equals(current.getActivo(), dto.getActivo() == null || dto.getActivo());
+    }
+
+    private static boolean isAdoptable(Point point) {
+        return point.customerId() != null && point.codigoExterno() == null;
+    }
+
+    private static String describe(Point point) {
+        if (point.customerId() == null) {
+            return "la fila con código " + point.codigoExterno() + " del lote";
+        }
+        return "el cliente " + point.customerId()
+            + (point.codigoExterno() != null ? " (código " + point.codigoExterno() + ")" : "");
+    }
+}
@@ -0,0 +1,98 @@
+package com.customer.rutaOptima.service.importer;
+
+import java.sql.Types;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import com.customer.rutaOptima.api.dto.CustomerDTO;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Escribe la importación masiva de clientes con JDBC batch (reescrito a INSERTs multi-fila por el
+ * driver, ver application.yml): altas por un lado y actualizaciones de los que cambiaron por otro.
+ * Debe correr dentro de la transacción de la importación.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class CustomerUpsertWriter {
+
+    private static final int BATCH_SIZE = 1000;
+
+    private static final String INSERT_SQL = """
+        INSERT INTO customer (codigo_externo, nombre, direccion, latitud, longitud, ventana_horaria_inicio,
+                              ventana_horaria_fin, telefono, email, zona, activo, created_at, updated_at)
+        VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)
+        """;
+
+    private static final String UPDATE_SQL = """
+        UPDATE customer
+        SET codigo_externo = ?, nombre = ?, direccion = ?, latitud = ?, longitud = ?,
+            ventana_horaria_inicio = ?, ventana_horaria_fin = ?, telefono = ?, email = ?, zona = ?, activo = ?,
+            updated_at = ?
+        WHERE id = ?
+        """;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public void insert(List<CustomerDTO> customers) {
+        if (customers.isEmpty()) {
+            return;
+        }
+        OffsetDateTime now = OffsetDateTime.now(ZoneOffset.UTC);
+        jdbcTemplate.batchUpdate(INSERT_SQL, customers, BATCH_SIZE, (ps, customer) -> {
+            ps.setString(1, customer.getCodigoExterno());
+            ps.setString(2, customer.getNombre());
+            ps.setString(3, customer.getDireccion());
+            ps.setBigDecimal(4, customer.getLatitud());
+            ps.setBigDecimal(5, customer.getLongitud());
+            ps.setObject(6, toOffsetDateTime(customer.getVentanaHorariaInicio()), Types.TIMESTAMP_WITH_TIMEZONE);
+            ps.setObject(7, toOffsetDateTime(customer.getVentanaHorariaFin()), Types.TIMESTAMP_WITH_TIMEZONE);
+            ps.setString(8, customer.getTelefono());
+            ps.setString(9, customer.getEmail());
+            ps.setString(10, customer.getZona());
+            ps.setBoolean(11, customer.getActivo() == null || customer.getActivo());
+            ps.setObject(12, now, Types.TIMESTAMP_WITH_TIMEZONE);
+            ps.setObject(13, now, Types.TIMESTAMP_WITH_TIMEZONE);
+        });
+        log.debug("{} clientes insertados", customers.size());
+    }
+
+    /**
+     * Actualiza clientes existentes; customer.getId() es el id del cliente a actualizar. También escribe
+     * el código externo, para los clientes sin código que la importación adopta.
+     */
+    public void update(List<CustomerDTO> customers) {
+        if (customers.isEmpty()) {
+            return;
+        }
+        OffsetDateTime now = OffsetDateTime.now(ZoneOffset.UTC);
+        jdbcTemplate.batchUpdate(UPDATE_SQL, customers, BATCH_SIZE, (ps, customer) -> {
+            ps.setString(1, customer.getCodigoExterno());
+            ps.setString(2, customer.getNombre());
+            ps.setString(3, customer.getDireccion());
+            ps.setBigDecimal(4, customer.getLatitud());
+            ps.setBigDecimal(5, customer.getLongitud());
+            ps.setObject(6, toOffsetDateTime(customer.getVentanaHorariaInicio()), Types.TIMESTAMP_WITH_TIMEZONE);
+            ps.setObject(7, toOffsetDateTime(customer.getVentanaHorariaFin()), Types.TIMESTAMP_WITH_TIMEZONE);
+            ps.setString(8, customer.getTelefono());
+            ps.setString(9, customer.getEmail());
+            ps.setString(10, customer.getZona());
+            ps.setBoolean(11, customer.getActivo() == null || customer.getActivo());
+            ps.setObject(12, now, Types.TIMESTAMP_WITH_TIMEZONE);
+            ps.setLong(13, customer.getId());
+        });
+        log.debug("{} clientes actualizados", customers.size());
+    }
+
+    private static OffsetDateTime toOffsetDateTime(Instant instant) {
+        return instant != null ? instant.atOffset(ZoneOffset.UTC) : null;
+    }
+}
@@ -0,0 +1,165 @@
+package com.customer.rutaOptima.service.importer;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Function;
+
+import com.customer.rutaOptima.api.dto.OrderDTO;
+import com.customer.rutaOptima.config.exception.BusinessException;
+
+/**
+ * Lee pedidos de un CSV (RFC 4180, UTF-8) a medida que llegan del request.
+ * La primera línea es el encabezado con los nombres de campo de OrderDTO, en cualquier orden y
+ * sin distinguir mayúsculas: customerId, fechaEntrega y cantidad son obligatorios; volumen, peso,
+ * estado, ventanaHorariaInicio, ventanaHorariaFin, prioridad, tiempoServicioEstimadoMin y notas
+ * son opcionales. Un valor que no se puede convertir invalida solo su fila.
+ */
+public final class OrderCsvReader {
+
+    private static final List<String> REQUIRED = List.of("customerid", "fechaentrega", "cantidad");
+
+    private final Reader reader;
+    private int next;
+
+    private OrderCsvReader(Reader reader) {
+        this.reader = reader;
+    }
+
+    /**
+     * Lee todas las filas; corta con BusinessException si el encabezado es inválido o se supera maxRows.
+     */
+    public static List<OrderImportRow> read(InputStream in, int maxRows) throws IOException {
+        OrderCsvReader csv = new OrderCsvReader(new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8)));
+        csv.next = csv.reader.read();
+        if (csv.next == '\uFEFF') { // BOM
+            csv.next = csv.reader.read();
+        }
+
+        List<String> header = csv.nextRecord();
+        if (header == null) {
+            throw new BusinessException("El CSV está vacío");
+        }
+        Map<String, Integer> columns = new HashMap<>();
+        for (int i = 0; i < header.size(); i++) {
+            columns.put(header.get(i).trim().toLowerCase(Locale.ROOT), i);
+        }
+        for (String required : REQUIRED) {
+            if (!columns.containsKey(required)) {
+                throw new BusinessException("Falta la columna obligatoria en el encabezado del CSV: " + required);
+            }
+        }
+
+        List<OrderImportRow> rows = new ArrayList<>();
+        List<String> record;
+        while ((record = csv.nextRecord()) != null) {
+            if (record.size() == 1 && record.get(0).isEmpty()) {
+                continue; // línea vacía
+            }
+            if (rows.size() == maxRows) {
+                throw new BusinessException("El lote supera el máximo de " + maxRows + " pedidos");
+            }
+            int fila = rows.size() + 1;
+            try {
+                rows.add(OrderImportRow.of(fila, toOrder(record, columns)));
+            } catch (IllegalArgumentException | DateTimeParseException e) {
+                rows.add(OrderImportRow.failed(fila, e.getMessage()));
+            }
+        }
+        return rows;
+    }
+
+    private static OrderDTO toOrder(List<String> record, Map<String, Integer> columns) {
+        OrderDTO order = new OrderDTO();
+        order.setCustomerId(value(record, columns, "customerId", Long::valueOf));
+        order.setFechaEntrega(value(record, columns, "fechaEntrega", OrderCsvReader::parseInstant));
+        order.setCantidad(value(record, columns, "cantidad", BigDecimal::new));
+        order.setVolumen(value(record, columns, "volumen", BigDecimal::new));
+        order.setPeso(value(record, columns, "peso", BigDecimal::new));
+        order.setEstado(value(record, columns, "estado", Function.identity()));
+        order.setVentanaHorariaInicio(value(record, columns, "ventanaHorariaInicio", OrderCsvReader::parseInstant));
+        order.setVentanaHorariaFin(value(record, columns, "ventanaHorariaFin", OrderCsvReader::parseInstant));
+        order.setPrioridad(value(record, columns, "prioridad", Integer::valueOf));
+        order.setTiempoServicioEstimadoMin(value(record, columns, "tiempoServicioEstimadoMin", Integer::valueOf));
+        order.setNotas(value(record, columns, "notas", Function.identity()));
+        return order;
+    }
+
+    private static <T> T value(List<String> record, Map<String, Integer> columns, String name,
+                               Function<String, T> parser) {
+        Integer index = columns.get(name.toLowerCase(Locale.ROOT));
+        if (index == null || index >= record.size()) {
+            return null;
+        }
+        String raw = record.get(index).trim();
+        if (raw.isEmpty()) {
+            return null;
+        }
+        try {
+            return parser.apply(raw);
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            throw new IllegalArgumentException("Valor inválido en " + name + ": '" + raw + "'");
+        }
+    }
+
+    private static Instant parseInstant(String value) {
+        try {
+            return Instant.parse(value);
+        } catch (DateTimeParseException e) {
+            return OffsetDateTime.parse(value).toInstant();
+        }
+    }
+
+    /**
+     * Siguiente registro (los campos entre comillas pueden tener comas, comillas dobladas y saltos de línea),
+     * o null al final del archivo.
+     */
+    private List<String> nextRecord() throws IOException {
+        if (next < 0) {
+            return null;
+        }
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        while (next >= 0) {
+            char c = (char) next;
+            next = reader.read();
+            if (quoted) {
+                if (c == '"' && next == '"') {
+                    field.append('"');
+                    next = reader.read();
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else if (c == '\n') {
+                break;
+            } else if (c != '\r') {
+                field.append(c);
+            }
+        }
+        if (quoted) {
+            throw new BusinessException("CSV mal formado: comillas sin cerrar");
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+}
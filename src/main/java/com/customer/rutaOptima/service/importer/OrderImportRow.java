@@ -0,0 +1,19 @@
+package com.customer.rutaOptima.service.importer;
+
+import com.customer.rutaOptima.api.dto.OrderDTO;
+
+/**
+ * Fila de un lote de importación: el pedido leído o el error de lectura (CSV mal formado).
+ *
+ * @param fila número de fila en el lote, desde 1
+ */
+public record OrderImportRow(int fila, OrderDTO order, String error) {
+
+    public static OrderImportRow of(int fila, OrderDTO order) {
+        return new OrderImportRow(fila, order, null);
+    }
+
+    public static OrderImportRow failed(int fila, String error) {
+        return new OrderImportRow(fila, null, error);
+    }
+}
@@ -0,0 +1,127 @@
+package com.customer.rutaOptima.service.importer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.customer.rutaOptima.api.dto.ImportRowError;
+import com.customer.rutaOptima.api.dto.OrderDTO;
+import com.customer.rutaOptima.api.dto.OrderImportResponse;
+import com.customer.rutaOptima.config.exception.BusinessException;
+import com.customer.rutaOptima.persistence.CustomerRepository;
+import com.customer.rutaOptima.service.OrderService;
+
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Importación masiva de pedidos (carga nocturna del ERP).
+ * Valida el lote completo en memoria con las mismas reglas que el alta individual: Bean Validation
+ * del DTO, existencia de los clientes (una consulta IN para todo el lote) y las reglas de negocio de
+ * OrderService. Las filas válidas se insertan con COPY y las inválidas se informan por fila.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class OrderImportService {
+
+    // Parámetros por consulta IN, por debajo del límite del protocolo de PostgreSQL (32767)
+    private static final int IN_CHUNK_SIZE = 10_000;
+
+    private final CustomerRepository customerRepository;
+    private final OrderCopyWriter orderCopyWriter;
+    private final TransactionTemplate transactionTemplate;
+    private final Validator validator;
+
+    @Value("${app.import.max-rows:50000}")
+    private int maxRows;
+
+    public OrderImportResponse importJson(List<OrderDTO> orders) {
+        if (orders.size() > maxRows) {
+            throw new BusinessException("El lote supera el máximo de " + maxRows + " pedidos");
+        }
+        List<OrderImportRow> rows = new ArrayList<>(orders.size());
+        for (int i = 0; i < orders.size(); i++) {
+            rows.add(orders.get(i) != null
+                ? OrderImportRow.of(i + 1, orders.get(i))
+                : OrderImportRow.failed(i + 1, "Pedido vacío"));
+        }
+        return importRows(rows);
+    }
+
+    public OrderImportResponse importCsv(InputStream csv) throws IOException {
+        return importRows(OrderCsvReader.read(csv, maxRows));
+    }
+
+    private OrderImportResponse importRows(List<OrderImportRow> rows) {
+        long start = System.nanoTime();
+        OrderImportResponse response = transactionTemplate.execute(status -> validateAndCopy(rows));
+        response.setElapsedMs((System.nanoTime() - start) / 1_000_000);
+        log.info("Importación de pedidos: {} filas, {} importadas, {} rechazadas en {} ms",
+            response.getTotal(), response.getImportados(), response.getRechazados(), response.getElapsedMs());
+        return response;
+    }
+
+    private OrderImportResponse validateAndCopy(List<OrderImportRow> rows) {
+        Set<Long> existingCustomers = findExistingCustomers(rows);
+        Instant now = Instant.now();
+
+        List<OrderDTO> valid = new ArrayList<>(rows.size());
+        List<ImportRowError> errors = new ArrayList<>();
+        for (OrderImportRow row : rows) {
+            String error = row.error() != null ? row.error() : validate(row.order(), existingCustomers, now);
+            if (error != null) {
+                errors.add(new ImportRowError(row.fila(), error));
+            } else {
+                valid.add(row.order());
+            }
+        }
+
+        long imported = orderCopyWriter.copy(valid);
+        return OrderImportResponse.builder()
+            .total(rows.size())
+            .importados((int) imported)
+            .rechazados(errors.size())
+            .errores(errors)
+            .build();
+    }
+
+    private String validate(OrderDTO order, Set<Long> existingCustomers, Instant now) {
+        Set<ConstraintViolation<OrderDTO>> violations = validator.validate(order);
+        if (!violations.isEmpty()) {
+            return violations.stream()
+                .map(violation -> violation.getPropertyPath() + ": " + violation.getMessage())
+                .sorted()
+                .collect(Collectors.joining("; "));
+        }
+        if (!existingCustomers.contains(order.getCustomerId())) {
+            return "Cliente con ID " + order.getCustomerId() + " no encontrado";
+        }
+        return OrderService.checkBusinessRules(
+            order.getFechaEntrega(), order.getVentanaHorariaInicio(), order.getVentanaHorariaFin(), now);
+    }
+
+    private Set<Long> findExistingCustomers(List<OrderImportRow> rows) {
+        List<Long> ids = rows.stream()
+            .filter(row -> row.order() != null && row.order().getCustomerId() != null)
+            .map(row -> row.order().getCustomerId())
+            .distinct()
+            .toList();
+        Set<Long> existing = new HashSet<>();
+        for (int from = 0; from < ids.size(); from += IN_CHUNK_SIZE) {
+            existing.addAll(customerRepository.findExistingIds(ids.subList(from, Math.min(from + IN_CHUNK_SIZE, ids.size()))));
+        }
+        return existing;
+    }
+}
@@ -0,0 +1,4 @@
+-- Ids de route_stop en bloques de 50 (pooled optimizer de Hibernate) para que los INSERT
+-- de paradas se puedan agrupar en lotes JDBC. Con IDENTITY Hibernate desactiva el batching.
+-- El DEFAULT nextval de la columna sigue funcionando para los INSERT por JDBC.
+ALTER SEQUENCE route_stop_id_seq INCREMENT BY 50;
@@ -0,0 +1,15 @@
+-- Los pedidos ya incluidos en un plan OPTIMIZED pasan a PLANIFICADO, así el conjunto PENDIENTE
+-- de cada fecha queda chico. Índice parcial para la carga del optimizador
+-- (fecha_entrega en rango AND estado = 'PENDIENTE').
+CREATE INDEX idx_orders_pending_fecha ON orders (fecha_entrega) WHERE estado = 'PENDIENTE';
+
+-- Pedidos de planes ya optimizados que quedaron en PENDIENTE antes de este cambio
+UPDATE orders o
+SET estado     = 'PLANIFICADO',
+    updated_at = CURRENT_TIMESTAMP
+WHERE o.estado = 'PENDIENTE'
+  AND EXISTS (SELECT 1
+              FROM route_stop rs
+                       JOIN route_plan rp ON rp.id = rs.route_plan_id
+              WHERE rs.order_id = o.id
+                AND rp.estado = 'OPTIMIZED');
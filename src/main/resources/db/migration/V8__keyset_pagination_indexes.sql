@@ -0,0 +1,13 @@
+-- Índices para la paginación por keyset de los listados.
+-- Pedidos: orden (fecha_entrega, id) con rango de fechas, o id sin fecha; el estado va primero
+-- porque se filtra por igualdad. Reemplazan a los índices de una sola columna, que son prefijos.
+DROP INDEX IF EXISTS idx_orders_fecha_entrega;
+DROP INDEX IF EXISTS idx_orders_estado;
+CREATE INDEX idx_orders_fecha_id ON orders (fecha_entrega, id);
+CREATE INDEX idx_orders_estado_fecha_id ON orders (estado, fecha_entrega, id);
+CREATE INDEX idx_orders_estado_id ON orders (estado, id);
+
+-- Planes: id descendente (se recorre el índice al revés), filtrado por estado.
+-- Los filtros por fecha siguen con idx_route_plan_fecha / idx_route_plan_fecha_estado (pocos planes por día).
+DROP INDEX IF EXISTS idx_route_plan_estado;
+CREATE INDEX idx_route_plan_estado_id ON route_plan (estado, id);
@@ -0,0 +1,4 @@
+-- Código del cliente en el ERP: clave de la importación masiva (upsert).
+-- Único entre los clientes que lo tienen (los NULL no chocan entre sí).
+ALTER TABLE customer ADD COLUMN IF NOT EXISTS codigo_externo VARCHAR(100);
+CREATE UNIQUE INDEX idx_customer_codigo_externo ON customer (codigo_externo);
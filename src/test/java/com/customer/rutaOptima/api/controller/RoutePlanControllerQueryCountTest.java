@@ -0,0 +1,111 @@
+package com.customer.rutaOptima.api.controller;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.List;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.customer.rutaOptima.api.controller.RoutePlanController.RoutePlanDTO;
+import com.customer.rutaOptima.domain.Order;
+import com.customer.rutaOptima.domain.RoutePlan;
+import com.customer.rutaOptima.domain.RouteStop;
+import com.customer.rutaOptima.domain.Vehicle;
+import com.customer.rutaOptima.persistence.OrderRepository;
+import com.customer.rutaOptima.persistence.RoutePlanRepository;
+import com.customer.rutaOptima.persistence.VehicleRepository;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+
+/**
+ * El listado y el detalle de planes ejecutan una cantidad fija de consultas,
+ * sin importar cuántos planes o paradas haya (sin N+1).
+ */
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@Transactional
+class RoutePlanControllerQueryCountTest {
+
+    private static final int STOPS = 5;
+
+    @Autowired
+    private RoutePlanController controller;
+
+    @Autowired
+    private RoutePlanRepository routePlanRepository;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private VehicleRepository vehicleRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+    private Long routePlanId;
+
+    @BeforeEach
+    void setUp() {
+        List<Order> orders = orderRepository.findAll(PageRequest.of(0, STOPS)).getContent();
+        List<Vehicle> vehicles = vehicleRepository.findAll(PageRequest.of(0, 2)).getContent();
+        assumeTrue(orders.size() == STOPS && !vehicles.isEmpty(), "Requiere los datos de ejemplo (V4)");
+
+        for (int p = 0; p < 3; p++) {
+            RoutePlan routePlan = RoutePlan.builder()
+                .fecha(Instant.now())
+                .estado(RoutePlan.Estado.OPTIMIZED)
+                .kmsTotales(BigDecimal.ZERO)
+                .costoTotal(BigDecimal.ZERO)
+                .build();
+            for (int i = 0; i < orders.size(); i++) {
+                routePlan.getStops().add(RouteStop.builder()
+                    .routePlan(routePlan)
+                    .order(orders.get(i))
+                    .vehicle(vehicles.get(i % vehicles.size()))
+                    .secuencia(i + 1)
+                    .cargaAcumuladaCantidad(BigDecimal.ONE)
+                    .cargaAcumuladaVolumen(BigDecimal.ONE)
+                    .cargaAcumuladaPeso(BigDecimal.ONE)
+                    .build());
+            }
+            routePlanId = routePlanRepository.save(routePlan).getId();
+        }
+        entityManager.flush();
+        entityManager.clear();
+
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @Test
+    void listRoutePlansRunsOneQuery() {
+        List<RoutePlanDTO> plans = controller.listRoutePlans(null, null, null, null).getBody();
+
+        assertThat(plans).hasSizeGreaterThanOrEqualTo(3);
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+    }
+
+    @Test
+    void getRoutePlanByIdRunsTwoQueries() {
+        RoutePlanDTO plan = controller.getRoutePlanById(routePlanId).getBody();
+
+        assertThat(plan.getStops()).hasSize(STOPS);
+        assertThat(plan.getStops()).allSatisfy(stop -> assertThat(stop.getCustomerName()).isNotNull());
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(2);
+    }
+}
@@ -0,0 +1,149 @@
+package com.customer.rutaOptima.optimization.solver;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Consumer;
+
+import org.junit.jupiter.api.Test;
+import org.optaplanner.core.api.score.director.ScoreDirector;
+import org.optaplanner.core.api.solver.change.ProblemChangeDirector;
+
+import com.customer.rutaOptima.optimization.change.RemoveVehicleProblemChange;
+import com.customer.rutaOptima.optimization.domain.Location;
+import com.customer.rutaOptima.optimization.domain.VehicleInfo;
+import com.customer.rutaOptima.optimization.domain.VehicleRoutingSolution;
+import com.customer.rutaOptima.optimization.domain.Visit;
+
+class RuinAndRecreateMoveIteratorFactoryTest {
+
+    private static final int MOVES = 500;
+
+    @Test
+    void removedVehicleIsNeverTargetedAndItsVisitsAreRuined() {
+        VehicleRoutingSolution solution = buildSolution();
+        VehicleInfo removed = solution.getVehicles().get(0);
+        List<Visit> dispatched = solution.getVisits().stream().filter(Visit::isPinned).toList();
+        ScoreDirector<VehicleRoutingSolution> scoreDirector = scoreDirector(solution);
+
+        RuinAndRecreateMoveIteratorFactory factory = new RuinAndRecreateMoveIteratorFactory();
+        Random random = new Random(42);
+        // Antes del cambio el vehículo es un destino válido y sus visitas fijadas no se tocan
+        assertThat(sample(factory.createRandomMoveIterator(scoreDirector, random)))
+                .anyMatch(move -> targets(move, removed))
+                .noneMatch(move -> ruinsAny(move, dispatched));
+
+        new RemoveVehicleProblemChange(removed.getVehicleId()).doChange(solution, problemChangeDirector(solution));
+
+        // Mismo solve, sin reiniciar la fase: la lista de visitas no cambió, la de vehículos sí
+        List<RuinAndRecreateMove> moves = sample(factory.createRandomMoveIterator(scoreDirector, random));
+        assertThat(moves).noneMatch(move -> targets(move, removed));
+        assertThat(moves).anyMatch(move -> ruinsAny(move, dispatched));
+    }
+
+    @Test
+    void phaseStartedDropsNeighbourhoodAfterPinChanges() {
+        VehicleRoutingSolution solution = buildSolution();
+        List<Visit> dispatched = solution.getVisits().stream().filter(Visit::isPinned).toList();
+        ScoreDirector<VehicleRoutingSolution> scoreDirector = scoreDirector(solution);
+
+        RuinAndRecreateMoveIteratorFactory factory = new RuinAndRecreateMoveIteratorFactory();
+        Random random = new Random(7);
+        assertThat(sample(factory.createRandomMoveIterator(scoreDirector, random)))
+                .noneMatch(move -> ruinsAny(move, dispatched));
+
+        // Se liberan las visitas fijadas sin cambiar ninguna lista
+        dispatched.forEach(visit -> visit.setPinned(false));
+        factory.phaseStarted(scoreDirector);
+
+        assertThat(sample(factory.createRandomMoveIterator(scoreDirector, random)))
+                .anyMatch(move -> ruinsAny(move, dispatched));
+    }
+
+    private static List<RuinAndRecreateMove> sample(Iterator<RuinAndRecreateMove> iterator) {
+        List<RuinAndRecreateMove> moves = new ArrayList<>(MOVES);
+        for (int i = 0; i < MOVES && iterator.hasNext(); i++) {
+            moves.add(iterator.next());
+        }
+        return moves;
+    }
+
+    private static boolean targets(RuinAndRecreateMove move, VehicleInfo vehicle) {
+        return move.getPlanningValues().stream().anyMatch(value -> value == vehicle);
+    }
+
+    private static boolean ruinsAny(RuinAndRecreateMove move, List<Visit> visits) {
+        return move.getPlanningEntities().stream().anyMatch(entity -> visits.stream().anyMatch(visit -> visit == entity));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static ScoreDirector<VehicleRoutingSolution> scoreDirector(VehicleRoutingSolution solution) {
+        ScoreDirector<VehicleRoutingSolution> scoreDirector = mock(ScoreDirector.class);
+        when(scoreDirector.getWorkingSolution()).thenReturn(solution);
+        return scoreDirector;
+    }
+
+    /**
+     * Aplica los cambios directamente sobre la solución, como lo hace el solver entre pasos.
+     */
+    @SuppressWarnings("unchecked")
+    private static ProblemChangeDirector problemChangeDirector(VehicleRoutingSolution solution) {
+        ProblemChangeDirector director = mock(ProblemChangeDirector.class);
+        when(director.lookUpWorkingObject(any(VehicleInfo.class))).thenAnswer(invocation -> {
+            Long vehicleId = invocation.<VehicleInfo>getArgument(0).getVehicleId();
+            return solution.getVehicles().stream().filter(vehicle -> vehicle.getVehicleId().equals(vehicleId)).findFirst();
+        });
+        doAnswer(invocation -> {
+            invocation.<Consumer<Object>>getArgument(1).accept(invocation.getArgument(0));
+            return null;
+        }).when(director).changeProblemProperty(any(), any(Consumer.class));
+        doAnswer(invocation -> {
+            invocation.<Consumer<Object>>getArgument(2).accept(invocation.getArgument(0));
+            return null;
+        }).when(director).changeVariable(any(), anyString(), any(Consumer.class));
+        doAnswer(invocation -> {
+            invocation.<Consumer<Object>>getArgument(1).accept(invocation.getArgument(0));
+            return null;
+        }).when(director).removeProblemFact(any(), any(Consumer.class));
+        return director;
+    }
+
+    /**
+     * Tres vehículos en la misma zona; el primero ya despachado (sus visitas fijadas).
+     */
+    private static VehicleRoutingSolution buildSolution() {
+        Random random = new Random(1);
+        List<VehicleInfo> vehicles = new ArrayList<>();
+        for (long i = 1; i <= 3; i++) {
+            vehicles.add(new VehicleInfo(i, "Vehículo " + i, new BigDecimal("1000"), null, null,
+                    location(random, null), "Norte", "Conductor " + i, "#3B82F6"));
+        }
+        List<Visit> visits = new ArrayList<>();
+        for (long i = 1; i <= 30; i++) {
+            Visit visit = new Visit(i, i, location(random, i), BigDecimal.TEN, null, null, 1);
+            VehicleInfo vehicle = vehicles.get((int) (i % vehicles.size()));
+            visit.setVehicle(vehicle);
+            visit.setPinned(vehicle == vehicles.get(0));
+            visits.add(visit);
+        }
+        VehicleRoutingSolution solution = new VehicleRoutingSolution();
+        solution.setVehicles(vehicles);
+        solution.setVisits(visits);
+        return solution;
+    }
+
+    private static Location location(Random random, Long customerId) {
+        return new Location(BigDecimal.valueOf(-12.1 + random.nextDouble() * 0.1),
+                BigDecimal.valueOf(-77.1 + random.nextDouble() * 0.1), customerId, "Cliente " + customerId,
+                "Norte", 10, BigDecimal.ONE);
+    }
+}
@@ -0,0 +1,156 @@
+package com.customer.rutaOptima.optimization.solver;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.Test;
+
+class TspSequencerTest {
+
+    private static final double EPSILON = 1e-9;
+
+    @Test
+    void heldKarpMatchesBruteForce() {
+        Random random = new Random(42);
+        for (int stops = 3; stops <= 8; stops++) {
+            for (int round = 0; round < 5; round++) {
+                double[][] distance = randomEuclidean(random, stops);
+
+                int[] order = TspSequencer.sequence(distance);
+
+                assertPermutation(order, stops);
+                assertThat(TspSequencer.tourLength(distance, order))
+                        .as("%d paradas", stops)
+                        .isCloseTo(bruteForce(distance), within(EPSILON));
+            }
+        }
+    }
+
+    @Test
+    void heldKarpHandlesAsymmetricDistances() {
+        Random random = new Random(7);
+        double[][] distance = new double[8][8];
+        for (int a = 0; a < distance.length; a++) {
+            for (int b = 0; b < distance.length; b++) {
+                distance[a][b] = a == b ? 0.0 : 1 + random.nextInt(100);
+            }
+        }
+
+        int[] order = TspSequencer.sequence(distance);
+
+        assertPermutation(order, 7);
+        assertThat(TspSequencer.tourLength(distance, order)).isCloseTo(bruteForce(distance), within(EPSILON));
+    }
+
+    @Test
+    void localSearchReturnsPermutationNoLongerThanNearestNeighbour() {
+        Random random = new Random(11);
+        for (int stops : new int[] { 13, 20, 50, 150 }) {
+            for (int round = 0; round < 5; round++) {
+                double[][] distance = randomEuclidean(random, stops);
+
+                int[] order = TspSequencer.sequence(distance);
+
+                assertPermutation(order, stops);
+                assertThat(TspSequencer.tourLength(distance, order))
+                        .as("%d paradas", stops)
+                        .isLessThanOrEqualTo(TspSequencer.tourLength(distance, TspSequencer.nearestNeighbour(distance)) + EPSILON);
+            }
+        }
+    }
+
+    @Test
+    void depotStaysFirstWhenItIsFarFromTheStops() {
+        // Depot lejos de un grupo compacto: 2-opt no debe moverlo a mitad del recorrido
+        Random random = new Random(3);
+        int stops = 40;
+        double[][] points = new double[stops + 1][];
+        points[0] = new double[] { 1000.0, 1000.0 };
+        for (int i = 1; i <= stops; i++) {
+            points[i] = new double[] { random.nextDouble() * 10, random.nextDouble() * 10 };
+        }
+        double[][] distance = euclidean(points);
+
+        int[] order = TspSequencer.sequence(distance);
+
+        assertPermutation(order, stops);
+        assertThat(order).doesNotContain(0);
+        assertThat(TspSequencer.tourLength(distance, order))
+                .isLessThanOrEqualTo(TspSequencer.tourLength(distance, TspSequencer.nearestNeighbour(distance)) + EPSILON);
+    }
+
+    @Test
+    void trivialProblemsKeepInputOrder() {
+        assertThat(TspSequencer.sequence(new double[][] { { 0 } })).isEmpty();
+        assertThat(TspSequencer.sequence(new double[][] { { 0, 1 }, { 1, 0 } })).containsExactly(1);
+        assertThat(TspSequencer.sequence(euclidean(new double[][] { { 0, 0 }, { 1, 0 }, { 0, 1 } })))
+                .containsExactly(1, 2);
+    }
+
+    /**
+     * Las paradas 1..n exactamente una vez cada una (el depot, nodo 0, nunca aparece).
+     */
+    private static void assertPermutation(int[] order, int stops) {
+        assertThat(order).hasSize(stops);
+        int[] sorted = order.clone();
+        Arrays.sort(sorted);
+        assertThat(sorted).containsExactly(IntStream.rangeClosed(1, stops).toArray());
+    }
+
+    private static double bruteForce(double[][] distance) {
+        int[] order = IntStream.rangeClosed(1, distance.length - 1).toArray();
+        double best = Double.MAX_VALUE;
+        do {
+            best = Math.min(best, TspSequencer.tourLength(distance, order));
+        } while (nextPermutation(order));
+        return best;
+    }
+
+    private static boolean nextPermutation(int[] values) {
+        int i = values.length - 2;
+        while (i >= 0 && values[i] >= values[i + 1]) {
+            i--;
+        }
+        if (i < 0) {
+            return false;
+        }
+        int j = values.length - 1;
+        while (values[j] <= values[i]) {
+            j--;
+        }
+        swap(values, i, j);
+        for (int l = i + 1, r = values.length - 1; l < r; l++, r--) {
+            swap(values, l, r);
+        }
+        return true;
+    }
+
+    private static void swap(int[] values, int i, int j) {
+        int tmp = values[i];
+        values[i] = values[j];
+        values[j] = tmp;
+    }
+
+    private static double[][] randomEuclidean(Random random, int stops) {
+        double[][] points = new double[stops + 1][];
+        for (int i = 0; i <= stops; i++) {
+            points[i] = new double[] { random.nextDouble() * 100, random.nextDouble() * 100 };
+        }
+        return euclidean(points);
+    }
+
+    private static double[][] euclidean(double[][] points) {
+        int m = points.length;
+        double[][] distance = new double[m][m];
+        for (int a = 0; a < m; a++) {
+            for (int b = 0; b < m; b++) {
+                distance[a][b] = Math.hypot(points[a][0] - points[b][0], points[a][1] - points[b][1]);
+            }
+        }
+        return distance;
+    }
+}
@@ -0,0 +1,103 @@
+package com.customer.rutaOptima.optimization.solver;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+import org.optaplanner.core.api.score.buildin.hardmediumsoft.HardMediumSoftScore;
+import org.optaplanner.core.api.solver.SolutionManager;
+import org.optaplanner.core.api.solver.SolverFactory;
+import org.optaplanner.core.config.solver.SolverConfig;
+
+import com.customer.rutaOptima.optimization.domain.Location;
+import com.customer.rutaOptima.optimization.domain.VehicleInfo;
+import com.customer.rutaOptima.optimization.domain.VehicleRoutingSolution;
+import com.customer.rutaOptima.optimization.domain.Visit;
+
+class VehicleRoutingIncrementalScoreCalculatorTest {
+
+    private static final String[] ZONES = { "Norte", "Sur", "Este", null };
+
+    private final SolutionManager<VehicleRoutingSolution, HardMediumSoftScore> constraintStreams =
+            SolutionManager.create(SolverFactory.create(new SolverConfig()
+                    .withSolutionClass(VehicleRoutingSolution.class)
+                    .withEntityClasses(Visit.class)
+                    .withConstraintProviderClass(VehicleRoutingConstraintProvider.class)));
+
+    @Test
+    void resetMatchesConstraintProvider() {
+        Random random = new Random(42);
+        for (int round = 0; round < 50; round++) {
+            VehicleRoutingSolution solution = randomSolution(random);
+
+            VehicleRoutingIncrementalScoreCalculator calculator = new VehicleRoutingIncrementalScoreCalculator();
+            calculator.resetWorkingSolution(solution);
+
+            assertThat(calculator.calculateScore()).isEqualTo(constraintStreams.update(solution));
+        }
+    }
+
+    @Test
+    void incrementalChangesMatchConstraintProvider() {
+        Random random = new Random(7);
+        VehicleRoutingSolution solution = randomSolution(random);
+        VehicleRoutingIncrementalScoreCalculator calculator = new VehicleRoutingIncrementalScoreCalculator();
+        calculator.resetWorkingSolution(solution);
+
+        for (int step = 0; step < 500; step++) {
+            Visit visit = solution.getVisits().get(random.nextInt(solution.getVisits().size()));
+            calculator.beforeVariableChanged(visit, "vehicle");
+            visit.setVehicle(randomVehicleOrNull(random, solution.getVehicles()));
+            calculator.afterVariableChanged(visit, "vehicle");
+
+            assertThat(calculator.calculateScore())
+                    .as("paso %d", step)
+                    .isEqualTo(constraintStreams.update(solution));
+        }
+    }
+
+    private VehicleRoutingSolution randomSolution(Random random) {
+        List<VehicleInfo> vehicles = new ArrayList<>();
+        int vehicleCount = 1 + random.nextInt(5);
+        for (long i = 0; i < vehicleCount; i++) {
+            vehicles.add(new VehicleInfo(i, "Vehículo " + i, randomAmountOrNull(random, 200),
+                    randomAmountOrNull(random, 50), randomAmountOrNull(random, 500),
+                    random.nextInt(5) == 0 ? null : randomLocation(random, null),
+                    ZONES[random.nextInt(ZONES.length)], "Conductor " + i, "#3B82F6"));
+        }
+
+        List<Visit> visits = new ArrayList<>();
+        int visitCount = 1 + random.nextInt(40);
+        for (long i = 0; i < visitCount; i++) {
+            Visit visit = new Visit(i, i, random.nextInt(10) == 0 ? null : randomLocation(random, i),
+                    randomAmountOrNull(random, 40), randomAmountOrNull(random, 10), randomAmountOrNull(random, 80),
+                    random.nextInt(4) == 0 ? null : random.nextInt(5));
+            visit.setVehicle(randomVehicleOrNull(random, vehicles));
+            visits.add(visit);
+        }
+
+        VehicleRoutingSolution solution = new VehicleRoutingSolution();
+        solution.setVehicles(vehicles);
+        solution.setVisits(visits);
+        return solution;
+    }
+
+    private VehicleInfo randomVehicleOrNull(Random random, List<VehicleInfo> vehicles) {
+        int index = random.nextInt(vehicles.size() + 1);
+        return index == vehicles.size() ? null : vehicles.get(index);
+    }
+
+    private BigDecimal randomAmountOrNull(Random random, int max) {
+        return random.nextInt(5) == 0 ? null : BigDecimal.valueOf(random.nextInt(max * 100), 2);
+    }
+
+    private Location randomLocation(Random random, Long customerId) {
+        return new Location(BigDecimal.valueOf(-12.2 + random.nextDouble() * 0.4),
+                BigDecimal.valueOf(-77.2 + random.nextDouble() * 0.4), customerId, "Cliente " + customerId,
+                ZONES[random.nextInt(ZONES.length)], 10, BigDecimal.ONE);
+    }
+}
@@ -0,0 +1,114 @@
+package com.customer.rutaOptima.optimization.solver;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.optaplanner.core.api.score.buildin.hardmediumsoft.HardMediumSoftScore;
+import org.optaplanner.core.impl.domain.solution.cloner.FieldAccessingSolutionCloner;
+import org.optaplanner.core.impl.domain.solution.descriptor.SolutionDescriptor;
+
+import com.customer.rutaOptima.optimization.domain.Location;
+import com.customer.rutaOptima.optimization.domain.VehicleInfo;
+import com.customer.rutaOptima.optimization.domain.VehicleRoutingSolution;
+import com.customer.rutaOptima.optimization.domain.Visit;
+
+class VehicleRoutingSolutionClonerTest {
+
+    private final SolutionDescriptor<VehicleRoutingSolution> solutionDescriptor =
+            SolutionDescriptor.buildSolutionDescriptor(VehicleRoutingSolution.class, Visit.class);
+
+    private final FieldAccessingSolutionCloner<VehicleRoutingSolution> genericCloner =
+            new FieldAccessingSolutionCloner<>(solutionDescriptor);
+
+    private final VehicleRoutingSolutionCloner cloner = new VehicleRoutingSolutionCloner();
+
+    @Test
+    void cloneMatchesGenericCloner() {
+        VehicleRoutingSolution original = buildSolution();
+
+        VehicleRoutingSolution expected = genericCloner.cloneSolution(original);
+        VehicleRoutingSolution actual = cloner.cloneSolution(original);
+
+        assertThat(actual.getScore()).isEqualTo(expected.getScore());
+        assertThat(actual.getVehicles()).isEqualTo(expected.getVehicles());
+        assertThat(actual.getVisits()).isEqualTo(expected.getVisits());
+    }
+
+    @Test
+    void cloneCopiesEntitiesAndSharesProblemFacts() {
+        VehicleRoutingSolution original = buildSolution();
+
+        VehicleRoutingSolution clone = cloner.cloneSolution(original);
+
+        assertThat(clone.getVisits()).isNotSameAs(original.getVisits());
+        assertThat(clone.getVehicles()).isNotSameAs(original.getVehicles());
+        for (int i = 0; i < original.getVisits().size(); i++) {
+            Visit originalVisit = original.getVisits().get(i);
+            Visit clonedVisit = clone.getVisits().get(i);
+            assertThat(clonedVisit).isNotSameAs(originalVisit);
+            assertThat(clonedVisit.getVehicle()).isSameAs(originalVisit.getVehicle());
+            assertThat(clonedVisit.getLocation()).isSameAs(originalVisit.getLocation());
+        }
+        for (int i = 0; i < original.getVehicles().size(); i++) {
+            assertThat(clone.getVehicles().get(i)).isSameAs(original.getVehicles().get(i));
+        }
+
+        // previousVisit debe apuntar a la visita clonada, no a la original
+        assertThat(clone.getVisits().get(1).getPreviousVisit()).isSameAs(clone.getVisits().get(0));
+        assertThat(clone.getVisits().get(2).getPreviousVisit()).isNull();
+    }
+
+    @Test
+    void changingCloneDoesNotAffectOriginal() {
+        VehicleRoutingSolution original = buildSolution();
+        VehicleInfo originalVehicle = original.getVisits().get(0).getVehicle();
+
+        VehicleRoutingSolution clone = cloner.cloneSolution(original);
+        clone.getVisits().get(0).setVehicle(clone.getVehicles().get(1));
+        clone.getVisits().add(new Visit());
+
+        assertThat(original.getVisits().get(0).getVehicle()).isSameAs(originalVehicle);
+        assertThat(original.getVisits()).hasSize(3);
+    }
+
+    private VehicleRoutingSolution buildSolution() {
+        Location depot = location(-12.0464, -77.0428, null, "Norte");
+        VehicleInfo vehicleA = new VehicleInfo(1L, "Camioneta A", new BigDecimal("100.00"),
+                new BigDecimal("50.00"), new BigDecimal("500.00"), depot, "Norte", "Juan", "#3B82F6");
+        VehicleInfo vehicleB = new VehicleInfo(2L, "Camioneta B", new BigDecimal("80.00"),
+                null, null, depot, "Sur", "Ana", "#EF4444");
+
+        Visit visit1 = new Visit(10L, 10L, location(-12.05, -77.03, 100L, "Norte"),
+                new BigDecimal("10.00"), new BigDecimal("1.00"), new BigDecimal("5.00"), 1);
+        Visit visit2 = new Visit(11L, 11L, location(-12.06, -77.04, 101L, "Norte"),
+                new BigDecimal("20.00"), null, null, 2);
+        Visit visit3 = new Visit(12L, 12L, location(-12.10, -77.00, 102L, "Sur"),
+                new BigDecimal("5.00"), null, new BigDecimal("1.50"), 1);
+
+        visit1.setVehicle(vehicleA);
+        visit1.setArrivalTime(Instant.parse("2025-12-09T13:00:00Z"));
+        visit1.setAccumulatedCantidad(new BigDecimal("10.00"));
+        visit1.setDistanceFromPreviousKm(1.2);
+        visit1.setTravelTimeFromPreviousMin(3);
+        visit2.setVehicle(vehicleA);
+        visit2.setPreviousVisit(visit1);
+        visit2.setAccumulatedCantidad(new BigDecimal("30.00"));
+        visit3.setVehicle(vehicleB);
+
+        VehicleRoutingSolution solution = new VehicleRoutingSolution();
+        solution.setVehicles(new ArrayList<>(List.of(vehicleA, vehicleB)));
+        solution.setVisits(new ArrayList<>(List.of(visit1, visit2, visit3)));
+        solution.setScore(HardMediumSoftScore.of(-1, -3, -2500));
+        return solution;
+    }
+
+    private Location location(double lat, double lon, Long customerId, String zona) {
+        return new Location(BigDecimal.valueOf(lat), BigDecimal.valueOf(lon), customerId,
+                "Cliente " + customerId, zona, 10, BigDecimal.ONE);
+    }
+}